@@ -1,5 +1,6 @@
 package com.library;
 
+import com.library.service.AsyncBookService;
 import com.library.service.BackupService;
 import com.library.service.BookService;
 import com.library.service.UserService;
@@ -8,11 +9,14 @@ public class ApplicationContext {
     private static BookService bookService;
     private static UserService userService;
     private static BackupService backupService;
+    private static AsyncBookService asyncBookService;
     
-    public static void init(BookService bookService, UserService userService, BackupService backupService) {
+    public static void init(BookService bookService, UserService userService, BackupService backupService,
+                            AsyncBookService asyncBookService) {
         ApplicationContext.bookService = bookService;
         ApplicationContext.userService = userService;
         ApplicationContext.backupService = backupService;
+        ApplicationContext.asyncBookService = asyncBookService;
     }
     
     public static BookService getBookService() {
@@ -26,4 +30,8 @@ public class ApplicationContext {
     public static BackupService getBackupService() {
         return backupService;
     }
+    
+    public static AsyncBookService getAsyncBookService() {
+        return asyncBookService;
+    }
 } 
\ No newline at end of file
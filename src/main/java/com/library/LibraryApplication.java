@@ -1,28 +1,45 @@
 package com.library;
 
 import com.library.controller.LibraryController;
+import com.library.domain.book.Book;
 import com.library.repository.BookRepository;
+import com.library.repository.ChangeListener;
+import com.library.repository.ConflictPolicy;
+import com.library.repository.StorageEngine;
 import com.library.repository.UserRepository;
-import com.library.repository.impl.BookRepositoryImpl;
-import com.library.repository.impl.UserRepositoryImpl;
+import com.library.repository.impl.BloomFilterBookRepository;
+import com.library.repository.impl.BloomFilterUserRepository;
+import com.library.repository.impl.CachingBookRepository;
+import com.library.repository.impl.IndexedBookRepository;
+import com.library.search.BookSearchIndex;
+import com.library.service.AsyncBookService;
 import com.library.service.BackupService;
 import com.library.service.BookService;
+import com.library.service.ChangeFeedService;
 import com.library.service.FileStorageService;
 import com.library.service.UserService;
 import com.library.service.impl.BookServiceImpl;
+import com.library.service.impl.SearchResultCache;
 import com.library.service.impl.UserServiceImpl;
+import com.library.util.ConfigUtils;
+import com.library.util.KeyBloomFilter;
 import org.apache.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 
 public class LibraryApplication {
     private static final Logger logger = Logger.getLogger(LibraryApplication.class);
     private static volatile boolean running = true;
+    private static StorageEngine storageEngine;
+    private static ChangeFeedService changeFeedService;
+    private static final List<KeyBloomFilter> bloomFilters = new ArrayList<>();
 
     public static void main(String[] args) {
         try {
@@ -76,23 +93,81 @@ public class LibraryApplication {
     }
     
     private static void initializeComponents(Properties props) throws Exception {
-        // 初始化存储库
-        BookRepository bookRepository = new BookRepositoryImpl();
-        UserRepository userRepository = new UserRepositoryImpl();
+        // 初始化存储引擎（storage.engine=mysql|memory）
+        storageEngine = StorageEngine.create(props);
+        logger.info("Using storage engine: " + storageEngine.getClass().getSimpleName());
+        BookRepository bookRepository = storageEngine.getBookRepository();
+        UserRepository userRepository = storageEngine.getUserRepository();
+        List<ChangeListener> changeListeners = new ArrayList<>();
+        
+        // ISBN / 用户名布隆过滤器：一定不存在的键不再访问数据库
+        if (ConfigUtils.getBoolean(props, "bloom.enabled", true)) {
+            BookRepository storageBooks = bookRepository;
+            UserRepository storageUsers = userRepository;
+            KeyBloomFilter isbnFilter = KeyBloomFilter.fromConfig(props, "isbn",
+                () -> storageBooks.streamAll().map(Book::getIsbn));
+            KeyBloomFilter usernameFilter = KeyBloomFilter.fromConfig(props, "username", storageUsers::streamUsernames);
+            long rebuildMinutes = ConfigUtils.getLong(props, "bloom.rebuildIntervalMinutes", 60);
+            for (KeyBloomFilter filter : List.of(isbnFilter, usernameFilter)) {
+                filter.rebuild();
+                filter.scheduleRebuild(rebuildMinutes, TimeUnit.MINUTES);
+                bloomFilters.add(filter);
+            }
+            BloomFilterBookRepository bloomRepository = new BloomFilterBookRepository(bookRepository, isbnFilter);
+            changeListeners.add(bloomRepository);
+            bookRepository = bloomRepository;
+            userRepository = new BloomFilterUserRepository(userRepository, usernameFilter);
+        }
+        if (ConfigUtils.getBoolean(props, "search.index.enabled", true)) {
+            IndexedBookRepository indexedRepository = new IndexedBookRepository(bookRepository, new BookSearchIndex());
+            indexedRepository.rebuildIndex();
+            changeListeners.add(indexedRepository);
+            bookRepository = indexedRepository;
+        }
+        if (ConfigUtils.getBoolean(props, "cache.book.enabled", true)) {
+            CachingBookRepository cachingRepository = new CachingBookRepository(
+                bookRepository,
+                ConfigUtils.getInt(props, "cache.book.maxSize", 10000),
+                ConfigUtils.getLong(props, "cache.book.ttlSeconds", 300),
+                TimeUnit.SECONDS
+            );
+            changeListeners.add(cachingRepository);
+            bookRepository = cachingRepository;
+        }
+        SearchResultCache searchCache = null;
+        if (ConfigUtils.getBoolean(props, "cache.search.enabled", true)) {
+            searchCache = new SearchResultCache(ConfigUtils.getLong(props, "cache.search.maxWeight", 100000));
+            changeListeners.add(searchCache);
+        }
+        
+        // 变更订阅：把其他进程写入的变更增量同步到索引和缓存（直接读取存储引擎，不经过缓存）
+        if (ConfigUtils.getBoolean(props, "changefeed.enabled", true) && !changeListeners.isEmpty()) {
+            changeFeedService = new ChangeFeedService(
+                storageEngine.getBookRepository(),
+                Paths.get(props.getProperty("changefeed.watermarkFile", "data/changefeed.watermark")),
+                ConfigUtils.getInt(props, "changefeed.batchSize", 500),
+                ConfigUtils.getInt(props, "changefeed.lagSeconds", 1),
+                ConfigUtils.getInt(props, "changefeed.tombstoneRetentionDays", 7)
+            );
+            changeListeners.forEach(changeFeedService::addListener);
+            changeFeedService.start(ConfigUtils.getLong(props, "changefeed.intervalSeconds", 5), TimeUnit.SECONDS);
+        }
         
         // 初始化服务
-        BookService bookService = new BookServiceImpl(bookRepository);
+        BookService bookService = new BookServiceImpl(bookRepository, searchCache);
         UserService userService = new UserServiceImpl(userRepository);
         
         // 初始化存储服务
         String storageDir = initializeStorageDir(props);
-        FileStorageService fileStorageService = new FileStorageService(storageDir);
+        FileStorageService fileStorageService = new FileStorageService(storageDir, props);
         
         // 初始化并启动备份服务
         BackupService backupService = new BackupService(
             bookService, 
             fileStorageService,
-            storageDir
+            storageDir,
+            ConflictPolicy.parse(props.getProperty("backup.restore.conflictPolicy", "skip")),
+            props
         );
         
         // 启动定期备份
@@ -100,8 +175,13 @@ public class LibraryApplication {
         TimeUnit timeUnit = TimeUnit.valueOf(props.getProperty("backup.timeunit", "HOURS"));
         backupService.startScheduledBackup(interval, timeUnit);
         
+        // 异步图书服务：并发上限默认取存储引擎的并发能力（MySQL 为连接池大小）
+        int maxConcurrency = ConfigUtils.getInt(props, "async.maxConcurrency", 0);
+        AsyncBookService asyncBookService = new AsyncBookService(bookService,
+            maxConcurrency > 0 ? maxConcurrency : storageEngine.getMaxConcurrency());
+        
         // 存储服务实例供后续使用
-        ApplicationContext.init(bookService, userService, backupService);
+        ApplicationContext.init(bookService, userService, backupService, asyncBookService);
     }
     
     private static String initializeStorageDir(Properties props) {
@@ -149,6 +229,13 @@ public class LibraryApplication {
         // 清理资源
         try {
             ApplicationContext.getBackupService().shutdown();
+            if (changeFeedService != null) {
+                changeFeedService.shutdown();
+            }
+            bloomFilters.forEach(KeyBloomFilter::shutdown);
+            ApplicationContext.getAsyncBookService().shutdown();
+            // 刷新库存组提交队列并关闭连接池
+            storageEngine.shutdown();
             // 等待控制器线程结束
             controllerThread.join(5000);
         } catch (Exception e) {
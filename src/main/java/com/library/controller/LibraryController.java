@@ -1,20 +1,29 @@
 package com.library.controller;
 
+import com.library.ApplicationContext;
 import com.library.domain.book.*;
 import com.library.domain.user.User;
+import com.library.repository.CatalogStats;
+import com.library.repository.MultiGetResult;
+import com.library.repository.Page;
+import com.library.service.AsyncBookService;
 import com.library.service.BackupService;
 import com.library.service.BookService;
 import com.library.service.UserService;
+import com.library.util.CacheStats;
+import com.library.util.DBHandler;
+import com.library.util.PoolStats;
 import org.apache.log4j.Logger;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Scanner;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 public class LibraryController {
     private static final Logger logger = Logger.getLogger(LibraryController.class);
+    private static final int PAGE_SIZE = 10;
     private final BookService bookService;
     private final UserService userService;
     private final BackupService backupService;
@@ -93,6 +102,7 @@ public class LibraryController {
             System.out.println("4. 删除图书");
             System.out.println("5. 更新库存");
             System.out.println("6. 备份管理");
+            System.out.println("9. 低库存报表");
         }
         System.out.println("7. 个人信息");
         System.out.println("8. 注销");
@@ -204,6 +214,10 @@ public class LibraryController {
             }
             case 7 -> showUserInfo();
             case 8 -> logout();
+            case 9 -> {
+                if (currentUser.isAdmin()) showLowStockReport();
+                else System.out.println("权限不足！");
+            }
             case 0 -> {
                 System.out.println("感谢使用！");
                 running = false;
@@ -228,10 +242,23 @@ public class LibraryController {
         if (currentUser != null && currentUser.isAdmin()) {
             System.out.println("\n=== 系统状态 ===");
             try {
-                List<Book> books = bookService.findAll();
                 List<String> backups = backupService.listBackups();
                 
-                System.out.println("图书总数: " + books.size());
+                // 目录统计只执行一次聚合查询，同时作为数据库连接检查
+                try {
+                    CatalogStats stats = bookService.getCatalogStats();
+                    System.out.println("图书总数: " + stats.getTotalCount());
+                    System.out.printf("库存总量: %d, 缺货图书: %d%n", stats.getTotalStock(), stats.getOutOfStockCount());
+                    for (CatalogStats.TypeStats typeStats : stats.getByType().values()) {
+                        System.out.printf("  %-12s %d 种, 库存 %d, 缺货 %d%n", typeStats.getType(),
+                            typeStats.getCount(), typeStats.getTotalStock(), typeStats.getOutOfStock());
+                    }
+                    System.out.println("数据库连接状态: 正常");
+                } catch (Exception e) {
+                    System.out.println("数据库连接状态: 异常");
+                    logger.error("Database connection check failed", e);
+                }
+                
                 System.out.println("备份文件数: " + backups.size());
                 if (!backups.isEmpty()) {
                     System.out.println("最新备份: " + backups.get(backups.size() - 1));
@@ -239,13 +266,33 @@ public class LibraryController {
                     System.out.println("最新备份: 无");
                 }
                 
-                // 检查数据库连接
-                try {
-                    bookService.findAll();
-                    System.out.println("数据库连接状态: 正常");
-                } catch (Exception e) {
-                    System.out.println("数据库连接状态: 异常");
-                    logger.error("Database connection check failed", e);
+                // 连接池状态
+                PoolStats poolStats = DBHandler.getPoolStats();
+                if (poolStats != null) {
+                    System.out.printf("连接池: 活动 %d / 空闲 %d / 总计 %d (上限 %d), 等待线程 %d%n",
+                        poolStats.getActiveConnections(), poolStats.getIdleConnections(),
+                        poolStats.getTotalConnections(), poolStats.getMaximumPoolSize(),
+                        poolStats.getPendingThreads());
+                    System.out.printf("连接获取耗时: 平均 %.2fms, 最大 %.2fms (共 %d 次, 超时 %d 次)%n",
+                        poolStats.getAverageAcquisitionMillis(), poolStats.getMaxAcquisitionMillis(),
+                        poolStats.getAcquisitions(), poolStats.getAcquisitionTimeouts());
+                }
+                
+                // 异步服务状态
+                AsyncBookService asyncBookService = ApplicationContext.getAsyncBookService();
+                if (asyncBookService != null) {
+                    System.out.printf("异步查询: %s, 并发上限 %d, 执行中 %d, 排队 %d%n",
+                        asyncBookService.isVirtualThreads() ? "虚拟线程" : "平台线程池",
+                        asyncBookService.getMaxConcurrency(), asyncBookService.getInFlight(),
+                        asyncBookService.getQueued());
+                }
+                
+                // 搜索结果缓存
+                CacheStats searchCacheStats = bookService.getSearchCacheStats();
+                if (searchCacheStats != null) {
+                    System.out.printf("搜索缓存: 命中率 %.1f%% (命中 %d / 未命中 %d), 缓存 %d 项, 淘汰 %d, 失效 %d%n",
+                        searchCacheStats.getHitRate() * 100, searchCacheStats.getHits(), searchCacheStats.getMisses(),
+                        searchCacheStats.getSize(), searchCacheStats.getEvictions(), searchCacheStats.getExpirations());
                 }
                 
                 // 检查系统运行状态
@@ -293,34 +340,44 @@ public class LibraryController {
 
     private void showAllBooks() {
         try {
-            List<Book> books = bookService.findAll();
-            if (books.isEmpty()) {
-                System.out.println("\n图书馆暂无图书！");
-                return;
-            }
-
-            System.out.println("\n=== 所有图书 ===");
-            System.out.println("共找到 " + books.size() + " 本图书：\n");
-            
-            // 按类型分组显示
-            Map<String, List<Book>> booksByType = books.stream()
-                .collect(Collectors.groupingBy(Book::getType));
-            
-            booksByType.forEach((type, typeBooks) -> {
-                System.out.printf("\n=== %s类图书 (%d本) ===\n", 
-                    getChineseTypeName(type), typeBooks.size());
-                typeBooks.forEach(book -> {
-                    System.out.println(book.displayInfo());
-                    System.out.println("------------------------");
-                });
-            });
-            
+            browsePages("所有图书", "\n图书馆暂无图书！",
+                token -> bookService.findAllPage(token, PAGE_SIZE));
         } catch (Exception e) {
             System.out.println("获取图书列表失败：" + e.getMessage());
             logger.error("Error getting all books", e);
         }
     }
 
+    // 逐页显示图书，每页只查询 PAGE_SIZE 条，由续页令牌获取下一页
+    private void browsePages(String title, String emptyMessage, Function<String, Page<Book>> pageLoader) {
+        String token = null;
+        int pageNo = 1;
+        while (true) {
+            Page<Book> page = pageLoader.apply(token);
+            if (page.isEmpty() && pageNo == 1) {
+                System.out.println(emptyMessage);
+                return;
+            }
+
+            System.out.printf("\n=== %s (第 %d 页) ===\n", title, pageNo);
+            for (Book book : page.getItems()) {
+                System.out.println(book.displayInfo());
+                System.out.println("------------------------");
+            }
+
+            if (!page.hasNext()) {
+                System.out.println("已显示全部图书");
+                return;
+            }
+            String input = getStringInput("按回车查看下一页，输入 q 返回: ");
+            if (input.equalsIgnoreCase("q")) {
+                return;
+            }
+            token = page.getNextToken();
+            pageNo++;
+        }
+    }
+
     private void showBooksByType() {
         System.out.println("\n=== 按类型浏览图书 ===");
         System.out.println("1. 计算机类 (Computer)");
@@ -353,17 +410,9 @@ public class LibraryController {
             };
             
             if (type != null) {
-                List<Book> books = bookService.findByType(type);
-                if (books.isEmpty()) {
-                    System.out.println("\n该类型暂无图书！");
-                } else {
-                    System.out.printf("\n=== %s类图书 ===\n", getChineseTypeName(type));
-                    System.out.println("找到 " + books.size() + " 本图书：\n");
-                    for (Book book : books) {
-                        System.out.println(book.displayInfo());
-                        System.out.println("------------------------");
-                    }
-                }
+                String selectedType = type;
+                browsePages(getChineseTypeName(type) + "类图书", "\n该类型暂无图书！",
+                    token -> bookService.findByTypePage(selectedType, token, PAGE_SIZE));
             }
         } catch (Exception e) {
             System.out.println("浏览图书失败：" + e.getMessage());
@@ -404,14 +453,26 @@ public class LibraryController {
 
             switch (choice) {
                 case 1 -> {
-                    isbn = getStringInput("请输入ISBN: ");
-                    bookService.findByIsbn(isbn).ifPresentOrElse(
-                        book -> {
-                            System.out.println("\n找到图书：");
-                            System.out.println(book.displayInfo());
-                        },
-                        () -> System.out.println("未找到该图书！")
-                    );
+                    isbn = getStringInput("请输入ISBN(多个用逗号或空格分隔): ");
+                    List<String> isbns = Arrays.stream(isbn.split("[,，\\s]+"))
+                        .filter(s -> !s.isEmpty())
+                        .toList();
+                    if (isbns.size() <= 1) {
+                        bookService.findByIsbn(isbn.trim()).ifPresentOrElse(
+                            book -> {
+                                System.out.println("\n找到图书：");
+                                System.out.println(book.displayInfo());
+                            },
+                            () -> System.out.println("未找到该图书！")
+                        );
+                        return;
+                    }
+                    MultiGetResult<String> result = bookService.findByIsbns(isbns);
+                    System.out.println("\n找到 " + result.getFound().size() + " 本图书：");
+                    result.getFound().values().forEach(book -> System.out.println(book.displayInfo()));
+                    if (result.hasMissing()) {
+                        System.out.println("未找到的ISBN: " + String.join(", ", result.getMissing()));
+                    }
                     return;
                 }
                 case 2 -> {
@@ -443,17 +504,10 @@ public class LibraryController {
 
             // 只有在非ISBN搜索时才执行通用搜索
             if (choice != 1) {
-                List<Book> results = bookService.searchBooks(keyword, type);
-                
-                if (results.isEmpty()) {
-                    System.out.println("\n未找到匹配的图书！");
-                    return;
-                }
-
-                System.out.printf("\n找到 %d 本匹配的图书：\n", results.size());
-                for (Book book : results) {
-                    System.out.println("\n" + book.displayInfo());
-                }
+                String searchKeyword = keyword;
+                String searchType = type;
+                browsePages("搜索结果", "\n未找到匹配的图书！",
+                    token -> bookService.searchBooksPage(searchKeyword, searchType, token, PAGE_SIZE));
             }
 
         } catch (NumberFormatException e) {
@@ -666,10 +720,12 @@ public class LibraryController {
                     System.out.print("输入库存变化量（正数增加，负数减少）: ");
                     try {
                         int change = Integer.parseInt(scanner.nextLine().trim());
-                        bookService.updateStock(book.getId(), change);
-                        System.out.println("库存更新成功！");
+                        int newStock = bookService.adjustStock(book.getId(), change);
+                        System.out.println("库存更新成功！当前库存：" + newStock);
                     } catch (NumberFormatException e) {
                         System.out.println("请输入有效的数字！");
+                    } catch (InsufficientStockException e) {
+                        System.out.println("库存不足！当前库存：" + e.getAvailable());
                     }
                 },
                 () -> System.out.println("未找到该书！")
@@ -680,6 +736,26 @@ public class LibraryController {
         }
     }
 
+    private void showLowStockReport() {
+        try {
+            int threshold = getIntInput("\n显示库存低于多少的图书: ");
+            String type = getStringInput("图书类型（英文类型名，直接回车表示全部类型）: ");
+            List<Book> books = bookService.findLowStock(threshold, type, PAGE_SIZE);
+            if (books.isEmpty()) {
+                System.out.println("没有库存低于 " + threshold + " 的图书");
+                return;
+            }
+            System.out.println("\n=== 低库存图书（库存最少的前 " + PAGE_SIZE + " 本）===");
+            for (Book book : books) {
+                System.out.printf("库存 %-4d %s  %s (%s)%n", book.getStock(), book.getIsbn(), book.getTitle(),
+                    getChineseTypeName(book.getType()));
+            }
+        } catch (Exception e) {
+            System.out.println("查询低库存图书失败：" + e.getMessage());
+            logger.error("Error loading low stock report", e);
+        }
+    }
+
     public void manageBackups() {
         while (true) {
             System.out.println("\n=== 备份管理 ===");
@@ -0,0 +1,32 @@
+package com.library.domain.book;
+
+/**
+ * 库存不足异常
+ * 作用：相对库存调整会使库存变为负数时抛出，携带图书 id、调整量和当前库存
+ */
+public class InsufficientStockException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    private final Long bookId;
+    private final int delta;
+    private final int available;
+
+    public InsufficientStockException(Long bookId, int delta, int available) {
+        super("库存不足：图书 " + bookId + " 当前库存 " + available + "，无法调整 " + delta);
+        this.bookId = bookId;
+        this.delta = delta;
+        this.available = available;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public int getDelta() {
+        return delta;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+}
@@ -0,0 +1,77 @@
+package com.library.repository;
+
+import com.library.domain.book.Book;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量保存结果
+ * 作用：记录成功保存（已回填ID）的图书和失败的图书及原因
+ */
+public class BatchSaveResult {
+    private final List<Book> saved = new ArrayList<>();
+    private final List<Failure> failures = new ArrayList<>();
+
+    public void addSaved(Book book) {
+        saved.add(book);
+    }
+
+    public void addFailure(Book book, String reason) {
+        failures.add(new Failure(book, reason));
+    }
+
+    public void merge(BatchSaveResult other) {
+        saved.addAll(other.saved);
+        failures.addAll(other.failures);
+    }
+
+    public List<Book> getSaved() {
+        return Collections.unmodifiableList(saved);
+    }
+
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    public int getSavedCount() {
+        return saved.size();
+    }
+
+    public int getFailedCount() {
+        return failures.size();
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchSaveResult{saved=" + saved.size() + ", failed=" + failures.size() + "}";
+    }
+
+    public static class Failure {
+        private final Book book;
+        private final String reason;
+
+        public Failure(Book book, String reason) {
+            this.book = book;
+            this.reason = reason;
+        }
+
+        public Book getBook() {
+            return book;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return (book != null ? book.getIsbn() : "null") + ": " + reason;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.library.repository;
+
+import com.library.domain.book.Book;
+
+/**
+ * 单条图书变更
+ * 作用：新增/修改时携带变更后的完整图书，删除时只有 id 与 ISBN（来自删除记录）
+ */
+public final class BookChange {
+    // 声明顺序即同一 (时间, id) 上的先后：先修改后删除
+    public enum Type {
+        UPSERT,
+        DELETE
+    }
+
+    private final Type type;
+    private final long id;
+    private final String isbn;
+    private final String time;
+    private final Book book;
+
+    private BookChange(Type type, long id, String isbn, String time, Book book) {
+        this.type = type;
+        this.id = id;
+        this.isbn = isbn;
+        this.time = time;
+        this.book = book;
+    }
+
+    public static BookChange upsert(Book book) {
+        return new BookChange(Type.UPSERT, book.getId(), book.getIsbn(), book.getUpdateTime(), book);
+    }
+
+    public static BookChange delete(long id, String isbn, String deletedAt) {
+        return new BookChange(Type.DELETE, id, isbn, deletedAt, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isDelete() {
+        return type == Type.DELETE;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * 图书 ISBN；删除记录中的 ISBN 可能缺失（为 null）
+     */
+    public String getIsbn() {
+        return isbn;
+    }
+
+    /**
+     * 变更时间（update_time 或删除时间）
+     */
+    public String getTime() {
+        return time;
+    }
+
+    /**
+     * 变更后的图书，删除时为 null
+     */
+    public Book getBook() {
+        return book;
+    }
+
+    /**
+     * 按 (时间, id, 类型) 排序，与水位的比较规则一致；同一秒内同一本书的修改排在删除之前
+     */
+    public static int compare(BookChange a, BookChange b) {
+        int byTime = a.time.compareTo(b.time);
+        if (byTime != 0) {
+            return byTime;
+        }
+        return a.id != b.id ? Long.compare(a.id, b.id) : a.type.compareTo(b.type);
+    }
+
+    @Override
+    public String toString() {
+        return type + "{id=" + id + ", isbn=" + isbn + ", time=" + time + "}";
+    }
+}
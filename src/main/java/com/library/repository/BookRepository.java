@@ -1,18 +1,92 @@
 package com.library.repository;
 
 import com.library.domain.book.Book;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public interface BookRepository {
     Book save(Book book);
+    BatchSaveResult saveAll(Collection<Book> books);
+
+    /**
+     * 按 ISBN 插入或更新，ISBN 已存在时按 policy 处理，返回本行的处理结果；
+     * 只有实际写入（新增或覆盖）时回填ID；写入失败时抛出异常
+     */
+    UpsertResult.Outcome upsert(Book book, ConflictPolicy policy);
+
+    /**
+     * 批量 upsert：按批次大小分块，每块一次批量插入和一次批量更新，失败的图书记录在结果中
+     */
+    UpsertResult upsertAll(Collection<Book> books, ConflictPolicy policy);
     Optional<Book> findById(Long id);
     Optional<Book> findByIsbn(String isbn);
+
+    /**
+     * 批量按 id / ISBN 查询：键按固定大小分块后用 IN (...) 查询，
+     * 返回以输入键为 key 的结果，并报告未找到的键
+     */
+    MultiGetResult<Long> findByIds(Collection<Long> ids);
+    MultiGetResult<String> findByIsbns(Collection<String> isbns);
     List<Book> findByTitle(String title);
     List<Book> findByType(String type);
     List<Book> findAll();
+    /**
+     * 以游标方式按 id 顺序流式读取全部图书，返回的流必须关闭以释放连接
+     */
+    Stream<Book> streamAll();
     void updateStock(Long id, int change);
+
+    /**
+     * 在单条语句中原子地调整库存（stock = stock + delta），返回调整后的库存
+     * 库存会变为负数时抛出 InsufficientStockException
+     */
+    int adjustStock(Long id, int delta);
+
+    /**
+     * 异步调整库存：请求进入组提交队列，与其他并发调整合并后在同一事务中提交，
+     * 返回的 future 在事务提交后以调整后的库存完成
+     */
+    CompletableFuture<Integer> adjustStockAsync(Long id, int delta);
+    /**
+     * 批量调整库存（盘点对账）：按输入顺序逐行应用，单行失败不影响其他行，返回逐行结果
+     */
+    StockAdjustmentResult bulkAdjustStock(Stream<StockAdjustment> adjustments);
     void delete(Long id);
     boolean exists(String isbn);
+
+    long countAll();
+
+    /**
+     * 按类型汇总图书数、库存总量和缺货数，不加载图书本身
+     */
+    CatalogStats getCatalogStats();
+
+    /**
+     * 库存低于 threshold 的图书，按库存升序（相同库存按 id）取前 limit 本；type 为空时跨所有类型
+     */
+    List<Book> findLowStock(int threshold, String type, int limit);
     List<Book> searchBooks(String keyword, String type);
+
+    /**
+     * 键集分页查询：pageToken 为空表示第一页，后续页传入上一页的 nextToken
+     */
+    Page<Book> findAllPage(String pageToken, int pageSize);
+    Page<Book> findByTypePage(String type, String pageToken, int pageSize);
+    Page<Book> searchBooksPage(String keyword, String type, String pageToken, int pageSize);
+
+    /**
+     * 变更订阅：按 (update_time, id) 顺序读取水位之后的新增/修改以及删除记录，最多 limit 条
+     * 只返回早于当前时间 lagSeconds 秒的变更，避免读到同一秒内尚在写入或尚未提交的变更后水位越过它们
+     */
+    ChangeSet findChangesSince(ChangeWatermark since, int limit, int lagSeconds);
+
+    /**
+     * 清理早于 before（yyyy-MM-dd HH:mm:ss）的删除记录，返回清理的条数
+     * oldest 为本进程中最早的订阅水位（可为 null）：只在本进程内可见的存储还会清理不晚于它的删除记录，
+     * 多个进程共享的存储只按 before 清理
+     */
+    int purgeTombstones(String before, ChangeWatermark oldest);
 }
\ No newline at end of file
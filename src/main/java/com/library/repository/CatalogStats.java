@@ -0,0 +1,92 @@
+package com.library.repository;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 图书目录统计
+ * 作用：按类型汇总图书数、库存总量和缺货数，状态页只需这一份聚合结果，不必加载整个目录
+ * 说明：类型名不区分大小写合并，与 books 表的 GROUP BY type 一致
+ */
+public class CatalogStats {
+    private final Map<String, TypeStats> byType = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * 累加一本图书（内存存储逐本统计时使用）
+     */
+    public void accumulate(String type, int stock) {
+        add(type, 1, stock, stock <= 0 ? 1 : 0);
+    }
+
+    /**
+     * 累加一组已聚合的数据（数据库 GROUP BY 的一行）
+     */
+    public void add(String type, long count, long totalStock, long outOfStock) {
+        String key = type == null ? "" : type;
+        TypeStats stats = byType.computeIfAbsent(key, TypeStats::new);
+        stats.count += count;
+        stats.totalStock += totalStock;
+        stats.outOfStock += outOfStock;
+    }
+
+    public long getTotalCount() {
+        return byType.values().stream().mapToLong(TypeStats::getCount).sum();
+    }
+
+    public long getTotalStock() {
+        return byType.values().stream().mapToLong(TypeStats::getTotalStock).sum();
+    }
+
+    public long getOutOfStockCount() {
+        return byType.values().stream().mapToLong(TypeStats::getOutOfStock).sum();
+    }
+
+    /**
+     * 指定类型的图书数，没有该类型时返回 0
+     */
+    public long countByType(String type) {
+        TypeStats stats = type == null ? null : byType.get(type);
+        return stats == null ? 0 : stats.count;
+    }
+
+    /**
+     * 按类型名排序的各类型统计
+     */
+    public Map<String, TypeStats> getByType() {
+        return Collections.unmodifiableMap(byType);
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogStats{books=" + getTotalCount() + ", stock=" + getTotalStock()
+            + ", outOfStock=" + getOutOfStockCount() + ", types=" + byType.size() + "}";
+    }
+
+    public static final class TypeStats {
+        private final String type;
+        private long count;
+        private long totalStock;
+        private long outOfStock;
+
+        private TypeStats(String type) {
+            this.type = type;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalStock() {
+            return totalStock;
+        }
+
+        public long getOutOfStock() {
+            return outOfStock;
+        }
+    }
+}
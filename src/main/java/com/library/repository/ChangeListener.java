@@ -0,0 +1,11 @@
+package com.library.repository;
+
+/**
+ * 图书变更监听器
+ * 作用：接收变更订阅推送的变更批次，用于刷新缓存、搜索索引或副本
+ * 说明：推送至少一次，监听器抛出异常时水位不前进，同一批变更会再次推送，实现需保证幂等
+ */
+@FunctionalInterface
+public interface ChangeListener {
+    void onChanges(ChangeSet changes);
+}
@@ -0,0 +1,63 @@
+package com.library.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一批图书变更
+ * 作用：按 (时间, id, 类型) 排序的变更列表，以及消费完这批变更后的新水位
+ * 说明：hasMore 为 true 表示本次读取受 limit 限制，水位之后还有已可见的变更
+ */
+public class ChangeSet {
+    private final List<BookChange> changes;
+    private final ChangeWatermark watermark;
+    private final boolean hasMore;
+
+    public ChangeSet(List<BookChange> changes, ChangeWatermark watermark, boolean hasMore) {
+        this.changes = Collections.unmodifiableList(changes);
+        this.watermark = watermark;
+        this.hasMore = hasMore;
+    }
+
+    /**
+     * 合并候选变更并按 (时间, id, 类型) 排序，取前 limit 条；候选数超过 limit 即表示还有更多
+     */
+    public static ChangeSet of(List<BookChange> candidates, ChangeWatermark since, int limit) {
+        List<BookChange> sorted = new ArrayList<>(candidates);
+        sorted.sort(BookChange::compare);
+        boolean hasMore = sorted.size() > limit;
+        List<BookChange> changes = hasMore ? new ArrayList<>(sorted.subList(0, limit)) : sorted;
+        ChangeWatermark watermark = since;
+        if (!changes.isEmpty()) {
+            BookChange last = changes.get(changes.size() - 1);
+            watermark = new ChangeWatermark(last.getTime(), last.getId(), last.getType());
+        }
+        return new ChangeSet(changes, watermark, hasMore);
+    }
+
+    public List<BookChange> getChanges() {
+        return changes;
+    }
+
+    public ChangeWatermark getWatermark() {
+        return watermark;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    public int size() {
+        return changes.size();
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet{changes=" + changes.size() + ", watermark=" + watermark + ", hasMore=" + hasMore + "}";
+    }
+}
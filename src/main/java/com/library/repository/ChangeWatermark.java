@@ -0,0 +1,107 @@
+package com.library.repository;
+
+/**
+ * 变更订阅水位
+ * 作用：记录已消费到的位置 (update_time, id, 变更类型)，下次只读取严格位于其后的变更
+ * 说明：时间为 yyyy-MM-dd HH:mm:ss 格式；同一秒内的多条变更按 id 区分先后，
+ * 同一秒内同一本书先修改后删除时再按类型区分（修改在前、删除在后），
+ * 可以序列化为 "时间|id|类型" 字符串持久化，解析时兼容旧的 "时间|id"（视为修改）
+ */
+public final class ChangeWatermark implements Comparable<ChangeWatermark> {
+    /** 起始水位，从最早的变更开始读取 */
+    public static final ChangeWatermark INITIAL = new ChangeWatermark("1970-01-01 00:00:00", 0L);
+
+    private final String time;
+    private final long id;
+    private final BookChange.Type type;
+
+    public ChangeWatermark(String time, long id) {
+        this(time, id, BookChange.Type.UPSERT);
+    }
+
+    public ChangeWatermark(String time, long id, BookChange.Type type) {
+        if (time == null || time.trim().isEmpty()) {
+            throw new IllegalArgumentException("Watermark time cannot be empty");
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("Watermark type cannot be null");
+        }
+        this.time = time.trim();
+        this.id = id;
+        this.type = type;
+    }
+
+    public String getTime() {
+        return time;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * 水位所在变更的类型：为 UPSERT 时，同一 (时间, id) 上的删除仍位于水位之后
+     */
+    public BookChange.Type getType() {
+        return type;
+    }
+
+    /**
+     * (time, id, type) 是否位于本水位之后
+     */
+    public boolean isBefore(String otherTime, long otherId, BookChange.Type otherType) {
+        int byTime = otherTime.compareTo(time);
+        if (byTime != 0) {
+            return byTime > 0;
+        }
+        return otherId != id ? otherId > id : otherType.compareTo(type) > 0;
+    }
+
+    public String format() {
+        return time + "|" + id + "|" + type;
+    }
+
+    public static ChangeWatermark parse(String value) {
+        String[] parts = value == null ? new String[0] : value.split("\\|", -1);
+        if (parts.length != 2 && parts.length != 3) {
+            throw new IllegalArgumentException("Invalid watermark: " + value);
+        }
+        try {
+            BookChange.Type type = parts.length == 3 ? BookChange.Type.valueOf(parts[2].trim()) : BookChange.Type.UPSERT;
+            return new ChangeWatermark(parts[0], Long.parseLong(parts[1].trim()), type);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid watermark: " + value, e);
+        }
+    }
+
+    @Override
+    public int compareTo(ChangeWatermark other) {
+        int byTime = time.compareTo(other.time);
+        if (byTime != 0) {
+            return byTime;
+        }
+        return id != other.id ? Long.compare(id, other.id) : type.compareTo(other.type);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ChangeWatermark)) {
+            return false;
+        }
+        ChangeWatermark other = (ChangeWatermark) o;
+        return id == other.id && time.equals(other.time) && type == other.type;
+    }
+
+    @Override
+    public int hashCode() {
+        return (time.hashCode() * 31 + Long.hashCode(id)) * 31 + type.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
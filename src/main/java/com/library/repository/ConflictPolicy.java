@@ -0,0 +1,40 @@
+package com.library.repository;
+
+import java.util.Locale;
+
+/**
+ * ISBN 冲突处理策略
+ * 作用：upsert 时遇到已存在的 ISBN（uk_isbn 冲突）如何处理
+ * - SKIP：保留已有记录，不做修改
+ * - OVERWRITE：用新数据覆盖已有记录（id 与 create_time 保持不变）
+ * - NEWER_WINS：新数据的 update_time 比已有记录新时才覆盖；未设置 update_time 视为当前时间
+ * 写入的记录 update_time 均为写入时间，传入的 update_time 只用于 NEWER_WINS 的比较
+ */
+public enum ConflictPolicy {
+    SKIP,
+    OVERWRITE,
+    NEWER_WINS;
+
+    /**
+     * 已有记录是否应被新数据覆盖；时间为 yyyy-MM-dd HH:mm:ss 格式，可直接按字符串比较
+     */
+    public boolean overwrites(String existingUpdateTime, String incomingUpdateTime) {
+        return switch (this) {
+            case SKIP -> false;
+            case OVERWRITE -> true;
+            case NEWER_WINS -> incomingUpdateTime == null || incomingUpdateTime.trim().isEmpty()
+                || existingUpdateTime == null || incomingUpdateTime.trim().compareTo(existingUpdateTime) > 0;
+        };
+    }
+
+    /**
+     * 解析配置值（不区分大小写，允许 newer-wins 写法）
+     */
+    public static ConflictPolicy parse(String value) {
+        try {
+            return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Unknown conflict policy: " + value, e);
+        }
+    }
+}
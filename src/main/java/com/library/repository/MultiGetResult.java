@@ -0,0 +1,81 @@
+package com.library.repository;
+
+import com.library.domain.book.Book;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * 批量查询结果
+ * 作用：按输入键（id 或 ISBN）返回找到的图书，并列出未找到的键
+ * 说明：found 与 missing 均保持输入顺序，重复的键只出现一次
+ */
+public class MultiGetResult<K> {
+    private final Map<K, Book> found;
+    private final List<K> missing;
+
+    public MultiGetResult(Map<K, Book> found, List<K> missing) {
+        this.found = Collections.unmodifiableMap(found);
+        this.missing = Collections.unmodifiableList(missing);
+    }
+
+    /**
+     * 去掉 null 和重复值，保持输入顺序
+     */
+    public static <K> List<K> distinctKeys(Collection<K> keys) {
+        LinkedHashSet<K> distinct = new LinkedHashSet<>();
+        if (keys != null) {
+            for (K key : keys) {
+                if (key != null) {
+                    distinct.add(key);
+                }
+            }
+        }
+        return new ArrayList<>(distinct);
+    }
+
+    /**
+     * 按输入顺序把查询到的图书与键对应起来，没有对应图书的键计入 missing
+     */
+    public static <K> MultiGetResult<K> of(List<K> keys, Function<K, Book> lookup) {
+        Map<K, Book> found = new LinkedHashMap<>();
+        List<K> missing = new ArrayList<>();
+        for (K key : keys) {
+            Book book = lookup.apply(key);
+            if (book != null) {
+                found.put(key, book);
+            } else {
+                missing.add(key);
+            }
+        }
+        return new MultiGetResult<>(found, missing);
+    }
+
+    public Map<K, Book> getFound() {
+        return found;
+    }
+
+    public List<K> getMissing() {
+        return missing;
+    }
+
+    public Optional<Book> get(K key) {
+        return Optional.ofNullable(found.get(key));
+    }
+
+    public boolean hasMissing() {
+        return !missing.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "MultiGetResult{found=" + found.size() + ", missing=" + missing + "}";
+    }
+}
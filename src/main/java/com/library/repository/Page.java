@@ -0,0 +1,93 @@
+package com.library.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * 键集分页结果
+ * 作用：保存一页数据、页大小以及用于获取下一页的续页令牌
+ * 说明：令牌编码的是本页最后一条记录的 id，下一页查询使用 id > lastId，不使用 OFFSET
+ */
+public class Page<T> {
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final String TOKEN_PREFIX = "id:";
+
+    private final List<T> items;
+    private final int pageSize;
+    private final String nextToken;
+
+    public Page(List<T> items, int pageSize, String nextToken) {
+        this.items = Collections.unmodifiableList(items);
+        this.pageSize = pageSize;
+        this.nextToken = nextToken;
+    }
+
+    /**
+     * 根据多取一条的查询结果构造分页：fetched 最多包含 pageSize + 1 条，
+     * 多出的一条仅用于判断是否存在下一页
+     */
+    public static <T> Page<T> of(List<T> fetched, int pageSize, ToLongFunction<T> idOf) {
+        if (fetched.size() <= pageSize) {
+            return new Page<>(fetched, pageSize, null);
+        }
+        List<T> items = fetched.subList(0, pageSize);
+        return new Page<>(items, pageSize, encodeToken(idOf.applyAsLong(items.get(pageSize - 1))));
+    }
+
+    public static <T> Page<T> empty(int pageSize) {
+        return new Page<>(List.of(), pageSize, null);
+    }
+
+    public static String encodeToken(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((TOKEN_PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析续页令牌，返回上一页最后一条记录的 id；令牌为空表示第一页，返回 0
+     */
+    public static long decodeToken(String token) {
+        if (token == null || token.trim().isEmpty()) {
+            return 0L;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(TOKEN_PREFIX)) {
+                throw new IllegalArgumentException("Invalid page token: " + token);
+            }
+            return Long.parseLong(decoded.substring(TOKEN_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token: " + token, e);
+        }
+    }
+
+    public static int checkPageSize(int pageSize) {
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return pageSize;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+}
@@ -0,0 +1,54 @@
+package com.library.repository;
+
+/**
+ * 库存调整行
+ * 作用：盘点对账中的一行，按 ISBN 把库存设为新值（SET）或增减一个数量（DELTA）
+ */
+public final class StockAdjustment {
+    public enum Mode {
+        SET,
+        DELTA
+    }
+
+    private final String isbn;
+    private final Mode mode;
+    private final int amount;
+
+    private StockAdjustment(String isbn, Mode mode, int amount) {
+        this.isbn = isbn == null ? null : isbn.trim();
+        this.mode = mode;
+        this.amount = amount;
+    }
+
+    public static StockAdjustment set(String isbn, int newStock) {
+        return new StockAdjustment(isbn, Mode.SET, newStock);
+    }
+
+    public static StockAdjustment delta(String isbn, int delta) {
+        return new StockAdjustment(isbn, Mode.DELTA, delta);
+    }
+
+    /**
+     * 基于当前库存计算调整后的库存；结果可能为负数，由调用方判定为库存不足
+     */
+    public long applyTo(int currentStock) {
+        return mode == Mode.SET ? amount : (long) currentStock + amount;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return isbn + (mode == Mode.SET ? " = " : (amount >= 0 ? " +" : " ")) + amount;
+    }
+}
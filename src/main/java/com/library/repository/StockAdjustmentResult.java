@@ -0,0 +1,122 @@
+package com.library.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量库存调整结果
+ * 作用：按输入顺序逐行记录处理结果（行号从 1 开始），并按状态汇总行数
+ */
+public class StockAdjustmentResult {
+    public enum Status {
+        APPLIED,
+        NOT_FOUND,
+        INSUFFICIENT_STOCK,
+        INVALID,
+        FAILED
+    }
+
+    private final List<Line> lines = new ArrayList<>();
+    private final Map<Status, Integer> counts = new EnumMap<>(Status.class);
+
+    public void add(Line line) {
+        lines.add(line);
+        counts.merge(line.getStatus(), 1, Integer::sum);
+    }
+
+    public void addAll(Collection<Line> added) {
+        added.forEach(this::add);
+    }
+
+    public List<Line> getLines() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    public int getCount(Status status) {
+        return counts.getOrDefault(status, 0);
+    }
+
+    public int getAppliedCount() {
+        return getCount(Status.APPLIED);
+    }
+
+    public int getRejectedCount() {
+        return lines.size() - getAppliedCount();
+    }
+
+    public int getLineCount() {
+        return lines.size();
+    }
+
+    @Override
+    public String toString() {
+        return "StockAdjustmentResult{lines=" + lines.size() + ", " + counts + "}";
+    }
+
+    public static class Line {
+        private final long lineNumber;
+        private final StockAdjustment adjustment;
+        private final Status status;
+        private final Long bookId;
+        private final Integer previousStock;
+        private final Integer newStock;
+        private final String message;
+
+        public Line(long lineNumber, StockAdjustment adjustment, Status status, Long bookId,
+                    Integer previousStock, Integer newStock, String message) {
+            this.lineNumber = lineNumber;
+            this.adjustment = adjustment;
+            this.status = status;
+            this.bookId = bookId;
+            this.previousStock = previousStock;
+            this.newStock = newStock;
+            this.message = message;
+        }
+
+        /**
+         * 同一行改为失败（所在批次回滚时使用）
+         */
+        public Line failed(String reason) {
+            return new Line(lineNumber, adjustment, Status.FAILED, bookId, previousStock, null, reason);
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public StockAdjustment getAdjustment() {
+            return adjustment;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public Long getBookId() {
+            return bookId;
+        }
+
+        public Integer getPreviousStock() {
+            return previousStock;
+        }
+
+        public Integer getNewStock() {
+            return newStock;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + lineNumber + " " + adjustment + ": " + status
+                + (newStock != null ? " (" + previousStock + " -> " + newStock + ")" : "")
+                + (message != null ? " " + message : "");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.library.repository;
+
+import com.library.repository.impl.EmbeddedStorageEngine;
+import com.library.repository.impl.InMemoryBookRepository;
+import com.library.repository.impl.JdbcStorageEngine;
+import com.library.repository.impl.MappedBookRepository;
+
+import java.util.Properties;
+
+/**
+ * 存储引擎
+ * 作用：提供一组配套的图书/用户仓库，由 storage.engine 配置选择具体实现
+ * - mysql：基于 HikariCP + MySQL 的 JDBC 实现（默认）
+ * - memory：进程内存储，启动时载入示例数据，无需外部数据库
+ * - mapped：图书目录保存在内存映射文件中，重启后直接重新打开，适合读多写少的场景
+ */
+public interface StorageEngine {
+    String ENGINE_MYSQL = "mysql";
+    String ENGINE_MEMORY = "memory";
+    String ENGINE_MAPPED = "mapped";
+
+    BookRepository getBookRepository();
+
+    UserRepository getUserRepository();
+
+    /**
+     * 可同时执行的仓库调用数，异步服务据此限制并发
+     */
+    default int getMaxConcurrency() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 释放引擎持有的资源（后台线程、连接池等）
+     */
+    void shutdown();
+
+    static StorageEngine create(Properties props) {
+        String engine = props.getProperty("storage.engine", ENGINE_MYSQL).trim().toLowerCase();
+        return switch (engine) {
+            case ENGINE_MYSQL -> new JdbcStorageEngine(props);
+            case ENGINE_MEMORY -> new EmbeddedStorageEngine(props, new InMemoryBookRepository());
+            case ENGINE_MAPPED -> new EmbeddedStorageEngine(props, new MappedBookRepository(props));
+            default -> throw new IllegalArgumentException("Unknown storage engine: " + engine);
+        };
+    }
+}
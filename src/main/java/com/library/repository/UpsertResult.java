@@ -0,0 +1,108 @@
+package com.library.repository;
+
+import com.library.domain.book.Book;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量 upsert 结果
+ * 作用：按新增、覆盖、跳过分别记录图书（新增和覆盖的已回填ID，跳过的不修改），以及失败的图书及原因
+ */
+public class UpsertResult {
+    public enum Outcome {
+        INSERTED,
+        UPDATED,
+        SKIPPED
+    }
+
+    private final List<Book> inserted = new ArrayList<>();
+    private final List<Book> updated = new ArrayList<>();
+    private final List<Book> skipped = new ArrayList<>();
+    private final List<BatchSaveResult.Failure> failures = new ArrayList<>();
+
+    public void add(Book book, Outcome outcome) {
+        switch (outcome) {
+            case INSERTED -> inserted.add(book);
+            case UPDATED -> updated.add(book);
+            case SKIPPED -> skipped.add(book);
+        }
+    }
+
+    public void addFailure(Book book, String reason) {
+        failures.add(new BatchSaveResult.Failure(book, reason));
+    }
+
+    public void merge(UpsertResult other) {
+        inserted.addAll(other.inserted);
+        updated.addAll(other.updated);
+        skipped.addAll(other.skipped);
+        failures.addAll(other.failures);
+    }
+
+    /**
+     * 单行 upsert 的处理结果；该行失败时抛出异常
+     */
+    public Outcome singleOutcome() {
+        if (!failures.isEmpty()) {
+            throw new RuntimeException("Error upserting book: " + failures.get(0).getReason());
+        }
+        if (!inserted.isEmpty()) {
+            return Outcome.INSERTED;
+        }
+        return updated.isEmpty() ? Outcome.SKIPPED : Outcome.UPDATED;
+    }
+
+    public List<Book> getInserted() {
+        return Collections.unmodifiableList(inserted);
+    }
+
+    public List<Book> getUpdated() {
+        return Collections.unmodifiableList(updated);
+    }
+
+    public List<Book> getSkipped() {
+        return Collections.unmodifiableList(skipped);
+    }
+
+    /**
+     * 新增与覆盖的图书，即实际写入了数据库的图书
+     */
+    public List<Book> getWritten() {
+        List<Book> written = new ArrayList<>(inserted.size() + updated.size());
+        written.addAll(inserted);
+        written.addAll(updated);
+        return written;
+    }
+
+    public List<BatchSaveResult.Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    public int getInsertedCount() {
+        return inserted.size();
+    }
+
+    public int getUpdatedCount() {
+        return updated.size();
+    }
+
+    public int getSkippedCount() {
+        return skipped.size();
+    }
+
+    public int getFailedCount() {
+        return failures.size();
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "UpsertResult{inserted=" + inserted.size() + ", updated=" + updated.size()
+            + ", skipped=" + skipped.size() + ", failed=" + failures.size() + "}";
+    }
+}
@@ -2,9 +2,15 @@ package com.library.repository;
 
 import com.library.domain.user.User;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository {
     User save(User user);
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
+
+    /**
+     * 流式返回全部用户名，返回的流必须由调用方关闭
+     */
+    Stream<String> streamUsernames();
 } 
\ No newline at end of file
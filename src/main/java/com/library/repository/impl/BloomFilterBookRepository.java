@@ -0,0 +1,100 @@
+package com.library.repository.impl;
+
+import com.library.domain.book.Book;
+import com.library.repository.BatchSaveResult;
+import com.library.repository.BookChange;
+import com.library.repository.BookRepository;
+import com.library.repository.ChangeListener;
+import com.library.repository.ChangeSet;
+import com.library.repository.ConflictPolicy;
+import com.library.repository.UpsertResult;
+import com.library.util.KeyBloomFilter;
+import com.library.util.TransactionManager;
+
+import java.util.Collection;
+
+/**
+ * 带 ISBN 布隆过滤器的图书仓库
+ * 作用：exists 查询的 ISBN 一定不存在时直接返回，不访问数据库
+ * 说明：
+ * - 写入前先把 ISBN 加入过滤器，提交后再加入一次（见 KeyBloomFilter.put）；删除不处理，由定期重建清理
+ * - 其他进程新增的 ISBN 要等变更订阅推送（延迟加轮询间隔）后才进入过滤器，这段时间内的“不存在”是误判，
+ *   因此 findByIsbn 不经过过滤器，直接查询
+ */
+public class BloomFilterBookRepository extends ForwardingBookRepository implements ChangeListener {
+    private final KeyBloomFilter isbnFilter;
+
+    public BloomFilterBookRepository(BookRepository delegate, KeyBloomFilter isbnFilter) {
+        super(delegate);
+        this.isbnFilter = isbnFilter;
+    }
+
+    public KeyBloomFilter getFilter() {
+        return isbnFilter;
+    }
+
+    /**
+     * 变更订阅回调：其他进程新增的 ISBN 加入过滤器
+     */
+    @Override
+    public void onChanges(ChangeSet changes) {
+        for (BookChange change : changes.getChanges()) {
+            if (!change.isDelete()) {
+                isbnFilter.put(change.getIsbn());
+            }
+        }
+    }
+
+    @Override
+    public boolean exists(String isbn) {
+        return isbnFilter.mightContain(isbn) && delegate.exists(isbn);
+    }
+
+    @Override
+    public Book save(Book book) {
+        String isbn = book.getIsbn();
+        isbnFilter.put(isbn);
+        try {
+            return delegate.save(book);
+        } finally {
+            TransactionManager.afterCommit(() -> isbnFilter.put(isbn));
+        }
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<Book> books) {
+        putAll(books);
+        try {
+            return delegate.saveAll(books);
+        } finally {
+            TransactionManager.afterCommit(() -> putAll(books));
+        }
+    }
+
+    @Override
+    public UpsertResult.Outcome upsert(Book book, ConflictPolicy policy) {
+        String isbn = book.getIsbn();
+        isbnFilter.put(isbn);
+        try {
+            return delegate.upsert(book, policy);
+        } finally {
+            TransactionManager.afterCommit(() -> isbnFilter.put(isbn));
+        }
+    }
+
+    @Override
+    public UpsertResult upsertAll(Collection<Book> books, ConflictPolicy policy) {
+        putAll(books);
+        try {
+            return delegate.upsertAll(books, policy);
+        } finally {
+            TransactionManager.afterCommit(() -> putAll(books));
+        }
+    }
+
+    private void putAll(Collection<Book> books) {
+        for (Book book : books) {
+            isbnFilter.put(book.getIsbn());
+        }
+    }
+}
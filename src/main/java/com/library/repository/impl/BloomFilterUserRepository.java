@@ -0,0 +1,55 @@
+package com.library.repository.impl;
+
+import com.library.domain.user.User;
+import com.library.repository.UserRepository;
+import com.library.util.KeyBloomFilter;
+import com.library.util.TransactionManager;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * 带用户名布隆过滤器的用户仓库
+ * 作用：注册时的 existsByUsername 用户名一定不存在时直接返回，不访问数据库
+ * 说明：用户没有变更订阅，其他进程新建的用户要等定期重建后才进入过滤器，
+ * 因此登录用的 findByUsername 不经过过滤器，否则新账号在重建前无法登录
+ */
+public class BloomFilterUserRepository implements UserRepository {
+    private final UserRepository delegate;
+    private final KeyBloomFilter usernameFilter;
+
+    public BloomFilterUserRepository(UserRepository delegate, KeyBloomFilter usernameFilter) {
+        this.delegate = delegate;
+        this.usernameFilter = usernameFilter;
+    }
+
+    public KeyBloomFilter getFilter() {
+        return usernameFilter;
+    }
+
+    @Override
+    public User save(User user) {
+        String username = user.getUsername();
+        usernameFilter.put(username);
+        try {
+            return delegate.save(user);
+        } finally {
+            TransactionManager.afterCommit(() -> usernameFilter.put(username));
+        }
+    }
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return delegate.findByUsername(username);
+    }
+
+    @Override
+    public boolean existsByUsername(String username) {
+        return usernameFilter.mightContain(username) && delegate.existsByUsername(username);
+    }
+
+    @Override
+    public Stream<String> streamUsernames() {
+        return delegate.streamUsernames();
+    }
+}
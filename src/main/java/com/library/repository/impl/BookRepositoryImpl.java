@@ -1,48 +1,113 @@
 package com.library.repository.impl;
 
 import com.library.domain.book.*;
+import com.library.repository.BatchSaveResult;
+import com.library.repository.BookChange;
 import com.library.repository.BookRepository;
+import com.library.repository.CatalogStats;
+import com.library.repository.ChangeSet;
+import com.library.repository.ChangeWatermark;
+import com.library.repository.ConflictPolicy;
+import com.library.repository.MultiGetResult;
+import com.library.repository.Page;
+import com.library.repository.StockAdjustment;
+import com.library.repository.StockAdjustmentResult;
+import com.library.repository.UpsertResult;
+import com.library.util.ConfigUtils;
 import com.library.util.DBHandler;
+import com.library.util.TransactionManager;
 import org.apache.log4j.Logger;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public class BookRepositoryImpl implements BookRepository {
     private static final Logger logger = Logger.getLogger(BookRepositoryImpl.class);
 
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int DEFAULT_FETCH_SIZE = 500;
+    private static final int DEFAULT_MULTI_GET_CHUNK_SIZE = 500;
+
+    static final String INSERT_SQL = buildInsertSql();
+    // upsert 按预查结果拆成普通 INSERT 与按 id 的 UPDATE（见 upsertChunk），UPDATE 每种覆盖策略一条语句
+    private static final String UPSERT_INSERT_SQL = buildUpsertInsertSql();
+    private static final Map<ConflictPolicy, String> UPSERT_UPDATE_SQL = buildUpsertUpdateSql();
+
+    // 列投影：books 表约 30 个类型特有列中每行只有 3 个非空，查询时只取通用列和本类型的 3 列，
+    // 统一以 attr1..attr3 返回；类型未知时用 CASE 按行选出对应列
+    private static final String COMMON_COLUMNS = "id, isbn, title, author, type, stock, create_time, update_time";
+    static final String SELECT_BOOK = "SELECT " + COMMON_COLUMNS + ", " + buildAttributeProjection() + " FROM books";
+    private static final Map<BookTypeColumns, String> SELECT_BY_TYPE = buildTypeProjections();
+    private static final String TOMBSTONE_SQL =
+        "INSERT INTO book_tombstones (book_id, isbn) SELECT id, isbn FROM books WHERE id = ?";
+    // 变更订阅：按 (update_time, id) 键集读取，只读早于 NOW() - lag 的行
+    private static final String CHANGED_BOOKS_SQL = SELECT_BOOK
+        + " WHERE (update_time > ? OR (update_time = ? AND id > ?)) AND update_time < NOW() - INTERVAL ? SECOND"
+        + " ORDER BY update_time, id LIMIT ?";
+    private static final String DELETED_BOOKS_SQL = "SELECT book_id, isbn, deleted_at FROM book_tombstones"
+        + " WHERE (deleted_at > ? OR (deleted_at = ? AND book_id > ?)) AND deleted_at < NOW() - INTERVAL ? SECOND"
+        + " ORDER BY deleted_at, book_id LIMIT ?";
+    // 按批次删除过期的删除记录，避免一次删除大量行长时间持有锁
+    private static final String PURGE_TOMBSTONES_SQL = "DELETE FROM book_tombstones WHERE deleted_at < ? LIMIT ?";
+    private static final String LOW_STOCK_CONDITION = " WHERE type = ? AND stock < ? ORDER BY stock, id LIMIT ?";
+    // 目录统计：一次 GROUP BY 得到各类型的图书数、库存总量和缺货数
+    private static final String CATALOG_STATS_SQL = "SELECT type, COUNT(*), COALESCE(SUM(stock), 0),"
+        + " SUM(CASE WHEN stock <= 0 THEN 1 ELSE 0 END) FROM books GROUP BY type";
+    // 相对调整库存并保证结果非负；LAST_INSERT_ID(expr) 用于在同一次往返中带回新库存
+    static final String ADJUST_STOCK_SQL =
+        "UPDATE books SET stock = LAST_INSERT_ID(stock + ?) WHERE id = ? AND stock + ? >= 0";
+
+    private final int batchSize;
+    private final int streamFetchSize;
+    private final int multiGetChunkSize;
+    private final int groupCommitMaxBatch;
+    private final long groupCommitWindowMillis;
+    private GroupCommitStockWriter stockWriter;
+    private boolean stockWriterShutDown;
+
+    public BookRepositoryImpl() {
+        this(null);
+    }
+
+    public BookRepositoryImpl(Properties props) {
+        this.batchSize = Math.max(1, ConfigUtils.getInt(props, "db.batch.size", DEFAULT_BATCH_SIZE));
+        this.streamFetchSize = resolveStreamFetchSize(props);
+        this.multiGetChunkSize = Math.max(1, ConfigUtils.getInt(props, "db.multiGet.chunkSize",
+            DEFAULT_MULTI_GET_CHUNK_SIZE));
+        this.groupCommitMaxBatch = ConfigUtils.getInt(props, "stock.groupCommit.maxBatch", 256);
+        this.groupCommitWindowMillis = ConfigUtils.getLong(props, "stock.groupCommit.windowMillis", 5);
+    }
+
+    // cursor 模式依赖连接池开启 useCursorFetch；streaming 模式使用 Connector/J 的逐行流式读取
+    static int resolveStreamFetchSize(Properties props) {
+        String mode = ConfigUtils.getString(props, "db.stream.mode", DBHandler.STREAM_MODE_CURSOR);
+        if (DBHandler.STREAM_MODE_STREAMING.equalsIgnoreCase(mode)) {
+            return Integer.MIN_VALUE;
+        }
+        return Math.max(1, ConfigUtils.getInt(props, "db.stream.fetchSize", DEFAULT_FETCH_SIZE));
+    }
+
     @Override
     public Book save(Book book) {
         Connection conn = null;
         try {
             conn = DBHandler.getConnection();
-            String sql = """
-                INSERT INTO books (isbn, title, author, type, stock, 
-                    legal_system, jurisdiction, legal_field)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
-                """;
-                
-            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                stmt.setString(1, book.getIsbn());
-                stmt.setString(2, book.getTitle());
-                stmt.setString(3, book.getAuthor());
-                stmt.setString(4, book.getType());
-                stmt.setInt(5, book.getStock());
-                
-                // 根据图书类型设置特定字段
-                if (book instanceof LawBook) {
-                    LawBook lawBook = (LawBook) book;
-                    stmt.setString(6, lawBook.getLegalSystem());
-                    stmt.setString(7, lawBook.getJurisdiction());
-                    stmt.setString(8, lawBook.getLegalField());
-                } else {
-                    // 如果不是法律类图书，设置这些字段为 null
-                    stmt.setNull(6, Types.VARCHAR);
-                    stmt.setNull(7, Types.VARCHAR);
-                    stmt.setNull(8, Types.VARCHAR);
-                }
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                bindInsert(stmt, book);
                 
                 int affectedRows = stmt.executeUpdate();
                 if (affectedRows == 0) {
@@ -75,9 +140,549 @@ public class BookRepositoryImpl implements BookRepository {
         }
     }
 
+    @Override
+    public BatchSaveResult saveAll(Collection<Book> books) {
+        BatchSaveResult result = new BatchSaveResult();
+        if (books == null || books.isEmpty()) {
+            return result;
+        }
+
+        List<Book> pending = new ArrayList<>(books);
+        Connection conn = null;
+        int processed = 0;
+        try {
+            conn = DBHandler.getConnection();
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                // 按批次大小分块，每块一次 executeBatch + 一次提交
+                while (processed < pending.size()) {
+                    int end = Math.min(processed + batchSize, pending.size());
+                    saveChunk(conn, stmt, pending.subList(processed, end), result);
+                    processed = end;
+                }
+            }
+        } catch (SQLException e) {
+            // 获取连接或预编译失败，剩余未处理的图书全部记为失败
+            logger.error("Error saving books in batch", e);
+            for (Book book : pending.subList(processed, pending.size())) {
+                result.addFailure(book, e.getMessage());
+            }
+        } finally {
+            DBHandler.closeConnection(conn);
+        }
+
+        logger.debug("Batch save finished: " + result);
+        return result;
+    }
+
+    private void saveChunk(Connection conn, PreparedStatement stmt, List<Book> chunk,
+                           BatchSaveResult result) throws SQLException {
+        try {
+            for (Book book : chunk) {
+                bindInsert(stmt, book);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            // 批量回填自增ID，顺序与批次中的顺序一致
+            List<Long> ids = new ArrayList<>(chunk.size());
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                while (generatedKeys.next()) {
+                    ids.add(generatedKeys.getLong(1));
+                }
+            }
+            if (ids.size() != chunk.size()) {
+                throw new SQLException("Expected " + chunk.size() + " generated keys but got " + ids.size());
+            }
+            conn.commit();
+
+            for (int i = 0; i < chunk.size(); i++) {
+                chunk.get(i).setId(ids.get(i));
+                result.addSaved(chunk.get(i));
+            }
+        } catch (SQLException e) {
+            DBHandler.rollback(conn);
+            stmt.clearBatch();
+            failIfInTransaction("Batch save", e);
+            logger.warn("Batch of " + chunk.size() + " books failed, retrying row by row: " + e.getMessage());
+            saveChunkRowByRow(conn, stmt, chunk, result);
+        }
+    }
+
+    // 批次失败后逐行重试，定位具体失败的图书
+    private void saveChunkRowByRow(Connection conn, PreparedStatement stmt, List<Book> chunk,
+                                   BatchSaveResult result) {
+        for (Book book : chunk) {
+            try {
+                bindInsert(stmt, book);
+                stmt.executeUpdate();
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (!generatedKeys.next()) {
+                        throw new SQLException("Creating book failed, no ID obtained.");
+                    }
+                    book.setId(generatedKeys.getLong(1));
+                }
+                conn.commit();
+                result.addSaved(book);
+            } catch (SQLException e) {
+                DBHandler.rollback(conn);
+                book.setId(null);
+                result.addFailure(book, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public UpsertResult.Outcome upsert(Book book, ConflictPolicy policy) {
+        return upsertAll(Collections.singletonList(book), policy).singleOutcome();
+    }
+
+    @Override
+    public UpsertResult upsertAll(Collection<Book> books, ConflictPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Conflict policy cannot be null");
+        }
+        UpsertResult result = new UpsertResult();
+        if (books == null || books.isEmpty()) {
+            return result;
+        }
+
+        List<Book> pending = new ArrayList<>(books);
+        Connection conn = null;
+        int processed = 0;
+        try {
+            conn = DBHandler.getConnection();
+            try (PreparedStatement insert = conn.prepareStatement(UPSERT_INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement update = policy == ConflictPolicy.SKIP
+                     ? null : conn.prepareStatement(UPSERT_UPDATE_SQL.get(policy))) {
+                // 每块：一次预查 + 一次批量 INSERT + 一次批量 UPDATE + 一次提交
+                while (processed < pending.size()) {
+                    int end = Math.min(processed + batchSize, pending.size());
+                    upsertChunk(conn, insert, update, policy, pending.subList(processed, end), result, false);
+                    processed = end;
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error upserting books in batch", e);
+            for (Book book : pending.subList(processed, pending.size())) {
+                result.addFailure(book, e.getMessage());
+            }
+        } finally {
+            DBHandler.closeConnection(conn);
+        }
+
+        logger.debug("Batch upsert finished: " + result);
+        return result;
+    }
+
+    /*
+     * 先用普通的一致性读查出本块 ISBN 对应的已有行，按策略判定每行的结果：不存在的行用普通 INSERT 批量插入，
+     * 需要覆盖的行按预查到的 id 批量 UPDATE，跳过的行不写。
+     * - 预查不加锁：对不存在的 ISBN 使用 FOR UPDATE 会在 uk_isbn 上加间隙锁，两个并发插入相邻新 ISBN 的
+     *   事务会互相等待对方的插入意向锁而死锁
+     * - 不使用 ON DUPLICATE KEY UPDATE：Connector/J 以 found rows 返回影响行数，预查之后被并发插入的 ISBN
+     *   会被静默当作插入成功。普通 INSERT 在这种情况下因 uk_isbn 失败，该行随后单独重试一次，重新预查后按策略判定
+     * - NEWER_WINS 的时间比较放在 UPDATE 的 WHERE 中，与 decide() 一样是严格大于；没有匹配到行
+     *   （被并发删除或已被改为更新的数据）时同样单独重试一次
+     * - 只回填实际写入的行的 id：插入的行取生成键，覆盖的行取 WHERE 中的 id，跳过的行不修改
+     * - 写入的行 update_time 一律为当前时间，恢复或覆盖的数据不会落在变更订阅的水位之前；
+     *   传入的 update_time 只参与 NEWER_WINS 的比较，不写入
+     */
+    private void upsertChunk(Connection conn, PreparedStatement insert, PreparedStatement update,
+                             ConflictPolicy policy, List<Book> chunk, UpsertResult result, boolean retry)
+            throws SQLException {
+        List<Book> retries = new ArrayList<>();
+        List<Book> deferred = new ArrayList<>();
+        try {
+            List<String> keys = new ArrayList<>(chunk.size());
+            for (Book book : chunk) {
+                if (book == null || book.getIsbn() == null) {
+                    throw new SQLException("Column 'isbn' cannot be null");
+                }
+                keys.add(book.getIsbn());
+            }
+            Map<String, ExistingRow> rows = findExistingByIsbn(conn, keys);
+
+            Set<String> seen = new HashSet<>();
+            List<Book> inserted = new ArrayList<>();
+            List<Book> updated = new ArrayList<>();
+            List<Long> updatedIds = new ArrayList<>();
+            List<Book> skipped = new ArrayList<>();
+            for (Book book : chunk) {
+                String key = isbnKey(book.getIsbn());
+                if (!seen.add(key)) {
+                    // 同一块中重复出现的 ISBN 要与前面写入的结果比较，等本块提交后再逐行处理
+                    deferred.add(book);
+                    continue;
+                }
+                ExistingRow row = rows.get(key);
+                if (row == null) {
+                    bindUpsertInsert(insert, book);
+                    insert.addBatch();
+                    inserted.add(book);
+                } else if (decide(policy, row, toTimestamp(book.getUpdateTime())) == UpsertResult.Outcome.UPDATED) {
+                    bindUpsertUpdate(update, book, row.id, policy);
+                    update.addBatch();
+                    updated.add(book);
+                    updatedIds.add(row.id);
+                } else {
+                    skipped.add(book);
+                }
+            }
+            List<Long> ids = inserted.isEmpty() ? List.of() : executeInserts(insert, inserted.size());
+            int[] counts = updated.isEmpty() ? new int[0] : update.executeBatch();
+            conn.commit();
+
+            for (int i = 0; i < inserted.size(); i++) {
+                inserted.get(i).setId(ids.get(i));
+                result.add(inserted.get(i), UpsertResult.Outcome.INSERTED);
+            }
+            for (int i = 0; i < updated.size(); i++) {
+                if (counts[i] == 0) {
+                    retries.add(updated.get(i));
+                } else {
+                    updated.get(i).setId(updatedIds.get(i));
+                    result.add(updated.get(i), UpsertResult.Outcome.UPDATED);
+                }
+            }
+            for (Book book : skipped) {
+                result.add(book, UpsertResult.Outcome.SKIPPED);
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            DBHandler.rollback(conn);
+            insert.clearBatch();
+            if (update != null) {
+                update.clearBatch();
+            }
+            failIfInTransaction("Batch upsert", e);
+            if (chunk.size() > 1) {
+                // 批次失败后逐行重试，定位具体失败的图书
+                logger.warn("Upsert batch of " + chunk.size() + " books failed, retrying row by row: " + e.getMessage());
+                for (Book book : chunk) {
+                    upsertChunk(conn, insert, update, policy, Collections.singletonList(book), result, false);
+                }
+                return;
+            }
+            if (retry || !(e instanceof SQLException) || !isDuplicateKey((SQLException) e)) {
+                result.addFailure(chunk.get(0), e.getMessage());
+                return;
+            }
+            retries.add(chunk.get(0));
+        }
+        for (Book book : retries) {
+            if (retry) {
+                result.addFailure(book, "Book '" + book.getIsbn() + "' was modified concurrently");
+            } else {
+                upsertChunk(conn, insert, update, policy, Collections.singletonList(book), result, true);
+            }
+        }
+        for (Book book : deferred) {
+            upsertChunk(conn, insert, update, policy, Collections.singletonList(book), result, false);
+        }
+    }
+
+    // 与 ConflictPolicy.overwrites 一致：严格大于才覆盖，未设置 update_time 的新数据视为当前时间，总是较新
+    private static UpsertResult.Outcome decide(ConflictPolicy policy, ExistingRow row, Timestamp incoming) {
+        return switch (policy) {
+            case OVERWRITE -> UpsertResult.Outcome.UPDATED;
+            case NEWER_WINS -> incoming == null || row.updateTime == null || incoming.after(row.updateTime)
+                ? UpsertResult.Outcome.UPDATED : UpsertResult.Outcome.SKIPPED;
+            case SKIP -> UpsertResult.Outcome.SKIPPED;
+        };
+    }
+
+    // 本批只有普通 INSERT，生成键与批次中的行一一对应
+    private static List<Long> executeInserts(PreparedStatement insert, int count) throws SQLException {
+        insert.executeBatch();
+        List<Long> ids = new ArrayList<>(count);
+        try (ResultSet generatedKeys = insert.getGeneratedKeys()) {
+            while (generatedKeys.next()) {
+                ids.add(generatedKeys.getLong(1));
+            }
+        }
+        if (ids.size() != count) {
+            throw new SQLException("Expected " + count + " generated keys but got " + ids.size());
+        }
+        return ids;
+    }
+
+    // uk_isbn 冲突（MySQL 错误码 1062），批量执行时包装在 BatchUpdateException 中
+    private static boolean isDuplicateKey(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLIntegrityConstraintViolationException
+                    || t instanceof SQLException && ((SQLException) t).getErrorCode() == 1062) {
+                return true;
+            }
+            if (t instanceof SQLException && ((SQLException) t).getNextException() != null
+                    && isDuplicateKey(((SQLException) t).getNextException())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // SELECT id, isbn, update_time（不加锁），键为小写 ISBN（uk_isbn 使用不区分大小写的排序规则）
+    private Map<String, ExistingRow> findExistingByIsbn(Connection conn, List<String> isbns) throws SQLException {
+        int placeholders = paddedSize(isbns.size(), batchSize);
+        String sql = "SELECT id, isbn, update_time FROM books WHERE isbn IN ("
+            + String.join(", ", Collections.nCopies(placeholders, "?")) + ")";
+        Map<String, ExistingRow> rows = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < placeholders; i++) {
+                stmt.setString(i + 1, isbns.get(Math.min(i, isbns.size() - 1)));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.put(isbnKey(rs.getString(2)), new ExistingRow(rs.getLong(1), rs.getTimestamp(3)));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /*
+     * 批量方法按块提交、失败块回滚后逐行重试或记为失败，其余块照常提交。
+     * 处于 TransactionManager 事务中时，连接上的 commit 被忽略、rollback 只把整个事务标记为仅回滚，
+     * 重试和后续各块的写入最终都会随事务回滚，返回的结果却会把它们报告为成功，因此直接抛出，由事务边界回滚
+     */
+    private static void failIfInTransaction(String operation, Exception e) {
+        if (TransactionManager.isActive()) {
+            throw new RuntimeException(operation + " failed inside a transaction: " + e.getMessage(), e);
+        }
+    }
+
+    private static String isbnKey(String isbn) {
+        return isbn.toLowerCase(Locale.ROOT);
+    }
+
+    /*
+     * 每块一个事务：一次 SELECT ... FOR UPDATE 取回本块 ISBN 的 id 和当前库存，在内存中逐行计算，
+     * 再把每本书的最终库存用一次批量 UPDATE 写回并提交；某块失败只回滚该块
+     */
+    @Override
+    public StockAdjustmentResult bulkAdjustStock(Stream<StockAdjustment> adjustments) {
+        StockAdjustmentResult result = new StockAdjustmentResult();
+        Connection conn = null;
+        try {
+            conn = DBHandler.getConnection();
+            Connection connection = conn;
+            try (PreparedStatement update = conn.prepareStatement("UPDATE books SET stock = ? WHERE id = ?")) {
+                StockAdjustmentPlan.forEachChunk(adjustments, batchSize,
+                    (firstLine, chunk) -> adjustStockChunk(connection, update, firstLine, chunk, result));
+            }
+        } catch (SQLException e) {
+            logger.error("Error preparing bulk stock adjustment", e);
+            throw new RuntimeException("批量调整库存失败，请稍后重试", e);
+        } finally {
+            DBHandler.closeConnection(conn);
+        }
+        logger.debug("Bulk stock adjustment finished: " + result);
+        return result;
+    }
+
+    private void adjustStockChunk(Connection conn, PreparedStatement update, long firstLine,
+                                  List<StockAdjustment> chunk, StockAdjustmentResult result) {
+        StockAdjustmentPlan plan = null;
+        try {
+            Map<String, StockAdjustmentPlan.CurrentStock> rows = lockStockByIsbn(conn, chunk);
+            plan = new StockAdjustmentPlan(firstLine, chunk, isbn -> rows.get(isbnKey(isbn)));
+            for (Map.Entry<Long, Integer> entry : plan.getUpdates().entrySet()) {
+                update.setInt(1, entry.getValue());
+                update.setLong(2, entry.getKey());
+                update.addBatch();
+            }
+            if (!plan.getUpdates().isEmpty()) {
+                update.executeBatch();
+            }
+            conn.commit();
+            plan.commitTo(result);
+        } catch (SQLException e) {
+            DBHandler.rollback(conn);
+            try {
+                update.clearBatch();
+            } catch (SQLException ex) {
+                logger.error("Error clearing stock update batch", ex);
+            }
+            failIfInTransaction("Bulk stock adjustment", e);
+            logger.error("Bulk stock adjustment failed for lines " + firstLine + "-" + (firstLine + chunk.size() - 1), e);
+            if (plan != null) {
+                plan.failTo(result, e.getMessage());
+            } else {
+                StockAdjustmentPlan.failAll(firstLine, chunk, result, e.getMessage());
+            }
+        }
+    }
+
+    // SELECT id, isbn, stock ... FOR UPDATE，键为小写 ISBN；同一本书只对应一个 CurrentStock
+    private Map<String, StockAdjustmentPlan.CurrentStock> lockStockByIsbn(Connection conn, List<StockAdjustment> chunk)
+            throws SQLException {
+        List<String> isbns = new ArrayList<>(chunk.size());
+        for (StockAdjustment adjustment : chunk) {
+            if (adjustment != null && adjustment.getIsbn() != null && !adjustment.getIsbn().isEmpty()) {
+                isbns.add(adjustment.getIsbn());
+            }
+        }
+        Map<String, StockAdjustmentPlan.CurrentStock> rows = new HashMap<>();
+        if (isbns.isEmpty()) {
+            return rows;
+        }
+        int placeholders = paddedSize(isbns.size(), batchSize);
+        String sql = "SELECT id, isbn, stock FROM books WHERE isbn IN ("
+            + String.join(", ", Collections.nCopies(placeholders, "?")) + ") FOR UPDATE";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < placeholders; i++) {
+                stmt.setString(i + 1, isbns.get(Math.min(i, isbns.size() - 1)));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.put(isbnKey(rs.getString(2)), new StockAdjustmentPlan.CurrentStock(rs.getLong(1), rs.getInt(3)));
+                }
+            }
+        }
+        return rows;
+    }
+
+    // 图书中的时间为 yyyy-MM-dd HH:mm:ss 格式字符串，格式不正确时抛出 IllegalArgumentException
+    private static Timestamp toTimestamp(String time) {
+        return time == null || time.trim().isEmpty() ? null : Timestamp.valueOf(time.trim());
+    }
+
+    static void bindUpsertInsert(PreparedStatement stmt, Book book) throws SQLException {
+        bindInsert(stmt, book);
+        stmt.setTimestamp(6 + BookTypeColumns.ALL_ATTRIBUTE_COLUMNS.size(), toTimestamp(book.getCreateTime()));
+    }
+
+    // 列顺序与 buildUpsertUpdateSql 一致：title, author, type, stock, 类型特有列, id[, 传入的 update_time × 2]
+    static void bindUpsertUpdate(PreparedStatement stmt, Book book, long id, ConflictPolicy policy) throws SQLException {
+        stmt.setString(1, book.getTitle());
+        stmt.setString(2, book.getAuthor());
+        stmt.setString(3, book.getType());
+        stmt.setInt(4, book.getStock());
+        int index = 5;
+        for (BookTypeColumns typeColumns : BookTypeColumns.values()) {
+            for (String value : typeColumns.getAttributes(book)) {
+                if (value != null) {
+                    stmt.setString(index++, value);
+                } else {
+                    stmt.setNull(index++, Types.VARCHAR);
+                }
+            }
+        }
+        stmt.setLong(index++, id);
+        if (policy == ConflictPolicy.NEWER_WINS) {
+            Timestamp incoming = toTimestamp(book.getUpdateTime());
+            stmt.setTimestamp(index++, incoming);
+            stmt.setTimestamp(index, incoming);
+        }
+    }
+
+    private static final class ExistingRow {
+        private final Long id;
+        private final Timestamp updateTime;
+
+        private ExistingRow(Long id, Timestamp updateTime) {
+            this.id = id;
+            this.updateTime = updateTime;
+        }
+    }
+
+    // 绑定通用列以及全部类型特有列（非本类型的列写入 NULL）
+    static void bindInsert(PreparedStatement stmt, Book book) throws SQLException {
+        stmt.setString(1, book.getIsbn());
+        stmt.setString(2, book.getTitle());
+        stmt.setString(3, book.getAuthor());
+        stmt.setString(4, book.getType());
+        stmt.setInt(5, book.getStock());
+
+        int index = 6;
+        for (BookTypeColumns typeColumns : BookTypeColumns.values()) {
+            String[] values = typeColumns.getAttributes(book);
+            for (String value : values) {
+                if (value != null) {
+                    stmt.setString(index++, value);
+                } else {
+                    stmt.setNull(index++, Types.VARCHAR);
+                }
+            }
+        }
+    }
+
+    // CASE type WHEN 'Computer' THEN programming_language WHEN ... END AS attr1, ...
+    private static String buildAttributeProjection() {
+        List<String> attributes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            StringBuilder sql = new StringBuilder("CASE type");
+            for (BookTypeColumns typeColumns : BookTypeColumns.values()) {
+                sql.append(" WHEN '").append(typeColumns.getType()).append("' THEN ")
+                    .append(typeColumns.getColumns()[i]);
+            }
+            attributes.add(sql.append(" END AS attr").append(i + 1).toString());
+        }
+        return String.join(", ", attributes);
+    }
+
+    private static Map<BookTypeColumns, String> buildTypeProjections() {
+        Map<BookTypeColumns, String> projections = new EnumMap<>(BookTypeColumns.class);
+        for (BookTypeColumns typeColumns : BookTypeColumns.values()) {
+            String[] columns = typeColumns.getColumns();
+            projections.put(typeColumns, "SELECT " + COMMON_COLUMNS + ", " + columns[0] + " AS attr1, "
+                + columns[1] + " AS attr2, " + columns[2] + " AS attr3 FROM books");
+        }
+        return projections;
+    }
+
+    /**
+     * 按类型筛选时直接选取该类型的 3 个特有列；未指定或未知类型时使用 CASE 投影
+     */
+    static String selectFor(String type) {
+        if (type == null || type.trim().isEmpty()) {
+            return SELECT_BOOK;
+        }
+        for (Map.Entry<BookTypeColumns, String> entry : SELECT_BY_TYPE.entrySet()) {
+            if (entry.getKey().getType().equalsIgnoreCase(type.trim())) {
+                return entry.getValue();
+            }
+        }
+        return SELECT_BOOK;
+    }
+
+    // 恢复备份时保留原有的 create_time，未设置时取当前时间；update_time 使用列默认值（当前时间）
+    private static String buildUpsertInsertSql() {
+        List<String> columns = new ArrayList<>(List.of("isbn", "title", "author", "type", "stock"));
+        columns.addAll(BookTypeColumns.ALL_ATTRIBUTE_COLUMNS);
+        List<String> values = new ArrayList<>(Collections.nCopies(columns.size(), "?"));
+        columns.add("create_time");
+        values.add("COALESCE(?, CURRENT_TIMESTAMP)");
+        return "INSERT INTO books (" + String.join(", ", columns) + ") VALUES (" + String.join(", ", values) + ")";
+    }
+
+    // 按 id 覆盖除 isbn、create_time 外的全部列并把 update_time 设为当前时间；NEWER_WINS 只在传入时间严格更新时匹配
+    private static Map<ConflictPolicy, String> buildUpsertUpdateSql() {
+        List<String> assignments = new ArrayList<>();
+        for (String column : List.of("title", "author", "type", "stock")) {
+            assignments.add(column + " = ?");
+        }
+        for (String column : BookTypeColumns.ALL_ATTRIBUTE_COLUMNS) {
+            assignments.add(column + " = ?");
+        }
+        assignments.add("update_time = CURRENT_TIMESTAMP");
+        String update = "UPDATE books SET " + String.join(", ", assignments) + " WHERE id = ?";
+
+        Map<ConflictPolicy, String> sql = new EnumMap<>(ConflictPolicy.class);
+        sql.put(ConflictPolicy.OVERWRITE, update);
+        sql.put(ConflictPolicy.NEWER_WINS, update + " AND (? IS NULL OR update_time IS NULL OR ? > update_time)");
+        return sql;
+    }
+
+    private static String buildInsertSql() {
+        List<String> columns = new ArrayList<>(List.of("isbn", "title", "author", "type", "stock"));
+        columns.addAll(BookTypeColumns.ALL_ATTRIBUTE_COLUMNS);
+        return "INSERT INTO books (" + String.join(", ", columns) + ") VALUES ("
+            + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+    }
+
     @Override
     public Optional<Book> findById(Long id) {
-        String sql = "SELECT * FROM books WHERE id = ?";
+        String sql = SELECT_BOOK + " WHERE id = ?";
         Connection conn = null;
         try {
             conn = DBHandler.getConnection();
@@ -85,7 +690,7 @@ public class BookRepositoryImpl implements BookRepository {
                 stmt.setLong(1, id);
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
-                        Book book = createBookFromResultSet(rs);
+                        Book book = new BookRowMapper().mapRow(rs);
                         conn.commit();  // 提交事务
                         return Optional.of(book);
                     }
@@ -109,7 +714,7 @@ public class BookRepositoryImpl implements BookRepository {
 
     @Override
     public List<Book> findAll() {
-        String sql = "SELECT * FROM books";
+        String sql = SELECT_BOOK;
         List<Book> books = new ArrayList<>();
         Connection conn = null;
         
@@ -118,8 +723,9 @@ public class BookRepositoryImpl implements BookRepository {
             try (Statement stmt = conn.createStatement();
                  ResultSet rs = stmt.executeQuery(sql)) {
                 
+                BookRowMapper mapper = new BookRowMapper();
                 while (rs.next()) {
-                    books.add(mapResultSetToBook(rs));
+                    books.add(mapper.mapRow(rs));
                 }
                 conn.commit();  // 提交事务
                 logger.debug("Found " + books.size() + " books");
@@ -140,9 +746,43 @@ public class BookRepositoryImpl implements BookRepository {
         }
     }
 
+    @Override
+    public Stream<Book> streamAll() {
+        return stream(SELECT_BOOK + " ORDER BY id", new BookRowMapper());
+    }
+
+    /**
+     * 以只读游标方式执行查询，返回的流必须由调用方关闭
+     */
+    <T> Stream<T> stream(String sql, RowMapper<T> mapper, Object... params) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        try {
+            conn = DBHandler.getConnection();
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(streamFetchSize);
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+        } catch (SQLException e) {
+            if (stmt != null) {
+                try {
+                    stmt.close();
+                } catch (SQLException ex) {
+                    logger.error("Error closing statement", ex);
+                }
+            }
+            DBHandler.rollback(conn);
+            DBHandler.closeConnection(conn);
+            logger.error("Error opening book stream", e);
+            throw new RuntimeException("Error opening book stream", e);
+        }
+        return ResultSetStream.open(conn, stmt, mapper);
+    }
+
     @Override
     public List<Book> findByType(String type) {
-        String sql = "SELECT * FROM books WHERE type = ?";
+        String sql = selectFor(type) + " WHERE type = ?";
         List<Book> books = new ArrayList<>();
         Connection conn = null;
         
@@ -152,8 +792,9 @@ public class BookRepositoryImpl implements BookRepository {
                 stmt.setString(1, type);
                 ResultSet rs = stmt.executeQuery();
                 
+                BookRowMapper mapper = new BookRowMapper();
                 while (rs.next()) {
-                    books.add(mapResultSetToBook(rs));
+                    books.add(mapper.mapRow(rs));
                 }
                 conn.commit();  // 提交事务
             }
@@ -175,7 +816,7 @@ public class BookRepositoryImpl implements BookRepository {
 
     @Override
     public Optional<Book> findByIsbn(String isbn) {
-        String sql = "SELECT * FROM books WHERE isbn = ?";
+        String sql = SELECT_BOOK + " WHERE isbn = ?";
         Connection conn = null;
         try {
             conn = DBHandler.getConnection();
@@ -184,7 +825,7 @@ public class BookRepositoryImpl implements BookRepository {
                 ResultSet rs = stmt.executeQuery();
                 
                 if (rs.next()) {
-                    Book book = mapResultSetToBook(rs);
+                    Book book = new BookRowMapper().mapRow(rs);
                     conn.commit();  // 提交事务
                     return Optional.of(book);
                 }
@@ -205,6 +846,73 @@ public class BookRepositoryImpl implements BookRepository {
         return Optional.empty();
     }
 
+    @Override
+    public MultiGetResult<Long> findByIds(Collection<Long> ids) {
+        List<Long> keys = MultiGetResult.distinctKeys(ids);
+        Map<Long, Book> byId = new HashMap<>();
+        for (Book book : queryIn("id", keys)) {
+            byId.put(book.getId(), book);
+        }
+        return MultiGetResult.of(keys, byId::get);
+    }
+
+    @Override
+    public MultiGetResult<String> findByIsbns(Collection<String> isbns) {
+        List<String> keys = MultiGetResult.distinctKeys(isbns);
+        // isbn 列的排序规则不区分大小写，按小写归一后再与输入键对应
+        Map<String, Book> byIsbn = new HashMap<>();
+        for (Book book : queryIn("isbn", keys)) {
+            byIsbn.put(book.getIsbn().toLowerCase(Locale.ROOT), book);
+        }
+        return MultiGetResult.of(keys, isbn -> byIsbn.get(isbn.toLowerCase(Locale.ROOT)));
+    }
+
+    // 键按 multiGetChunkSize 分块执行 IN 查询，所有分块共用一个连接和一个事务
+    private List<Book> queryIn(String column, List<?> keys) {
+        List<Book> books = new ArrayList<>();
+        if (keys.isEmpty()) {
+            return books;
+        }
+        Connection conn = null;
+        try {
+            conn = DBHandler.getConnection();
+            for (int start = 0; start < keys.size(); start += multiGetChunkSize) {
+                List<?> chunk = keys.subList(start, Math.min(keys.size(), start + multiGetChunkSize));
+                // 占位符个数补齐到 2 的幂（不超过分块大小），重复最后一个键，
+                // 使预编译语句缓存中的 SQL 形态数量有界
+                int placeholders = paddedSize(chunk.size(), multiGetChunkSize);
+                String sql = SELECT_BOOK + " WHERE " + column + " IN ("
+                    + String.join(", ", Collections.nCopies(placeholders, "?")) + ")";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < placeholders; i++) {
+                        stmt.setObject(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        BookRowMapper mapper = new BookRowMapper();
+                        while (rs.next()) {
+                            books.add(mapper.mapRow(rs));
+                        }
+                    }
+                }
+            }
+            conn.commit();  // 提交事务
+            logger.debug("Multi-get by " + column + " resolved " + books.size() + " of " + keys.size() + " keys");
+            return books;
+        } catch (SQLException e) {
+            DBHandler.rollback(conn);
+            logger.error("Error finding books by " + column, e);
+            throw new RuntimeException("查找图书失败，请稍后重试", e);
+        } finally {
+            DBHandler.closeConnection(conn);
+        }
+    }
+
+    // 补齐到 2 的幂，但不超过 max（且不小于 size）
+    private static int paddedSize(int size, int max) {
+        int padded = Math.min(max, Integer.highestOneBit(size - 1) << 1);
+        return Math.max(padded, size);
+    }
+
     @Override
     public void updateStock(Long id, int newStock) {
         String sql = "UPDATE books SET stock = ? WHERE id = ?";
@@ -230,13 +938,103 @@ public class BookRepositoryImpl implements BookRepository {
         }
     }
 
+    @Override
+    public int adjustStock(Long id, int delta) {
+        Connection conn = null;
+        try {
+            conn = DBHandler.getConnection();
+            try (PreparedStatement stmt = conn.prepareStatement(ADJUST_STOCK_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                Integer newStock = applyAdjustment(stmt, id, delta);
+                if (newStock == null) {
+                    // 未更新任何行：只在失败路径上查询一次，区分图书不存在和库存不足
+                    Integer available = findStock(conn, id);
+                    conn.commit();
+                    if (available == null) {
+                        throw new RuntimeException("No book found with id: " + id);
+                    }
+                    throw new InsufficientStockException(id, delta, available);
+                }
+                conn.commit();  // 提交事务
+                logger.debug("Adjusted stock for book id: " + id + " by " + delta + " to " + newStock);
+                return newStock;
+            }
+        } catch (SQLException e) {
+            DBHandler.rollback(conn);
+            logger.error("Error adjusting book stock", e);
+            throw new RuntimeException("Error adjusting book stock", e);
+        } finally {
+            DBHandler.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Integer> adjustStockAsync(Long id, int delta) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID cannot be null");
+        }
+        GroupCommitStockWriter writer = getStockWriter();
+        if (writer == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Stock group commit is shut down"));
+        }
+        return writer.submit(id, delta);
+    }
+
+    // 首次使用时才启动组提交线程；关闭后不再重新创建，已关闭的写入器会拒绝新的请求
+    private synchronized GroupCommitStockWriter getStockWriter() {
+        if (stockWriter == null && !stockWriterShutDown) {
+            stockWriter = new GroupCommitStockWriter(groupCommitMaxBatch, groupCommitWindowMillis);
+        }
+        return stockWriter;
+    }
+
+    /**
+     * 刷新并停止库存组提交线程
+     */
+    public synchronized void shutdown() {
+        stockWriterShutDown = true;
+        if (stockWriter != null) {
+            stockWriter.close();
+        }
+    }
+
+    /**
+     * 在已准备好的 ADJUST_STOCK_SQL 语句上执行一次相对调整
+     * 返回调整后的库存；图书不存在或库存不足（未更新任何行）时返回 null
+     */
+    static Integer applyAdjustment(PreparedStatement stmt, long id, int delta) throws SQLException {
+        stmt.setInt(1, delta);
+        stmt.setLong(2, id);
+        stmt.setInt(3, delta);
+        if (stmt.executeUpdate() == 0) {
+            return null;
+        }
+        // LAST_INSERT_ID(expr) 使新库存随 OK 包作为生成键返回，无需再查询；
+        // 驱动在该值为 0 时不返回生成键，此时新库存即为 0
+        try (ResultSet keys = stmt.getGeneratedKeys()) {
+            return keys.next() ? keys.getInt(1) : 0;
+        }
+    }
+
+    static Integer findStock(Connection conn, long id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT stock FROM books WHERE id = ?")) {
+            stmt.setLong(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
     @Override
     public void delete(Long id) {
         String sql = "DELETE FROM books WHERE id = ?";
         Connection conn = null;
         try {
             conn = DBHandler.getConnection();
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            // 删除记录与删除操作在同一事务中写入，变更订阅据此感知删除
+            try (PreparedStatement tombstone = conn.prepareStatement(TOMBSTONE_SQL);
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                tombstone.setLong(1, id);
+                tombstone.executeUpdate();
                 stmt.setLong(1, id);
                 int rowsAffected = stmt.executeUpdate();
                 if (rowsAffected == 0) {
@@ -288,9 +1086,80 @@ public class BookRepositoryImpl implements BookRepository {
         }
     }
 
+    @Override
+    public long countAll() {
+        Connection conn = null;
+        try {
+            conn = DBHandler.getConnection();
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM books");
+                 ResultSet rs = stmt.executeQuery()) {
+                long count = rs.next() ? rs.getLong(1) : 0;
+                conn.commit();  // 提交事务
+                return count;
+            }
+        } catch (SQLException e) {
+            DBHandler.rollback(conn);
+            logger.error("Error counting books", e);
+            throw new RuntimeException("Error counting books", e);
+        } finally {
+            DBHandler.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public CatalogStats getCatalogStats() {
+        CatalogStats stats = new CatalogStats();
+        Connection conn = null;
+        try {
+            conn = DBHandler.getConnection();
+            try (PreparedStatement stmt = conn.prepareStatement(CATALOG_STATS_SQL);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    stats.add(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getLong(4));
+                }
+                conn.commit();  // 提交事务
+            }
+        } catch (SQLException e) {
+            DBHandler.rollback(conn);
+            logger.error("Error reading catalog statistics", e);
+            throw new RuntimeException("Error reading catalog statistics", e);
+        } finally {
+            DBHandler.closeConnection(conn);
+        }
+        return stats;
+    }
+
+    /**
+     * 单一类型：在 idx_type_stock (type, stock) 上做范围扫描，索引顺序即结果顺序，只读 limit 行；
+     * 跨类型：各类型分别取前 limit 行，UNION ALL 一次往返取回，再用有界堆合并
+     */
+    @Override
+    public List<Book> findLowStock(int threshold, String type, int limit) {
+        List<Object> params = new ArrayList<>();
+        if (type != null && !type.trim().isEmpty()) {
+            params.add(type.trim());
+            params.add(threshold);
+            params.add(limit);
+            return queryForList(selectFor(type) + LOW_STOCK_CONDITION, params);
+        }
+
+        StringJoiner union = new StringJoiner(" UNION ALL ");
+        for (BookTypeColumns columns : BookTypeColumns.values()) {
+            union.add("(" + SELECT_BOOK + LOW_STOCK_CONDITION + ")");
+            params.add(columns.getType());
+            params.add(threshold);
+            params.add(limit);
+        }
+        LowStockRanking<Book> ranking = new LowStockRanking<>(limit);
+        for (Book book : queryForList(union.toString(), params)) {
+            ranking.offer(book.getStock(), book.getId(), book);
+        }
+        return ranking.result();
+    }
+
     @Override
     public List<Book> findByTitle(String title) {
-        String sql = "SELECT * FROM books WHERE title LIKE ?";
+        String sql = SELECT_BOOK + " WHERE title LIKE ?";
         List<Book> books = new ArrayList<>();
         Connection conn = null;
         
@@ -300,8 +1169,9 @@ public class BookRepositoryImpl implements BookRepository {
                 stmt.setString(1, "%" + title + "%");
                 ResultSet rs = stmt.executeQuery();
                 
+                BookRowMapper mapper = new BookRowMapper();
                 while (rs.next()) {
-                    books.add(createBookFromResultSet(rs));
+                    books.add(mapper.mapRow(rs));
                 }
                 conn.commit();  // 提交事务
                 logger.debug("Found " + books.size() + " books with title containing: " + title);
@@ -325,7 +1195,7 @@ public class BookRepositoryImpl implements BookRepository {
     @Override
     public List<Book> searchBooks(String keyword, String type) {
         List<Book> books = new ArrayList<>();
-        StringBuilder sql = new StringBuilder("SELECT * FROM books WHERE 1=1");
+        StringBuilder sql = new StringBuilder(selectFor(type) + " WHERE 1=1");
         List<Object> params = new ArrayList<>();
         Connection conn = null;
 
@@ -351,8 +1221,9 @@ public class BookRepositoryImpl implements BookRepository {
                 }
 
                 ResultSet rs = stmt.executeQuery();
+                BookRowMapper mapper = new BookRowMapper();
                 while (rs.next()) {
-                    books.add(mapResultSetToBook(rs));
+                    books.add(mapper.mapRow(rs));
                 }
                 
                 conn.commit();  // 提交事务
@@ -374,181 +1245,152 @@ public class BookRepositoryImpl implements BookRepository {
         }
     }
 
-    private Book mapResultSetToBook(ResultSet rs) throws SQLException {
-        String type = rs.getString("type");
-        Book book = switch (type) {
-            case "Computer" -> new ComputerBook();
-            case "Literature" -> new LiteratureBook();
-            case "Science" -> new ScienceBook();
-            case "Art" -> new ArtBook();
-            case "History" -> new HistoryBook();
-            case "Philosophy" -> new PhilosophyBook();
-            case "Economics" -> new EconomicsBook();
-            case "Medicine" -> new MedicineBook();
-            case "Education" -> new EducationBook();
-            case "Law" -> new LawBook();
-            default -> throw new IllegalArgumentException("Unknown book type: " + type);
-        };
+    @Override
+    public Page<Book> findAllPage(String pageToken, int pageSize) {
+        return queryPage(SELECT_BOOK, "1=1", List.of(), pageToken, pageSize);
+    }
 
-        // 设置通用属性
-        book.setId(rs.getLong("id"));
-        book.setIsbn(rs.getString("isbn"));
-        book.setTitle(rs.getString("title"));
-        book.setAuthor(rs.getString("author"));
-        book.setType(type);
-        book.setStock(rs.getInt("stock"));
-
-        // 根据类型设置特定属性
-        switch (type) {
-            case "Computer" -> {
-                ComputerBook cb = (ComputerBook) book;
-                cb.setProgrammingLanguage(rs.getString("programming_language"));
-                cb.setFramework(rs.getString("framework"));
-                cb.setDifficulty(rs.getString("difficulty"));
-            }
-            case "Literature" -> {
-                LiteratureBook lb = (LiteratureBook) book;
-                lb.setGenre(rs.getString("genre"));
-                lb.setEra(rs.getString("era"));
-                lb.setLanguage(rs.getString("language"));
-            }
-            case "Science" -> {
-                ScienceBook sb = (ScienceBook) book;
-                sb.setSubjectArea(rs.getString("subject_area"));
-                sb.setResearchField(rs.getString("research_field"));
-                sb.setAcademicLevel(rs.getString("academic_level"));
-            }
-            case "Art" -> {
-                ArtBook ab = (ArtBook) book;
-                ab.setArtForm(rs.getString("art_form"));
-                ab.setMedium(rs.getString("medium"));
-                ab.setStyle(rs.getString("style"));
-            }
-            case "History" -> {
-                HistoryBook hb = (HistoryBook) book;
-                hb.setTimePeriod(rs.getString("time_period"));
-                hb.setRegion(rs.getString("region"));
-                hb.setHistoricalFigures(rs.getString("historical_figures"));
-            }
-            case "Philosophy" -> {
-                PhilosophyBook pb = (PhilosophyBook) book;
-                pb.setPhilosophicalSchool(rs.getString("philosophical_school"));
-                pb.setKeyConcepts(rs.getString("key_concepts"));
-                pb.setThinkers(rs.getString("thinkers"));
-            }
-            case "Economics" -> {
-                EconomicsBook eb = (EconomicsBook) book;
-                eb.setEconomicSchool(rs.getString("economic_school"));
-                eb.setMarketType(rs.getString("market_type"));
-                eb.setApplicationField(rs.getString("application_field"));
-            }
-            case "Medicine" -> {
-                MedicineBook mb = (MedicineBook) book;
-                mb.setMedicalSpecialty(rs.getString("medical_specialty"));
-                mb.setClinicalFocus(rs.getString("clinical_focus"));
-                mb.setPracticeArea(rs.getString("practice_area"));
-            }
-            case "Education" -> {
-                EducationBook eb = (EducationBook) book;
-                eb.setEducationLevel(rs.getString("education_level"));
-                eb.setSubject(rs.getString("subject"));
-                eb.setTeachingMethod(rs.getString("teaching_method"));
-            }
-            case "Law" -> {
-                LawBook lb = (LawBook) book;
-                lb.setLegalSystem(rs.getString("legal_system"));
-                lb.setJurisdiction(rs.getString("jurisdiction"));
-                lb.setLegalField(rs.getString("legal_field"));
-            }
-        }
-        return book;
-    }
-
-    private Book createBookFromResultSet(ResultSet rs) throws SQLException {
-        String type = rs.getString("type");
-        Book book = switch (type) {
-            case "Computer" -> {
-                ComputerBook computerBook = new ComputerBook();
-                computerBook.setProgrammingLanguage(rs.getString("programming_language"));
-                computerBook.setFramework(rs.getString("framework"));
-                computerBook.setDifficulty(rs.getString("difficulty"));
-                yield computerBook;
-            }
-            case "Literature" -> {
-                LiteratureBook literatureBook = new LiteratureBook();
-                literatureBook.setGenre(rs.getString("genre"));
-                literatureBook.setEra(rs.getString("era"));
-                literatureBook.setLanguage(rs.getString("language"));
-                yield literatureBook;
-            }
-            case "Science" -> {
-                Book scienceBook = new Book() {
-                    @Override
-                    public String displayInfo() {
-                        try {
-                            return String.format("""
-                                科学图书：《%s》
-                                作者：%s
-                                研究领域：%s
-                                学术水平：%s
-                                库存：%d
-                                """,
-                                getTitle(), getAuthor(),
-                                rs.getString("research_field"),
-                                rs.getString("academic_level"),
-                                getStock());
-                        } catch (SQLException e) {
-                            logger.error("Error displaying science book info", e);
-                            return "Error displaying book info";
-                        }
-                    }
+    @Override
+    public Page<Book> findByTypePage(String type, String pageToken, int pageSize) {
+        return queryPage(selectFor(type), "type = ?", List.of(type), pageToken, pageSize);
+    }
 
-                    @Override
-                    public void validate() {
-                        validateCommon();
-                    }
+    @Override
+    public Page<Book> searchBooksPage(String keyword, String type, String pageToken, int pageSize) {
+        StringBuilder where = new StringBuilder("1=1");
+        List<Object> params = new ArrayList<>();
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            where.append(" AND (title LIKE ? OR author LIKE ?)");
+            params.add("%" + keyword + "%");
+            params.add("%" + keyword + "%");
+        }
+        if (type != null && !type.trim().isEmpty()) {
+            where.append(" AND type = ?");
+            params.add(type);
+        }
+        return queryPage(selectFor(type), where.toString(), params, pageToken, pageSize);
+    }
 
-                    @Override
-                    public String getCategory() {
-                        return "Science";
+    // 键集分页：WHERE ... AND id > lastId ORDER BY id LIMIT pageSize + 1，多取的一条用于判断是否有下一页
+    private Page<Book> queryPage(String select, String where, List<Object> params, String pageToken, int pageSize) {
+        Page.checkPageSize(pageSize);
+        long afterId = Page.decodeToken(pageToken);
+        String sql = select + " WHERE " + where + " AND id > ? ORDER BY id LIMIT ?";
+        List<Object> allParams = new ArrayList<>(params);
+        allParams.add(afterId);
+        allParams.add(pageSize + 1);
+        List<Book> fetched = queryForList(sql, allParams);
+        return Page.of(fetched, pageSize, Book::getId);
+    }
+
+    @Override
+    public ChangeSet findChangesSince(ChangeWatermark since, int limit, int lagSeconds) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        ChangeWatermark from = since != null ? since : ChangeWatermark.INITIAL;
+        Timestamp time = Timestamp.valueOf(from.getTime());
+        List<BookChange> candidates = new ArrayList<>();
+        Connection conn = null;
+        try {
+            conn = DBHandler.getConnection();
+            // 两路各多取一行：合并后超过 limit 即说明还有更多变更
+            try (PreparedStatement stmt = conn.prepareStatement(CHANGED_BOOKS_SQL)) {
+                bindChangeQuery(stmt, time, from.getId(), lagSeconds, limit + 1);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    BookRowMapper mapper = new BookRowMapper();
+                    while (rs.next()) {
+                        candidates.add(BookChange.upsert(mapper.mapRow(rs)));
                     }
-                };
-                yield scienceBook;
+                }
             }
-            // ... 其他类型的图书
-            default -> new Book() {
-                @Override
-                public String displayInfo() {
-                    return String.format("""
-                        图书：《%s》
-                        作者：%s
-                        类型：%s
-                        库存：%d
-                        """,
-                        getTitle(), getAuthor(), type, getStock());
+            try (PreparedStatement stmt = conn.prepareStatement(DELETED_BOOKS_SQL)) {
+                // 水位停在某本书的修改上时，同一秒内该书的删除仍在水位之后：book_id > id - 1 即 book_id >= id
+                long deletedAfterId = from.getType() == BookChange.Type.UPSERT ? from.getId() - 1 : from.getId();
+                bindChangeQuery(stmt, time, deletedAfterId, lagSeconds, limit + 1);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        candidates.add(BookChange.delete(rs.getLong(1), rs.getString(2),
+                            BookRowMapper.formatTime(rs.getTimestamp(3))));
+                    }
                 }
+            }
+            conn.commit();  // 提交事务
+        } catch (SQLException e) {
+            DBHandler.rollback(conn);
+            logger.error("Error reading book changes since " + from, e);
+            throw new RuntimeException("读取图书变更失败，请稍后重试", e);
+        } finally {
+            DBHandler.closeConnection(conn);
+        }
+        return ChangeSet.of(candidates, from, limit);
+    }
 
-                @Override
-                public void validate() {
-                    validateCommon();
-                }
+    // book_tombstones 由所有进程共享，其他进程的订阅水位未知，只按保留期清理
+    @Override
+    public int purgeTombstones(String before, ChangeWatermark oldest) {
+        if (before == null) {
+            return 0;
+        }
+        int purged = 0;
+        Connection conn = null;
+        try {
+            conn = DBHandler.getConnection();
+            try (PreparedStatement stmt = conn.prepareStatement(PURGE_TOMBSTONES_SQL)) {
+                stmt.setTimestamp(1, Timestamp.valueOf(before));
+                stmt.setInt(2, batchSize);
+                int deleted;
+                do {
+                    deleted = stmt.executeUpdate();
+                    conn.commit();
+                    purged += deleted;
+                } while (deleted == batchSize);
+            }
+        } catch (SQLException e) {
+            DBHandler.rollback(conn);
+            logger.error("Error purging book tombstones before " + before, e);
+            throw new RuntimeException("Error purging book tombstones", e);
+        } finally {
+            DBHandler.closeConnection(conn);
+        }
+        logger.debug("Purged " + purged + " book tombstones before " + before);
+        return purged;
+    }
 
-                @Override
-                public String getCategory() {
-                    return type;
+    private static void bindChangeQuery(PreparedStatement stmt, Timestamp time, long id, int lagSeconds, int limit)
+            throws SQLException {
+        stmt.setTimestamp(1, time);
+        stmt.setTimestamp(2, time);
+        stmt.setLong(3, id);
+        stmt.setInt(4, Math.max(0, lagSeconds));
+        stmt.setInt(5, limit);
+    }
+
+    private List<Book> queryForList(String sql, List<Object> params) {
+        List<Book> books = new ArrayList<>();
+        Connection conn = null;
+        try {
+            conn = DBHandler.getConnection();
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < params.size(); i++) {
+                    stmt.setObject(i + 1, params.get(i));
                 }
-            };
-        };
-        
-        // 设置通用属性
-        book.setId(rs.getLong("id"));
-        book.setIsbn(rs.getString("isbn"));
-        book.setTitle(rs.getString("title"));
-        book.setAuthor(rs.getString("author"));
-        book.setType(type);
-        book.setStock(rs.getInt("stock"));
-        
-        return book;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    BookRowMapper mapper = new BookRowMapper();
+                    while (rs.next()) {
+                        books.add(mapper.mapRow(rs));
+                    }
+                }
+                conn.commit();  // 提交事务
+                return books;
+            }
+        } catch (SQLException e) {
+            DBHandler.rollback(conn);
+            logger.error("Error querying books: " + sql, e);
+            throw new RuntimeException("查找图书失败，请稍后重试", e);
+        } finally {
+            DBHandler.closeConnection(conn);
+        }
     }
 
     // 注册关闭钩子
@@ -0,0 +1,151 @@
+package com.library.repository.impl;
+
+import com.library.domain.book.Book;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 图书行映射器
+ * 作用：
+ * - 每个结果集只解析一次 ResultSetMetaData，得到各列的下标，之后按下标取值
+ * - 同一列布局（相同的列标签序列）的解析结果全局缓存，多次执行同一查询不再重复解析
+ * - 按 type 列的原始值缓存每种类型的映射器，每行只做一次 HashMap 查找即可创建对应的图书子类
+ * 说明：支持 attr1..attr3 投影列，也支持直接选取各类型特有列的结果集；
+ * 实例与结果集绑定，非线程安全，每次查询新建一个
+ */
+final class BookRowMapper implements RowMapper<Book> {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Map<String, Layout> LAYOUTS = new ConcurrentHashMap<>();
+
+    private ResultSet boundTo;
+    private Layout layout;
+
+    @Override
+    public Book mapRow(ResultSet rs) throws SQLException {
+        if (rs != boundTo) {
+            layout = layoutOf(rs.getMetaData());
+            boundTo = rs;
+        }
+        return layout.map(rs);
+    }
+
+    private static Layout layoutOf(ResultSetMetaData metaData) throws SQLException {
+        int count = metaData.getColumnCount();
+        StringBuilder key = new StringBuilder();
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 1; i <= count; i++) {
+            String label = metaData.getColumnLabel(i).toLowerCase(Locale.ROOT);
+            key.append(label).append(',');
+            indexes.putIfAbsent(label, i);
+        }
+        return LAYOUTS.computeIfAbsent(key.toString(), k -> new Layout(indexes));
+    }
+
+    static String formatTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime().format(TIME_FORMAT);
+    }
+
+    /**
+     * 一种列布局：通用列下标 + 按类型值缓存的类型映射器
+     */
+    private static final class Layout {
+        private final Map<String, Integer> indexes;
+        private final int id;
+        private final int isbn;
+        private final int title;
+        private final int author;
+        private final int type;
+        private final int stock;
+        private final int createTime;
+        private final int updateTime;
+        private final Map<String, TypeMapper> byType = new ConcurrentHashMap<>();
+
+        private Layout(Map<String, Integer> indexes) {
+            this.indexes = indexes;
+            this.id = required("id");
+            this.isbn = required("isbn");
+            this.title = required("title");
+            this.author = required("author");
+            this.type = required("type");
+            this.stock = required("stock");
+            this.createTime = optional("create_time");
+            this.updateTime = optional("update_time");
+        }
+
+        private Book map(ResultSet rs) throws SQLException {
+            String typeValue = rs.getString(type);
+            if (typeValue == null) {
+                throw new IllegalArgumentException("Unknown book type: null");
+            }
+            TypeMapper mapper = byType.get(typeValue);
+            if (mapper == null) {
+                mapper = byType.computeIfAbsent(typeValue, this::resolve);
+            }
+            return mapper.map(rs, this);
+        }
+
+        // 优先使用 attr1..attr3 投影列，否则直接使用该类型自己的三个特有列
+        private TypeMapper resolve(String typeValue) {
+            BookTypeColumns typeColumns = BookTypeColumns.of(typeValue);
+            int[] attributes = new int[3];
+            String[] columns = typeColumns.getColumns();
+            for (int i = 0; i < attributes.length; i++) {
+                int projected = optional("attr" + (i + 1));
+                attributes[i] = projected > 0 ? projected : optional(columns[i]);
+            }
+            return new TypeMapper(typeColumns, attributes);
+        }
+
+        private int required(String column) {
+            Integer index = indexes.get(column);
+            if (index == null) {
+                throw new IllegalArgumentException("Result set is missing column: " + column);
+            }
+            return index;
+        }
+
+        private int optional(String column) {
+            return indexes.getOrDefault(column, 0);
+        }
+    }
+
+    private static final class TypeMapper {
+        private final BookTypeColumns typeColumns;
+        private final int[] attributes;
+
+        private TypeMapper(BookTypeColumns typeColumns, int[] attributes) {
+            this.typeColumns = typeColumns;
+            this.attributes = attributes;
+        }
+
+        private Book map(ResultSet rs, Layout layout) throws SQLException {
+            Book book = typeColumns.newBook();
+            book.setId(rs.getLong(layout.id));
+            book.setIsbn(rs.getString(layout.isbn));
+            book.setTitle(rs.getString(layout.title));
+            book.setAuthor(rs.getString(layout.author));
+            book.setType(typeColumns.getType());
+            book.setStock(rs.getInt(layout.stock));
+            if (layout.createTime > 0) {
+                book.setCreateTime(formatTime(rs.getTimestamp(layout.createTime)));
+            }
+            if (layout.updateTime > 0) {
+                book.setUpdateTime(formatTime(rs.getTimestamp(layout.updateTime)));
+            }
+            typeColumns.writeAttributes(book, attribute(rs, 0), attribute(rs, 1), attribute(rs, 2));
+            return book;
+        }
+
+        private String attribute(ResultSet rs, int i) throws SQLException {
+            return attributes[i] > 0 ? rs.getString(attributes[i]) : null;
+        }
+    }
+}
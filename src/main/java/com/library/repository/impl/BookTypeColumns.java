@@ -0,0 +1,296 @@
+package com.library.repository.impl;
+
+import com.library.domain.book.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 图书类型与 books 表特有列的映射
+ * 作用：集中维护每种图书类型对应的三个特有列及其读写方式
+ */
+public enum BookTypeColumns {
+    COMPUTER("Computer", ComputerBook.class, "programming_language", "framework", "difficulty") {
+        @Override
+        public Book newBook() {
+            return new ComputerBook();
+        }
+
+        @Override
+        String[] readAttributes(Book book) {
+            ComputerBook b = (ComputerBook) book;
+            return new String[]{b.getProgrammingLanguage(), b.getFramework(), b.getDifficulty()};
+        }
+
+        @Override
+        void writeAttributes(Book book, String first, String second, String third) {
+            ComputerBook b = (ComputerBook) book;
+            b.setProgrammingLanguage(first);
+            b.setFramework(second);
+            b.setDifficulty(third);
+        }
+    },
+    LITERATURE("Literature", LiteratureBook.class, "genre", "era", "language") {
+        @Override
+        public Book newBook() {
+            return new LiteratureBook();
+        }
+
+        @Override
+        String[] readAttributes(Book book) {
+            LiteratureBook b = (LiteratureBook) book;
+            return new String[]{b.getGenre(), b.getEra(), b.getLanguage()};
+        }
+
+        @Override
+        void writeAttributes(Book book, String first, String second, String third) {
+            LiteratureBook b = (LiteratureBook) book;
+            b.setGenre(first);
+            b.setEra(second);
+            b.setLanguage(third);
+        }
+    },
+    SCIENCE("Science", ScienceBook.class, "subject_area", "research_field", "academic_level") {
+        @Override
+        public Book newBook() {
+            return new ScienceBook();
+        }
+
+        @Override
+        String[] readAttributes(Book book) {
+            ScienceBook b = (ScienceBook) book;
+            return new String[]{b.getSubjectArea(), b.getResearchField(), b.getAcademicLevel()};
+        }
+
+        @Override
+        void writeAttributes(Book book, String first, String second, String third) {
+            ScienceBook b = (ScienceBook) book;
+            b.setSubjectArea(first);
+            b.setResearchField(second);
+            b.setAcademicLevel(third);
+        }
+    },
+    ART("Art", ArtBook.class, "art_form", "medium", "style") {
+        @Override
+        public Book newBook() {
+            return new ArtBook();
+        }
+
+        @Override
+        String[] readAttributes(Book book) {
+            ArtBook b = (ArtBook) book;
+            return new String[]{b.getArtForm(), b.getMedium(), b.getStyle()};
+        }
+
+        @Override
+        void writeAttributes(Book book, String first, String second, String third) {
+            ArtBook b = (ArtBook) book;
+            b.setArtForm(first);
+            b.setMedium(second);
+            b.setStyle(third);
+        }
+    },
+    HISTORY("History", HistoryBook.class, "time_period", "region", "historical_figures") {
+        @Override
+        public Book newBook() {
+            return new HistoryBook();
+        }
+
+        @Override
+        String[] readAttributes(Book book) {
+            HistoryBook b = (HistoryBook) book;
+            return new String[]{b.getTimePeriod(), b.getRegion(), b.getHistoricalFigures()};
+        }
+
+        @Override
+        void writeAttributes(Book book, String first, String second, String third) {
+            HistoryBook b = (HistoryBook) book;
+            b.setTimePeriod(first);
+            b.setRegion(second);
+            b.setHistoricalFigures(third);
+        }
+    },
+    PHILOSOPHY("Philosophy", PhilosophyBook.class, "philosophical_school", "key_concepts", "thinkers") {
+        @Override
+        public Book newBook() {
+            return new PhilosophyBook();
+        }
+
+        @Override
+        String[] readAttributes(Book book) {
+            PhilosophyBook b = (PhilosophyBook) book;
+            return new String[]{b.getPhilosophicalSchool(), b.getKeyConcepts(), b.getThinkers()};
+        }
+
+        @Override
+        void writeAttributes(Book book, String first, String second, String third) {
+            PhilosophyBook b = (PhilosophyBook) book;
+            b.setPhilosophicalSchool(first);
+            b.setKeyConcepts(second);
+            b.setThinkers(third);
+        }
+    },
+    ECONOMICS("Economics", EconomicsBook.class, "economic_school", "market_type", "application_field") {
+        @Override
+        public Book newBook() {
+            return new EconomicsBook();
+        }
+
+        @Override
+        String[] readAttributes(Book book) {
+            EconomicsBook b = (EconomicsBook) book;
+            return new String[]{b.getEconomicSchool(), b.getMarketType(), b.getApplicationField()};
+        }
+
+        @Override
+        void writeAttributes(Book book, String first, String second, String third) {
+            EconomicsBook b = (EconomicsBook) book;
+            b.setEconomicSchool(first);
+            b.setMarketType(second);
+            b.setApplicationField(third);
+        }
+    },
+    MEDICINE("Medicine", MedicineBook.class, "medical_specialty", "clinical_focus", "practice_area") {
+        @Override
+        public Book newBook() {
+            return new MedicineBook();
+        }
+
+        @Override
+        String[] readAttributes(Book book) {
+            MedicineBook b = (MedicineBook) book;
+            return new String[]{b.getMedicalSpecialty(), b.getClinicalFocus(), b.getPracticeArea()};
+        }
+
+        @Override
+        void writeAttributes(Book book, String first, String second, String third) {
+            MedicineBook b = (MedicineBook) book;
+            b.setMedicalSpecialty(first);
+            b.setClinicalFocus(second);
+            b.setPracticeArea(third);
+        }
+    },
+    EDUCATION("Education", EducationBook.class, "education_level", "subject", "teaching_method") {
+        @Override
+        public Book newBook() {
+            return new EducationBook();
+        }
+
+        @Override
+        String[] readAttributes(Book book) {
+            EducationBook b = (EducationBook) book;
+            return new String[]{b.getEducationLevel(), b.getSubject(), b.getTeachingMethod()};
+        }
+
+        @Override
+        void writeAttributes(Book book, String first, String second, String third) {
+            EducationBook b = (EducationBook) book;
+            b.setEducationLevel(first);
+            b.setSubject(second);
+            b.setTeachingMethod(third);
+        }
+    },
+    LAW("Law", LawBook.class, "legal_system", "jurisdiction", "legal_field") {
+        @Override
+        public Book newBook() {
+            return new LawBook();
+        }
+
+        @Override
+        String[] readAttributes(Book book) {
+            LawBook b = (LawBook) book;
+            return new String[]{b.getLegalSystem(), b.getJurisdiction(), b.getLegalField()};
+        }
+
+        @Override
+        void writeAttributes(Book book, String first, String second, String third) {
+            LawBook b = (LawBook) book;
+            b.setLegalSystem(first);
+            b.setJurisdiction(second);
+            b.setLegalField(third);
+        }
+    };
+
+    /** 所有类型特有列，按枚举顺序排列，每种类型三列 */
+    public static final List<String> ALL_ATTRIBUTE_COLUMNS = Arrays.stream(values())
+        .flatMap(t -> Arrays.stream(t.columns))
+        .toList();
+
+    private static final String[] NO_ATTRIBUTES = new String[3];
+
+    private final String type;
+    private final Class<? extends Book> bookClass;
+    private final String[] columns;
+
+    BookTypeColumns(String type, Class<? extends Book> bookClass, String... columns) {
+        this.type = type;
+        this.bookClass = bookClass;
+        this.columns = columns;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    public abstract Book newBook();
+
+    abstract String[] readAttributes(Book book);
+
+    abstract void writeAttributes(Book book, String first, String second, String third);
+
+    /**
+     * 读取图书的三个特有属性；图书实例与本类型不匹配时返回全 null
+     */
+    public String[] getAttributes(Book book) {
+        return bookClass.isInstance(book) ? readAttributes(book) : NO_ATTRIBUTES.clone();
+    }
+
+    public void setAttributes(Book book, String first, String second, String third) {
+        if (bookClass.isInstance(book)) {
+            writeAttributes(book, first, second, third);
+        }
+    }
+
+    /**
+     * 复制图书（通用属性 + 本类型特有属性），得到与原对象互不影响的新实例
+     */
+    public static Book copyOf(Book book) {
+        BookTypeColumns typeColumns = forBook(book)
+            .orElseThrow(() -> new IllegalArgumentException("Unknown book type: " + book.getType()));
+        Book copy = typeColumns.newBook();
+        copy.setId(book.getId());
+        copy.setIsbn(book.getIsbn());
+        copy.setTitle(book.getTitle());
+        copy.setAuthor(book.getAuthor());
+        copy.setType(typeColumns.getType());
+        copy.setStock(book.getStock());
+        copy.setCreateTime(book.getCreateTime());
+        copy.setUpdateTime(book.getUpdateTime());
+        String[] attributes = typeColumns.readAttributes(book);
+        typeColumns.writeAttributes(copy, attributes[0], attributes[1], attributes[2]);
+        return copy;
+    }
+
+    public static BookTypeColumns of(String type) {
+        for (BookTypeColumns columns : values()) {
+            if (columns.type.equalsIgnoreCase(type)) {
+                return columns;
+            }
+        }
+        throw new IllegalArgumentException("Unknown book type: " + type);
+    }
+
+    public static Optional<BookTypeColumns> forBook(Book book) {
+        for (BookTypeColumns columns : values()) {
+            if (columns.bookClass.isInstance(book)) {
+                return Optional.of(columns);
+            }
+        }
+        return Optional.empty();
+    }
+}
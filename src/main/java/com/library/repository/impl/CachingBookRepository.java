@@ -0,0 +1,336 @@
+package com.library.repository.impl;
+
+import com.library.domain.book.Book;
+import com.library.repository.BatchSaveResult;
+import com.library.repository.BookChange;
+import com.library.repository.BookRepository;
+import com.library.repository.ChangeListener;
+import com.library.repository.ChangeSet;
+import com.library.repository.ConflictPolicy;
+import com.library.repository.MultiGetResult;
+import com.library.repository.StockAdjustment;
+import com.library.repository.StockAdjustmentResult;
+import com.library.repository.UpsertResult;
+import com.library.util.CacheStats;
+import com.library.util.TransactionManager;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 带读穿透缓存的图书仓库
+ * 作用：
+ * - findById / findByIsbn 命中缓存时不访问数据库，id 与 isbn 两个键指向同一缓存项
+ * - findByIds / findByIsbns 先查缓存，未命中的键合并为一次批量查询
+ * - 按容量（LRU）和存活时间（TTL）淘汰
+ * - save / updateStock / delete 成功后使对应缓存项失效
+ * - 缓存项保存副本、命中时返回副本：调用方或下层（如索引的库存更新）修改图书对象不会改到缓存
+ */
+public class CachingBookRepository extends ForwardingBookRepository implements ChangeListener {
+    private static final Logger logger = Logger.getLogger(CachingBookRepository.class);
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<Long, Entry> byId;
+    private final Map<String, Long> idByIsbn = new HashMap<>();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    // 每次失效递增；加载期间发生过失效的结果不写入缓存，避免缓存旧数据
+    private long invalidations;
+
+    public CachingBookRepository(BookRepository delegate, int maxSize, long ttl, TimeUnit unit) {
+        super(delegate);
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.byId = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > CachingBookRepository.this.maxSize) {
+                    idByIsbn.remove(eldest.getValue().book.getIsbn());
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public Optional<Book> findById(Long id) {
+        long generation;
+        synchronized (this) {
+            Book cached = lookup(id);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+            generation = invalidations;
+        }
+        Optional<Book> loaded = delegate.findById(id);
+        loaded.ifPresent(book -> put(book, generation));
+        return loaded;
+    }
+
+    @Override
+    public Optional<Book> findByIsbn(String isbn) {
+        long generation;
+        synchronized (this) {
+            Long id = idByIsbn.get(isbn);
+            Book cached = id != null ? lookup(id) : null;
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+            if (id == null) {
+                misses++;
+            }
+            generation = invalidations;
+        }
+        Optional<Book> loaded = delegate.findByIsbn(isbn);
+        loaded.ifPresent(book -> put(book, generation));
+        return loaded;
+    }
+
+    @Override
+    public MultiGetResult<Long> findByIds(Collection<Long> ids) {
+        List<Long> keys = MultiGetResult.distinctKeys(ids);
+        Map<Long, Book> books = new HashMap<>();
+        List<Long> toLoad = new ArrayList<>();
+        long generation;
+        synchronized (this) {
+            for (Long id : keys) {
+                Book cached = lookup(id);
+                if (cached != null) {
+                    books.put(id, cached);
+                } else {
+                    toLoad.add(id);
+                }
+            }
+            generation = invalidations;
+        }
+        if (!toLoad.isEmpty()) {
+            delegate.findByIds(toLoad).getFound().forEach((id, book) -> {
+                books.put(id, book);
+                put(book, generation);
+            });
+        }
+        return MultiGetResult.of(keys, books::get);
+    }
+
+    @Override
+    public MultiGetResult<String> findByIsbns(Collection<String> isbns) {
+        List<String> keys = MultiGetResult.distinctKeys(isbns);
+        Map<String, Book> books = new HashMap<>();
+        List<String> toLoad = new ArrayList<>();
+        long generation;
+        synchronized (this) {
+            for (String isbn : keys) {
+                Long id = idByIsbn.get(isbn);
+                Book cached = id != null ? lookup(id) : null;
+                if (cached != null) {
+                    books.put(isbn, cached);
+                    continue;
+                }
+                if (id == null) {
+                    misses++;
+                }
+                toLoad.add(isbn);
+            }
+            generation = invalidations;
+        }
+        if (!toLoad.isEmpty()) {
+            delegate.findByIsbns(toLoad).getFound().forEach((isbn, book) -> {
+                books.put(isbn, book);
+                put(book, generation);
+            });
+        }
+        return MultiGetResult.of(keys, books::get);
+    }
+
+    @Override
+    public Book save(Book book) {
+        Book saved = delegate.save(book);
+        evict(saved.getId(), saved.getIsbn());
+        return saved;
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<Book> books) {
+        BatchSaveResult result = delegate.saveAll(books);
+        for (Book book : result.getSaved()) {
+            evict(book.getId(), book.getIsbn());
+        }
+        return result;
+    }
+
+    @Override
+    public UpsertResult.Outcome upsert(Book book, ConflictPolicy policy) {
+        UpsertResult.Outcome outcome = delegate.upsert(book, policy);
+        if (outcome != UpsertResult.Outcome.SKIPPED) {
+            evict(book.getId(), book.getIsbn());
+        }
+        return outcome;
+    }
+
+    @Override
+    public UpsertResult upsertAll(Collection<Book> books, ConflictPolicy policy) {
+        UpsertResult result = delegate.upsertAll(books, policy);
+        for (Book book : result.getWritten()) {
+            evict(book.getId(), book.getIsbn());
+        }
+        return result;
+    }
+
+    @Override
+    public void updateStock(Long id, int newStock) {
+        try {
+            delegate.updateStock(id, newStock);
+        } finally {
+            evict(id, null);
+        }
+    }
+
+    @Override
+    public int adjustStock(Long id, int delta) {
+        try {
+            return delegate.adjustStock(id, delta);
+        } finally {
+            evict(id, null);
+        }
+    }
+
+    @Override
+    public StockAdjustmentResult bulkAdjustStock(Stream<StockAdjustment> adjustments) {
+        StockAdjustmentResult result;
+        try {
+            result = delegate.bulkAdjustStock(adjustments);
+        } catch (RuntimeException e) {
+            // 之前的块可能已经提交，无法确定受影响的图书
+            clear();
+            throw e;
+        }
+        for (StockAdjustmentResult.Line line : result.getLines()) {
+            if (line.getStatus() == StockAdjustmentResult.Status.APPLIED) {
+                evict(line.getBookId(), null);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Integer> adjustStockAsync(Long id, int delta) {
+        return delegate.adjustStockAsync(id, delta).whenComplete((newStock, error) -> invalidate(id, null));
+    }
+
+    @Override
+    public void delete(Long id) {
+        try {
+            delegate.delete(id);
+        } finally {
+            evict(id, null);
+        }
+    }
+
+    /**
+     * 变更订阅回调：其他进程写入的变更使对应缓存项失效
+     */
+    @Override
+    public void onChanges(ChangeSet changes) {
+        for (BookChange change : changes.getChanges()) {
+            invalidate(change.getId(), change.getIsbn());
+        }
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits, misses, evictions, expirations, byId.size());
+    }
+
+    public synchronized void clear() {
+        byId.clear();
+        idByIsbn.clear();
+        invalidations++;
+    }
+
+    /**
+     * 使指定 id 和/或 isbn 对应的缓存项失效
+     */
+    public synchronized void invalidate(Long id, String isbn) {
+        invalidations++;
+        if (id != null) {
+            Entry removed = byId.remove(id);
+            if (removed != null) {
+                idByIsbn.remove(removed.book.getIsbn());
+            }
+        }
+        if (isbn != null) {
+            Long mappedId = idByIsbn.remove(isbn);
+            if (mappedId != null) {
+                byId.remove(mappedId);
+            }
+        }
+    }
+
+    // 事务中的修改提交前，其他线程可能把旧值重新读入缓存，因此提交后再失效一次
+    private void evict(Long id, String isbn) {
+        invalidate(id, isbn);
+        if (TransactionManager.isActive()) {
+            TransactionManager.afterCommit(() -> invalidate(id, isbn));
+        }
+    }
+
+    // 调用方需持有锁；返回缓存项的副本
+    private Book lookup(Long id) {
+        Entry entry = byId.get(id);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt - System.nanoTime() <= 0) {
+            byId.remove(id);
+            idByIsbn.remove(entry.book.getIsbn());
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return BookTypeColumns.copyOf(entry.book);
+    }
+
+    private synchronized void put(Book book, long generation) {
+        if (generation != invalidations || book.getId() == null) {
+            logger.debug("Skip caching book " + book.getId() + " loaded concurrently with a write");
+            return;
+        }
+        Entry previous = byId.put(book.getId(), new Entry(BookTypeColumns.copyOf(book), System.nanoTime() + ttlNanos));
+        if (previous != null && !Objects.equals(previous.book.getIsbn(), book.getIsbn())) {
+            idByIsbn.remove(previous.book.getIsbn());
+        }
+        if (book.getIsbn() != null) {
+            idByIsbn.put(book.getIsbn(), book.getId());
+        }
+    }
+
+    private static final class Entry {
+        private final Book book;
+        private final long expiresAt;
+
+        private Entry(Book book, long expiresAt) {
+            this.book = book;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.library.repository.impl;
+
+import com.library.domain.book.Book;
+import com.library.domain.user.User;
+import com.library.repository.BatchSaveResult;
+import com.library.repository.BookRepository;
+import com.library.repository.StorageEngine;
+import com.library.repository.UserRepository;
+import com.library.util.ConfigUtils;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * 嵌入式存储引擎
+ * 作用：不依赖外部 MySQL，在进程内提供图书/用户仓库，便于单机运行集成测试、压测和基准测试
+ * - 图书仓库由调用方指定：InMemoryBookRepository（memory）或 MappedBookRepository（mapped）
+ * - 启动时从 storage.memory.seed 指定的脚本（默认 sample_data.sql）载入用户；
+ *   图书仓库为空时同时载入图书，已有数据的映射文件不会重复导入
+ */
+public class EmbeddedStorageEngine implements StorageEngine {
+    private static final Logger logger = Logger.getLogger(EmbeddedStorageEngine.class);
+    private static final String DEFAULT_SEED = "sample_data.sql";
+
+    private final BookRepository bookRepository;
+    private final InMemoryUserRepository userRepository = new InMemoryUserRepository();
+
+    public EmbeddedStorageEngine(Properties props, BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+        String seed = ConfigUtils.getString(props, "storage.memory.seed", DEFAULT_SEED).trim();
+        if (!seed.isEmpty()) {
+            loadSeed(seed);
+        }
+    }
+
+    @Override
+    public BookRepository getBookRepository() {
+        return bookRepository;
+    }
+
+    @Override
+    public UserRepository getUserRepository() {
+        return userRepository;
+    }
+
+    @Override
+    public void shutdown() {
+        if (bookRepository instanceof Closeable) {
+            try {
+                ((Closeable) bookRepository).close();
+            } catch (IOException e) {
+                logger.error("Error closing book repository", e);
+            }
+        }
+    }
+
+    private void loadSeed(String resource) {
+        List<SqlSeedScript.Insert> inserts;
+        try {
+            inserts = SqlSeedScript.load(resource);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Failed to load seed data: " + resource, e);
+            throw new RuntimeException("载入初始数据失败: " + resource, e);
+        }
+
+        boolean seedBooks = bookRepository.findAllPage(null, 1).isEmpty();
+        List<Book> books = new ArrayList<>();
+        int users = 0;
+        for (SqlSeedScript.Insert insert : inserts) {
+            switch (insert.getTable()) {
+                case "books" -> {
+                    if (seedBooks) {
+                        insert.getRows().forEach(row -> books.add(toBook(insert, row)));
+                    }
+                }
+                case "users" -> {
+                    for (List<String> row : insert.getRows()) {
+                        userRepository.save(toUser(insert, row));
+                        users++;
+                    }
+                }
+                // 其余表（如 backup_records）在内存引擎中没有对应仓库
+                default -> logger.debug("Skipping seed rows for table: " + insert.getTable());
+            }
+        }
+
+        BatchSaveResult result = bookRepository.saveAll(books);
+        if (result.hasFailures()) {
+            logger.warn("Skipped " + result.getFailedCount() + " seed books: " + result.getFailures());
+        }
+        logger.info("Embedded storage loaded " + result.getSavedCount() + " books and " + users
+            + " users from " + resource);
+    }
+
+    private static Book toBook(SqlSeedScript.Insert insert, List<String> row) {
+        BookTypeColumns typeColumns = BookTypeColumns.of(insert.value(row, "type"));
+        Book book = typeColumns.newBook();
+        book.setIsbn(insert.value(row, "isbn"));
+        book.setTitle(insert.value(row, "title"));
+        book.setAuthor(insert.value(row, "author"));
+        book.setType(typeColumns.getType());
+        String stock = insert.value(row, "stock");
+        book.setStock(stock == null ? 0 : Integer.parseInt(stock));
+        String[] columns = typeColumns.getColumns();
+        typeColumns.setAttributes(book,
+            insert.value(row, columns[0]), insert.value(row, columns[1]), insert.value(row, columns[2]));
+        return book;
+    }
+
+    private static User toUser(SqlSeedScript.Insert insert, List<String> row) {
+        User user = new User();
+        user.setUsername(insert.value(row, "username"));
+        user.setPassword(insert.value(row, "password"));
+        String admin = insert.value(row, "is_admin");
+        user.setAdmin("1".equals(admin) || "true".equalsIgnoreCase(admin));
+        return user;
+    }
+}
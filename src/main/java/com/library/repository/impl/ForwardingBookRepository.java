@@ -0,0 +1,167 @@
+package com.library.repository.impl;
+
+import com.library.domain.book.Book;
+import com.library.repository.BatchSaveResult;
+import com.library.repository.BookRepository;
+import com.library.repository.CatalogStats;
+import com.library.repository.ChangeSet;
+import com.library.repository.ChangeWatermark;
+import com.library.repository.ConflictPolicy;
+import com.library.repository.MultiGetResult;
+import com.library.repository.Page;
+import com.library.repository.StockAdjustment;
+import com.library.repository.StockAdjustmentResult;
+import com.library.repository.UpsertResult;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * 图书仓库装饰器基类
+ * 作用：将所有调用转发给被装饰的仓库，子类只需覆盖关心的方法
+ */
+public abstract class ForwardingBookRepository implements BookRepository {
+    protected final BookRepository delegate;
+
+    protected ForwardingBookRepository(BookRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Book save(Book book) {
+        return delegate.save(book);
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<Book> books) {
+        return delegate.saveAll(books);
+    }
+
+    @Override
+    public UpsertResult.Outcome upsert(Book book, ConflictPolicy policy) {
+        return delegate.upsert(book, policy);
+    }
+
+    @Override
+    public UpsertResult upsertAll(Collection<Book> books, ConflictPolicy policy) {
+        return delegate.upsertAll(books, policy);
+    }
+
+    @Override
+    public Optional<Book> findById(Long id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Optional<Book> findByIsbn(String isbn) {
+        return delegate.findByIsbn(isbn);
+    }
+
+    @Override
+    public MultiGetResult<Long> findByIds(Collection<Long> ids) {
+        return delegate.findByIds(ids);
+    }
+
+    @Override
+    public MultiGetResult<String> findByIsbns(Collection<String> isbns) {
+        return delegate.findByIsbns(isbns);
+    }
+
+    @Override
+    public List<Book> findByTitle(String title) {
+        return delegate.findByTitle(title);
+    }
+
+    @Override
+    public List<Book> findByType(String type) {
+        return delegate.findByType(type);
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Book> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public void updateStock(Long id, int change) {
+        delegate.updateStock(id, change);
+    }
+
+    @Override
+    public int adjustStock(Long id, int delta) {
+        return delegate.adjustStock(id, delta);
+    }
+
+    @Override
+    public CompletableFuture<Integer> adjustStockAsync(Long id, int delta) {
+        return delegate.adjustStockAsync(id, delta);
+    }
+
+    @Override
+    public StockAdjustmentResult bulkAdjustStock(Stream<StockAdjustment> adjustments) {
+        return delegate.bulkAdjustStock(adjustments);
+    }
+
+    @Override
+    public void delete(Long id) {
+        delegate.delete(id);
+    }
+
+    @Override
+    public boolean exists(String isbn) {
+        return delegate.exists(isbn);
+    }
+
+    @Override
+    public long countAll() {
+        return delegate.countAll();
+    }
+
+    @Override
+    public CatalogStats getCatalogStats() {
+        return delegate.getCatalogStats();
+    }
+
+    @Override
+    public List<Book> findLowStock(int threshold, String type, int limit) {
+        return delegate.findLowStock(threshold, type, limit);
+    }
+
+    @Override
+    public List<Book> searchBooks(String keyword, String type) {
+        return delegate.searchBooks(keyword, type);
+    }
+
+    @Override
+    public Page<Book> findAllPage(String pageToken, int pageSize) {
+        return delegate.findAllPage(pageToken, pageSize);
+    }
+
+    @Override
+    public Page<Book> findByTypePage(String type, String pageToken, int pageSize) {
+        return delegate.findByTypePage(type, pageToken, pageSize);
+    }
+
+    @Override
+    public Page<Book> searchBooksPage(String keyword, String type, String pageToken, int pageSize) {
+        return delegate.searchBooksPage(keyword, type, pageToken, pageSize);
+    }
+
+    @Override
+    public ChangeSet findChangesSince(ChangeWatermark since, int limit, int lagSeconds) {
+        return delegate.findChangesSince(since, limit, lagSeconds);
+    }
+
+    @Override
+    public int purgeTombstones(String before, ChangeWatermark oldest) {
+        return delegate.purgeTombstones(before, oldest);
+    }
+}
@@ -0,0 +1,196 @@
+package com.library.repository.impl;
+
+import com.library.domain.book.InsufficientStockException;
+import com.library.util.DBHandler;
+import org.apache.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 库存调整组提交器
+ * 作用：
+ * - 并发的库存调整请求先进入队列，每隔 windowMillis 毫秒或攒够 maxBatch 个请求后统一刷新
+ * - 同一图书的多个调整合并为一条 UPDATE，整批在一个事务中提交，只占用一次连接、一次 commit
+ * - 调用方拿到的 CompletableFuture 在事务提交后才完成；同一图书的请求按批内执行顺序完成，
+ *   最后完成的请求带回的就是该图书的最终库存（索引等按完成顺序更新时不会停在中间值）
+ */
+final class GroupCommitStockWriter {
+    private static final Logger logger = Logger.getLogger(GroupCommitStockWriter.class);
+    // 同一批次内的请求互相并发，可任意排序；先加后减保证合并结果合法时中间值也不为负
+    private static final Comparator<PendingAdjustment> INCREASES_FIRST =
+        Comparator.comparingInt(p -> p.delta >= 0 ? 0 : 1);
+
+    private final BlockingQueue<PendingAdjustment> queue = new LinkedBlockingQueue<>();
+    private final int maxBatch;
+    private final long windowNanos;
+    private final Thread flusher;
+    private final Thread shutdownHook;
+    // submit 的检查与入队、close 的停止标记在同一把锁下进行，停止后不会再有请求入队
+    private final Object lifecycleLock = new Object();
+    private volatile boolean running = true;
+
+    GroupCommitStockWriter(int maxBatch, long windowMillis) {
+        this.maxBatch = Math.max(1, maxBatch);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMillis));
+        this.flusher = new Thread(this::run, "stock-group-commit");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+        // 进程退出前刷新队列中剩余的调整
+        this.shutdownHook = new Thread(this::close, "stock-group-commit-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        logger.info("Stock group commit started: maxBatch=" + this.maxBatch + ", windowMillis=" + windowMillis);
+    }
+
+    CompletableFuture<Integer> submit(long id, int delta) {
+        PendingAdjustment pending = new PendingAdjustment(id, delta);
+        synchronized (lifecycleLock) {
+            if (!running) {
+                pending.future.completeExceptionally(new IllegalStateException("Stock group commit is shut down"));
+                return pending.future;
+            }
+            queue.add(pending);
+        }
+        return pending.future;
+    }
+
+    void close() {
+        synchronized (lifecycleLock) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // 已经在关闭进程（本方法正由钩子调用）
+        }
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 刷新线程未能处理的请求直接失败，避免调用方永久等待
+        List<PendingAdjustment> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        leftover.forEach(p -> p.future.completeExceptionally(
+            new IllegalStateException("Stock group commit is shut down")));
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingAdjustment first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<PendingAdjustment> batch = new ArrayList<>();
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingAdjustment next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        queue.drainTo(batch, maxBatch - batch.size());
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Unexpected error in stock group commit", e);
+            }
+        }
+    }
+
+    private void flush(List<PendingAdjustment> batch) {
+        Map<Long, List<PendingAdjustment>> byBook = new LinkedHashMap<>();
+        for (PendingAdjustment pending : batch) {
+            byBook.computeIfAbsent(pending.id, k -> new ArrayList<>()).add(pending);
+        }
+
+        // 保持 applyGroup 中的执行顺序，按此顺序完成 future
+        Map<PendingAdjustment, Integer> results = new LinkedHashMap<>();
+        Map<PendingAdjustment, RuntimeException> failures = new LinkedHashMap<>();
+        Connection conn = null;
+        try {
+            conn = DBHandler.getConnection();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    BookRepositoryImpl.ADJUST_STOCK_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Map.Entry<Long, List<PendingAdjustment>> entry : byBook.entrySet()) {
+                    applyGroup(conn, stmt, entry.getKey(), entry.getValue(), results, failures);
+                }
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            DBHandler.rollback(conn);
+            logger.error("Stock group commit of " + batch.size() + " adjustments failed", e);
+            RuntimeException failure = new RuntimeException("Error adjusting book stock", e);
+            batch.forEach(p -> p.future.completeExceptionally(failure));
+            return;
+        } finally {
+            DBHandler.closeConnection(conn);
+        }
+
+        results.forEach((pending, stock) -> pending.future.complete(stock));
+        failures.forEach((pending, error) -> pending.future.completeExceptionally(error));
+        logger.debug("Group committed " + batch.size() + " stock adjustments for " + byBook.size() + " books");
+    }
+
+    private void applyGroup(Connection conn, PreparedStatement stmt, long id, List<PendingAdjustment> group,
+                            Map<PendingAdjustment, Integer> results,
+                            Map<PendingAdjustment, RuntimeException> failures) throws SQLException {
+        group.sort(INCREASES_FIRST);
+        int total = group.stream().mapToInt(p -> p.delta).sum();
+
+        // 先尝试合并为一条 UPDATE
+        Integer finalStock = BookRepositoryImpl.applyAdjustment(stmt, id, total);
+        if (finalStock != null) {
+            int stock = finalStock - total;
+            for (PendingAdjustment pending : group) {
+                stock += pending.delta;
+                results.put(pending, stock);
+            }
+            return;
+        }
+
+        // 合并后不满足条件时逐个执行，只让真正导致库存为负的请求失败
+        for (PendingAdjustment pending : group) {
+            Integer stock = BookRepositoryImpl.applyAdjustment(stmt, id, pending.delta);
+            if (stock != null) {
+                results.put(pending, stock);
+                continue;
+            }
+            Integer available = BookRepositoryImpl.findStock(conn, id);
+            failures.put(pending, available == null
+                ? new RuntimeException("No book found with id: " + id)
+                : new InsufficientStockException(id, pending.delta, available));
+        }
+    }
+
+    private static final class PendingAdjustment {
+        private final long id;
+        private final int delta;
+        private final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        private PendingAdjustment(long id, int delta) {
+            this.id = id;
+            this.delta = delta;
+        }
+    }
+}
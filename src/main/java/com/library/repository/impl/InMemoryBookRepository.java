@@ -0,0 +1,507 @@
+package com.library.repository.impl;
+
+import com.library.domain.book.Book;
+import com.library.domain.book.InsufficientStockException;
+import com.library.repository.BatchSaveResult;
+import com.library.repository.BookChange;
+import com.library.repository.BookRepository;
+import com.library.repository.CatalogStats;
+import com.library.repository.ChangeSet;
+import com.library.repository.ChangeWatermark;
+import com.library.repository.ConflictPolicy;
+import com.library.repository.MultiGetResult;
+import com.library.repository.Page;
+import com.library.repository.StockAdjustment;
+import com.library.repository.StockAdjustmentResult;
+import com.library.repository.UpsertResult;
+import org.apache.log4j.Logger;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * 内存图书仓库
+ * 作用：进程内的 BookRepository 实现，行为与 books 表保持一致
+ * - id 自增，isbn 唯一，isbn/title/author/type 不能为空
+ * - 标题、作者、类型的匹配与 MySQL 默认排序规则一样不区分大小写
+ * - 写入时维护 create_time / update_time
+ * 说明：仓库内部保存副本，读写都经过复制，调用方修改返回对象不会影响已存数据
+ */
+public class InMemoryBookRepository implements BookRepository {
+    private static final Logger logger = Logger.getLogger(InMemoryBookRepository.class);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Long, Book> books = new TreeMap<>();
+    private final Map<String, Long> idByIsbn = new HashMap<>();
+    private long nextId = 1;
+    // 删除记录，按删除时间追加，供变更订阅读取
+    private final List<BookChange> tombstones = new ArrayList<>();
+
+    @Override
+    public Book save(Book book) {
+        lock.writeLock().lock();
+        try {
+            insert(book);
+            return book;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            logger.error("Error saving book", e);
+            throw new RuntimeException("Error saving book", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<Book> books) {
+        BatchSaveResult result = new BatchSaveResult();
+        if (books == null || books.isEmpty()) {
+            return result;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Book book : books) {
+                try {
+                    insert(book);
+                    result.addSaved(book);
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    result.addFailure(book, e.getMessage());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.debug("Batch saved " + result.getSavedCount() + " books, " + result.getFailedCount() + " failed");
+        return result;
+    }
+
+    @Override
+    public UpsertResult.Outcome upsert(Book book, ConflictPolicy policy) {
+        return upsertAll(Collections.singletonList(book), policy).singleOutcome();
+    }
+
+    @Override
+    public UpsertResult upsertAll(Collection<Book> books, ConflictPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Conflict policy cannot be null");
+        }
+        UpsertResult result = new UpsertResult();
+        if (books == null || books.isEmpty()) {
+            return result;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Book book : books) {
+                try {
+                    result.add(book, upsertOne(book, policy));
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    result.addFailure(book, e.getMessage());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.debug("Batch upsert finished: " + result);
+        return result;
+    }
+
+    // 调用方需持有写锁；与 books 表一致，保留传入的 create_time，写入的行 update_time 为当前时间，
+    // 传入的 update_time 只参与冲突判定；只有实际写入的行回填 id
+    private UpsertResult.Outcome upsertOne(Book book, ConflictPolicy policy) {
+        Long existingId = book == null || book.getIsbn() == null ? null : idByIsbn.get(book.getIsbn());
+        if (existingId == null) {
+            insert(book);
+            books.get(book.getId()).setCreateTime(timeOrNow(book.getCreateTime()));
+            return UpsertResult.Outcome.INSERTED;
+        }
+        Book existing = books.get(existingId);
+        if (!policy.overwrites(existing.getUpdateTime(), book.getUpdateTime())) {
+            return UpsertResult.Outcome.SKIPPED;
+        }
+        if (book.getTitle() == null || book.getAuthor() == null || book.getType() == null) {
+            throw new IllegalArgumentException("Column 'title', 'author' and 'type' cannot be null");
+        }
+        Book replacement = BookTypeColumns.copyOf(book);
+        replacement.setId(existingId);
+        replacement.setCreateTime(existing.getCreateTime());
+        replacement.setUpdateTime(now());
+        books.put(existingId, replacement);
+        book.setId(existingId);
+        return UpsertResult.Outcome.UPDATED;
+    }
+
+    private static String timeOrNow(String time) {
+        return time == null || time.trim().isEmpty() ? now() : time.trim();
+    }
+
+    // 调用方需持有写锁
+    private void insert(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null");
+        }
+        if (book.getIsbn() == null || book.getTitle() == null || book.getAuthor() == null || book.getType() == null) {
+            throw new IllegalArgumentException("Column 'isbn', 'title', 'author' and 'type' cannot be null");
+        }
+        if (idByIsbn.containsKey(book.getIsbn())) {
+            throw new IllegalStateException("Duplicate entry '" + book.getIsbn() + "' for key 'uk_isbn'");
+        }
+        Book stored = BookTypeColumns.copyOf(book);
+        String now = now();
+        stored.setId(nextId++);
+        stored.setCreateTime(now);
+        stored.setUpdateTime(now);
+        books.put(stored.getId(), stored);
+        idByIsbn.put(stored.getIsbn(), stored.getId());
+        book.setId(stored.getId());
+    }
+
+    @Override
+    public Optional<Book> findById(Long id) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(books.get(id)).map(BookTypeColumns::copyOf);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Book> findByIsbn(String isbn) {
+        lock.readLock().lock();
+        try {
+            Long id = idByIsbn.get(isbn);
+            return id == null ? Optional.empty() : Optional.of(BookTypeColumns.copyOf(books.get(id)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public MultiGetResult<Long> findByIds(Collection<Long> ids) {
+        List<Long> keys = MultiGetResult.distinctKeys(ids);
+        lock.readLock().lock();
+        try {
+            return MultiGetResult.of(keys, id -> copyOrNull(books.get(id)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public MultiGetResult<String> findByIsbns(Collection<String> isbns) {
+        List<String> keys = MultiGetResult.distinctKeys(isbns);
+        lock.readLock().lock();
+        try {
+            return MultiGetResult.of(keys, isbn -> {
+                Long id = idByIsbn.get(isbn);
+                return id == null ? null : copyOrNull(books.get(id));
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Book copyOrNull(Book stored) {
+        return stored == null ? null : BookTypeColumns.copyOf(stored);
+    }
+
+    @Override
+    public List<Book> findByTitle(String title) {
+        return select(containsIgnoreCase(title, Book::getTitle), 0L, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Book> findByType(String type) {
+        return select(sameType(type), 0L, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return select(book -> true, 0L, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Stream<Book> streamAll() {
+        // 内存中没有游标可言，直接返回当前快照
+        return findAll().stream();
+    }
+
+    @Override
+    public void updateStock(Long id, int newStock) {
+        lock.writeLock().lock();
+        try {
+            Book stored = requireBook(id);
+            stored.setStock(newStock);
+            stored.setUpdateTime(now());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int adjustStock(Long id, int delta) {
+        lock.writeLock().lock();
+        try {
+            Book stored = requireBook(id);
+            int newStock = stored.getStock() + delta;
+            if (newStock < 0) {
+                throw new InsufficientStockException(id, delta, stored.getStock());
+            }
+            stored.setStock(newStock);
+            stored.setUpdateTime(now());
+            return newStock;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Integer> adjustStockAsync(Long id, int delta) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID cannot be null");
+        }
+        // 内存写入没有提交开销，无需组提交，直接同步完成
+        try {
+            return CompletableFuture.completedFuture(adjustStock(id, delta));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public void delete(Long id) {
+        lock.writeLock().lock();
+        try {
+            Book stored = requireBook(id);
+            books.remove(id);
+            idByIsbn.remove(stored.getIsbn());
+            tombstones.add(BookChange.delete(id, stored.getIsbn(), now()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public StockAdjustmentResult bulkAdjustStock(Stream<StockAdjustment> adjustments) {
+        StockAdjustmentResult result = new StockAdjustmentResult();
+        StockAdjustmentPlan.forEachChunk(adjustments, StockAdjustmentPlan.DEFAULT_CHUNK_SIZE, (firstLine, chunk) -> {
+            lock.writeLock().lock();
+            try {
+                StockAdjustmentPlan plan = new StockAdjustmentPlan(firstLine, chunk, isbn -> {
+                    Long id = idByIsbn.get(isbn);
+                    return id == null ? null : new StockAdjustmentPlan.CurrentStock(id, books.get(id).getStock());
+                });
+                String time = now();
+                plan.getUpdates().forEach((id, stock) -> {
+                    Book stored = books.get(id);
+                    stored.setStock(stock);
+                    stored.setUpdateTime(time);
+                });
+                plan.commitTo(result);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+        logger.debug("Bulk stock adjustment finished: " + result);
+        return result;
+    }
+
+    @Override
+    public boolean exists(String isbn) {
+        lock.readLock().lock();
+        try {
+            return idByIsbn.containsKey(isbn);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long countAll() {
+        lock.readLock().lock();
+        try {
+            return books.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CatalogStats getCatalogStats() {
+        CatalogStats stats = new CatalogStats();
+        lock.readLock().lock();
+        try {
+            for (Book book : books.values()) {
+                stats.accumulate(book.getType(), book.getStock());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stats;
+    }
+
+    @Override
+    public List<Book> findLowStock(int threshold, String type, int limit) {
+        boolean allTypes = type == null || type.trim().isEmpty();
+        LowStockRanking<Book> ranking = new LowStockRanking<>(limit);
+        lock.readLock().lock();
+        try {
+            for (Book book : books.values()) {
+                if (book.getStock() < threshold && (allTypes || type.trim().equalsIgnoreCase(book.getType()))) {
+                    ranking.offer(book.getStock(), book.getId(), book);
+                }
+            }
+            List<Book> result = new ArrayList<>();
+            for (Book book : ranking.result()) {
+                result.add(BookTypeColumns.copyOf(book));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> searchBooks(String keyword, String type) {
+        return select(searchFilter(keyword, type), 0L, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Page<Book> findAllPage(String pageToken, int pageSize) {
+        return selectPage(book -> true, pageToken, pageSize);
+    }
+
+    @Override
+    public Page<Book> findByTypePage(String type, String pageToken, int pageSize) {
+        return selectPage(sameType(type), pageToken, pageSize);
+    }
+
+    @Override
+    public Page<Book> searchBooksPage(String keyword, String type, String pageToken, int pageSize) {
+        return selectPage(searchFilter(keyword, type), pageToken, pageSize);
+    }
+
+    @Override
+    public ChangeSet findChangesSince(ChangeWatermark since, int limit, int lagSeconds) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        ChangeWatermark from = since != null ? since : ChangeWatermark.INITIAL;
+        String cutoff = LocalDateTime.now().minusSeconds(Math.max(0, lagSeconds)).format(TIME_FORMAT);
+        List<BookChange> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Book book : books.values()) {
+                if (from.isBefore(book.getUpdateTime(), book.getId(), BookChange.Type.UPSERT) && book.getUpdateTime().compareTo(cutoff) < 0) {
+                    candidates.add(BookChange.upsert(BookTypeColumns.copyOf(book)));
+                }
+            }
+            for (BookChange tombstone : tombstones) {
+                if (from.isBefore(tombstone.getTime(), tombstone.getId(), BookChange.Type.DELETE) && tombstone.getTime().compareTo(cutoff) < 0) {
+                    candidates.add(tombstone);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ChangeSet.of(candidates, from, limit);
+    }
+
+    // 删除记录只在本进程内可见，订阅水位已越过的删除记录不会再被读取
+    @Override
+    public int purgeTombstones(String before, ChangeWatermark oldest) {
+        lock.writeLock().lock();
+        try {
+            int size = tombstones.size();
+            tombstones.removeIf(tombstone -> before != null && tombstone.getTime().compareTo(before) < 0
+                || oldest != null && !oldest.isBefore(tombstone.getTime(), tombstone.getId(), BookChange.Type.DELETE));
+            return size - tombstones.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return books.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Page<Book> selectPage(Predicate<Book> filter, String pageToken, int pageSize) {
+        Page.checkPageSize(pageSize);
+        List<Book> fetched = select(filter, Page.decodeToken(pageToken), pageSize + 1);
+        return Page.of(fetched, pageSize, Book::getId);
+    }
+
+    // 按 id 顺序返回 id > afterId 且满足条件的前 limit 本图书的副本
+    private List<Book> select(Predicate<Book> filter, long afterId, int limit) {
+        List<Book> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Book book : books.tailMap(afterId, false).values()) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                if (filter.test(book)) {
+                    result.add(BookTypeColumns.copyOf(book));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private Book requireBook(Long id) {
+        Book stored = id == null ? null : books.get(id);
+        if (stored == null) {
+            throw new RuntimeException("No book found with id: " + id);
+        }
+        return stored;
+    }
+
+    private static Predicate<Book> searchFilter(String keyword, String type) {
+        Predicate<Book> filter = book -> true;
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            filter = containsIgnoreCase(keyword, Book::getTitle).or(containsIgnoreCase(keyword, Book::getAuthor));
+        }
+        if (type != null && !type.trim().isEmpty()) {
+            filter = filter.and(sameType(type));
+        }
+        return filter;
+    }
+
+    private static Predicate<Book> containsIgnoreCase(String text, Function<Book, String> field) {
+        String needle = String.valueOf(text).toLowerCase(Locale.ROOT);
+        return book -> {
+            String value = field.apply(book);
+            return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+        };
+    }
+
+    private static Predicate<Book> sameType(String type) {
+        return book -> book.getType() != null && book.getType().equalsIgnoreCase(type);
+    }
+
+    private static String now() {
+        return LocalDateTime.now().format(TIME_FORMAT);
+    }
+}
@@ -0,0 +1,65 @@
+package com.library.repository.impl;
+
+import com.library.domain.user.User;
+import com.library.repository.UserRepository;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 内存用户仓库
+ * 作用：进程内的 UserRepository 实现，id 自增、username 唯一，与 users 表约束一致
+ */
+public class InMemoryUserRepository implements UserRepository {
+    private static final Logger logger = Logger.getLogger(InMemoryUserRepository.class);
+
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    @Override
+    public User save(User user) {
+        if (user.getUsername() == null || user.getPassword() == null) {
+            throw new RuntimeException("Error saving user",
+                new IllegalArgumentException("Column 'username' and 'password' cannot be null"));
+        }
+        User stored = copyOf(user);
+        if (users.putIfAbsent(user.getUsername(), stored) != null) {
+            logger.error("Error saving user: " + user.getUsername());
+            throw new RuntimeException("Error saving user",
+                new IllegalStateException("Duplicate entry '" + user.getUsername() + "' for key 'username'"));
+        }
+        stored.setId(nextId.getAndIncrement());
+        user.setId(stored.getId());
+        logger.debug("User saved successfully: " + user.getUsername());
+        return user;
+    }
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return Optional.ofNullable(username == null ? null : users.get(username)).map(InMemoryUserRepository::copyOf);
+    }
+
+    @Override
+    public boolean existsByUsername(String username) {
+        return username != null && users.containsKey(username);
+    }
+
+    @Override
+    public Stream<String> streamUsernames() {
+        return new ArrayList<>(users.keySet()).stream();
+    }
+
+    private static User copyOf(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setUsername(user.getUsername());
+        copy.setPassword(user.getPassword());
+        copy.setAdmin(user.isAdmin());
+        return copy;
+    }
+}
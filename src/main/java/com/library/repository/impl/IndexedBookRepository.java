@@ -0,0 +1,165 @@
+package com.library.repository.impl;
+
+import com.library.domain.book.Book;
+import com.library.repository.BatchSaveResult;
+import com.library.repository.BookChange;
+import com.library.repository.BookRepository;
+import com.library.repository.ChangeListener;
+import com.library.repository.ChangeSet;
+import com.library.repository.ConflictPolicy;
+import com.library.repository.MultiGetResult;
+import com.library.repository.Page;
+import com.library.repository.StockAdjustment;
+import com.library.repository.StockAdjustmentResult;
+import com.library.repository.UpsertResult;
+import com.library.search.BookSearchIndex;
+import com.library.util.TransactionManager;
+import org.apache.log4j.Logger;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * 带全文索引的图书仓库
+ * 作用：
+ * - searchBooks / findByTitle 由内存倒排索引直接返回，不再执行 LIKE '%kw%' 全表扫描
+ * - 写操作先落库，成功后增量更新索引；处于事务中时推迟到事务提交后再更新
+ */
+public class IndexedBookRepository extends ForwardingBookRepository implements ChangeListener {
+    private static final Logger logger = Logger.getLogger(IndexedBookRepository.class);
+    private final BookSearchIndex index;
+
+    public IndexedBookRepository(BookRepository delegate, BookSearchIndex index) {
+        super(delegate);
+        this.index = index;
+    }
+
+    /**
+     * 从数据库流式读取全部图书重建索引
+     */
+    public int rebuildIndex() {
+        try (Stream<Book> books = delegate.streamAll()) {
+            return index.rebuild(books);
+        }
+    }
+
+    /**
+     * 变更订阅回调：增量应用新增/修改和删除，其他进程的写入无需全量重建即可反映到索引
+     */
+    @Override
+    public void onChanges(ChangeSet changes) {
+        for (BookChange change : changes.getChanges()) {
+            if (change.isDelete()) {
+                index.remove(change.getId());
+            } else {
+                index.index(change.getBook());
+            }
+        }
+    }
+
+    public BookSearchIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    public Book save(Book book) {
+        Book saved = delegate.save(book);
+        TransactionManager.afterCommit(() -> index.index(saved));
+        return saved;
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<Book> books) {
+        BatchSaveResult result = delegate.saveAll(books);
+        TransactionManager.afterCommit(() -> result.getSaved().forEach(index::index));
+        return result;
+    }
+
+    @Override
+    public UpsertResult.Outcome upsert(Book book, ConflictPolicy policy) {
+        UpsertResult.Outcome outcome = delegate.upsert(book, policy);
+        if (outcome != UpsertResult.Outcome.SKIPPED) {
+            Long id = book.getId();
+            TransactionManager.afterCommit(() -> reindex(List.of(id)));
+        }
+        return outcome;
+    }
+
+    @Override
+    public UpsertResult upsertAll(Collection<Book> books, ConflictPolicy policy) {
+        UpsertResult result = delegate.upsertAll(books, policy);
+        List<Long> ids = result.getWritten().stream().map(Book::getId).toList();
+        if (!ids.isEmpty()) {
+            TransactionManager.afterCommit(() -> reindex(ids));
+        }
+        return result;
+    }
+
+    // upsert 写入的内容以库中为准（update_time 由库生成，传入对象可能与实际写入的不同），提交后重新读取再建索引
+    private void reindex(Collection<Long> ids) {
+        MultiGetResult<Long> rows = delegate.findByIds(ids);
+        rows.getFound().values().forEach(index::index);
+        rows.getMissing().forEach(index::remove);
+    }
+
+    @Override
+    public void updateStock(Long id, int newStock) {
+        delegate.updateStock(id, newStock);
+        TransactionManager.afterCommit(() -> index.updateStock(id, newStock));
+    }
+
+    @Override
+    public int adjustStock(Long id, int delta) {
+        int newStock = delegate.adjustStock(id, delta);
+        TransactionManager.afterCommit(() -> index.updateStock(id, newStock));
+        return newStock;
+    }
+
+    @Override
+    public StockAdjustmentResult bulkAdjustStock(Stream<StockAdjustment> adjustments) {
+        StockAdjustmentResult result = delegate.bulkAdjustStock(adjustments);
+        TransactionManager.afterCommit(() -> {
+            for (StockAdjustmentResult.Line line : result.getLines()) {
+                if (line.getStatus() == StockAdjustmentResult.Status.APPLIED) {
+                    index.updateStock(line.getBookId(), line.getNewStock());
+                }
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Integer> adjustStockAsync(Long id, int delta) {
+        return delegate.adjustStockAsync(id, delta).thenApply(newStock -> {
+            index.updateStock(id, newStock);
+            return newStock;
+        });
+    }
+
+    @Override
+    public void delete(Long id) {
+        delegate.delete(id);
+        TransactionManager.afterCommit(() -> index.remove(id));
+    }
+
+    @Override
+    public List<Book> searchBooks(String keyword, String type) {
+        List<Book> books = index.search(keyword, type, 0L, Integer.MAX_VALUE);
+        logger.debug("Found " + books.size() + " books matching search criteria from index");
+        return books;
+    }
+
+    @Override
+    public List<Book> findByTitle(String title) {
+        return index.searchTitle(title, 0L, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Page<Book> searchBooksPage(String keyword, String type, String pageToken, int pageSize) {
+        Page.checkPageSize(pageSize);
+        List<Book> fetched = index.search(keyword, type, Page.decodeToken(pageToken), pageSize + 1);
+        return Page.of(fetched, pageSize, Book::getId);
+    }
+}
@@ -0,0 +1,45 @@
+package com.library.repository.impl;
+
+import com.library.repository.BookRepository;
+import com.library.repository.StorageEngine;
+import com.library.repository.UserRepository;
+import com.library.util.DBHandler;
+
+import java.util.Properties;
+
+/**
+ * MySQL 存储引擎
+ * 作用：使用 DBHandler 连接池的 JDBC 仓库实现
+ */
+public class JdbcStorageEngine implements StorageEngine {
+    private final BookRepositoryImpl bookRepository;
+    private final UserRepositoryImpl userRepository;
+
+    public JdbcStorageEngine(Properties props) {
+        this.bookRepository = new BookRepositoryImpl(props);
+        this.userRepository = new UserRepositoryImpl(props);
+    }
+
+    @Override
+    public BookRepository getBookRepository() {
+        return bookRepository;
+    }
+
+    @Override
+    public UserRepository getUserRepository() {
+        return userRepository;
+    }
+
+    // 超过连接池大小的并发调用只会在 getConnection() 上排队
+    @Override
+    public int getMaxConcurrency() {
+        return DBHandler.getMaximumPoolSize();
+    }
+
+    @Override
+    public void shutdown() {
+        // 先刷新库存组提交队列，再关闭连接池
+        bookRepository.shutdown();
+        DBHandler.shutdown();
+    }
+}
@@ -0,0 +1,63 @@
+package com.library.repository.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 低库存排名
+ * 作用：按 (库存, id) 升序只保留前 limit 项的有界堆，输入无论多少，内存占用只与 limit 成正比
+ * 说明：用于内存存储的全量扫描，以及数据库按类型分别取前 limit 项后的跨类型合并
+ */
+final class LowStockRanking<T> {
+    private final int limit;
+    // 大顶堆：堆顶是当前保留项中排名最靠后的一项，新项更靠前时替换它
+    private final PriorityQueue<Ranked<T>> heap;
+
+    LowStockRanking(int limit) {
+        this.limit = limit;
+        this.heap = new PriorityQueue<>(Math.min(limit, 1024), Ranked.<T>order().reversed());
+    }
+
+    void offer(int stock, long id, T item) {
+        if (heap.size() < limit) {
+            heap.add(new Ranked<>(stock, id, item));
+            return;
+        }
+        Ranked<T> last = heap.peek();
+        if (stock < last.stock || stock == last.stock && id < last.id) {
+            heap.poll();
+            heap.add(new Ranked<>(stock, id, item));
+        }
+    }
+
+    /**
+     * 按库存升序返回保留的项
+     */
+    List<T> result() {
+        List<Ranked<T>> ranked = new ArrayList<>(heap);
+        ranked.sort(Ranked.order());
+        List<T> items = new ArrayList<>(ranked.size());
+        for (Ranked<T> entry : ranked) {
+            items.add(entry.item);
+        }
+        return items;
+    }
+
+    private static final class Ranked<T> {
+        private final int stock;
+        private final long id;
+        private final T item;
+
+        private Ranked(int stock, long id, T item) {
+            this.stock = stock;
+            this.id = id;
+            this.item = item;
+        }
+
+        private static <T> Comparator<Ranked<T>> order() {
+            return Comparator.<Ranked<T>>comparingInt(r -> r.stock).thenComparingLong(r -> r.id);
+        }
+    }
+}
@@ -0,0 +1,1174 @@
+package com.library.repository.impl;
+
+import com.library.domain.book.Book;
+import com.library.domain.book.InsufficientStockException;
+import com.library.repository.BatchSaveResult;
+import com.library.repository.BookChange;
+import com.library.repository.BookRepository;
+import com.library.repository.CatalogStats;
+import com.library.repository.ChangeSet;
+import com.library.repository.ChangeWatermark;
+import com.library.repository.ConflictPolicy;
+import com.library.repository.MultiGetResult;
+import com.library.repository.Page;
+import com.library.repository.StockAdjustment;
+import com.library.repository.StockAdjustmentResult;
+import com.library.repository.UpsertResult;
+import com.library.util.ConfigUtils;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 内存映射图书目录
+ * 作用：把图书目录保存在内存映射文件中，读操作不经过 JDBC，记录数据不占用 Java 堆，
+ * 重启时直接重新映射文件而不是重新加载
+ * 文件布局（目录 storage.mapped.dir 下）：
+ * - books-N.dat：64 字节文件头 + 定长 128 字节记录槽，第 id-1 个槽保存 id 对应的图书
+ * - strings-N.dat：字符串堆，保存 ISBN、标题、作者和三个特有属性（4 字节长度 + UTF-8 内容）
+ * - isbn.idx：堆外 ISBN 哈希索引
+ * - overwrite.journal：原地覆盖记录时的重做日志，保存一条待写入的完整记录
+ * - CURRENT：当前生效的文件代号 N
+ * 崩溃安全：
+ * - 新增记录时先追加字符串、写好记录内容，最后写入状态字节作为提交标记
+ * - 删除只把状态字节改为已删除，库存更新是单个字段的原地写
+ * - 覆盖已有记录（upsert）时先把新记录写入重做日志并置有效标记，再写回记录槽，最后清除标记；
+ *   打开时日志仍有效则重新写回，记录不会只更新一部分
+ * - 打开时若上次未正常关闭，扫描记录槽恢复文件头并重建 ISBN 索引
+ * - 压缩把存活记录的字符串写入新一代文件，落盘后原子替换 CURRENT 再删除旧文件
+ * 说明：id 与记录槽一一对应，压缩只回收字符串堆，不回收已删除的槽，id 不会复用；
+ * storage.mapped.sync=true 时每次写入都会 force 到磁盘，可抵御断电，否则只保证进程崩溃安全
+ */
+public class MappedBookRepository implements BookRepository, Closeable {
+    private static final Logger logger = Logger.getLogger(MappedBookRepository.class);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Pattern DATA_FILE = Pattern.compile("(books|strings)-(\\d+)\\.dat");
+
+    private static final int MAGIC = 0x4C42444B; // "LBDK"
+    private static final int VERSION = 1;
+
+    // 文件头
+    private static final int HEADER_SIZE = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_SLOT_COUNT = 8;
+    private static final int H_HEAP_END = 16;
+    private static final int H_LIVE_HEAP = 24;
+    private static final int H_CLEAN = 32;
+
+    // 记录槽
+    private static final int SLOT_SIZE = 128;
+    private static final int S_STATUS = 0;
+    private static final int S_TYPE = 1;
+    private static final int S_STOCK = 4;
+    private static final int S_ID = 8;
+    private static final int S_CREATE_TIME = 16;
+    private static final int S_UPDATE_TIME = 24;
+    private static final int S_REFS = 32;
+    private static final int REF_ISBN = 0;
+    private static final int REF_TITLE = 1;
+    private static final int REF_AUTHOR = 2;
+    private static final int REF_ATTRIBUTES = 3;
+    private static final int REF_COUNT = 6;
+    private static final long NULL_REF = -1L;
+
+    private static final byte STATUS_EMPTY = 0;
+    private static final byte STATUS_LIVE = 1;
+    private static final byte STATUS_DELETED = 2;
+
+    // 重做日志：有效标记、文件代号、槽号、完整记录
+    private static final int J_VALID = 0;
+    private static final int J_GENERATION = 8;
+    private static final int J_SLOT = 16;
+    private static final int J_RECORD = 32;
+    private static final int JOURNAL_SIZE = J_RECORD + SLOT_SIZE;
+
+    private static final int INITIAL_SLOTS = 1024;
+    // streamAll 每次持读锁解码的记录数
+    private static final int STREAM_CHUNK_SIZE = 1000;
+    private static final int INITIAL_HEAP = 1 << 20;
+    // 字符串堆超过该大小且一半以上是垃圾时自动压缩
+    private static final long COMPACT_THRESHOLD = 4L << 20;
+
+    private static final BookTypeColumns[] TYPES = BookTypeColumns.values();
+
+    private final Path dir;
+    private final boolean sync;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long generation;
+    private MappedFile slots;
+    private MappedFile heap;
+    private MappedIsbnIndex isbnIndex;
+    private MappedFile journal;
+    private int slotCount;
+    private int heapEnd;
+    private long liveHeapBytes;
+    private boolean closed;
+
+    public MappedBookRepository(Properties props) {
+        this(Paths.get(ConfigUtils.getString(props, "storage.mapped.dir", "data/catalog").trim()),
+            ConfigUtils.getBoolean(props, "storage.mapped.sync", false));
+    }
+
+    public MappedBookRepository(Path dir, boolean sync) {
+        this.dir = dir;
+        this.sync = sync;
+        try {
+            Files.createDirectories(dir);
+            open();
+        } catch (IOException e) {
+            logger.error("Error opening mapped catalog: " + dir, e);
+            throw new RuntimeException("打开图书目录文件失败: " + dir, e);
+        }
+    }
+
+    private void open() throws IOException {
+        generation = readCurrentGeneration();
+        if (generation == 0) {
+            generation = 1;
+            writeCurrentGeneration(generation);
+        }
+        deleteStaleFiles();
+
+        slots = new MappedFile(slotsPath(generation), HEADER_SIZE + (long) INITIAL_SLOTS * SLOT_SIZE);
+        heap = new MappedFile(heapPath(generation), INITIAL_HEAP);
+        MappedByteBuffer header = slots.buffer();
+        int magic = header.getInt(H_MAGIC);
+        if (magic == 0) {
+            header.putInt(H_MAGIC, MAGIC);
+            header.putInt(H_VERSION, VERSION);
+            header.put(H_CLEAN, (byte) 1);
+        } else if (magic != MAGIC || header.getInt(H_VERSION) != VERSION) {
+            throw new IOException("Not a catalog file: " + slots.getPath());
+        }
+        journal = new MappedFile(journalPath(), JOURNAL_SIZE);
+        replayJournal();
+
+        if (header.get(H_CLEAN) == 1) {
+            slotCount = (int) header.getLong(H_SLOT_COUNT);
+            heapEnd = (int) header.getLong(H_HEAP_END);
+            liveHeapBytes = header.getLong(H_LIVE_HEAP);
+            isbnIndex = MappedIsbnIndex.open(indexPath());
+        } else {
+            recover();
+        }
+        if (isbnIndex == null || isbnIndex.size() != countLive()) {
+            rebuildIndex();
+        }
+
+        // 打开期间标记为未正常关闭，close() 时再恢复
+        header.put(H_CLEAN, (byte) 0);
+        slots.force();
+        logger.info("Mapped catalog opened: " + dir + " (generation " + generation + ", "
+            + isbnIndex.size() + " books)");
+    }
+
+    // 上次未正常关闭：以状态字节为准重新计算记录数和字符串堆边界，ISBN 索引随后重建
+    private void recover() throws IOException {
+        MappedByteBuffer buf = slots.buffer();
+        int capacity = (slots.capacity() - HEADER_SIZE) / SLOT_SIZE;
+        slotCount = 0;
+        heapEnd = 0;
+        liveHeapBytes = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            byte status = buf.get(slotOffset(slot) + S_STATUS);
+            if (status != STATUS_LIVE && status != STATUS_DELETED) {
+                continue;
+            }
+            slotCount = slot + 1;
+            for (int ref = 0; ref < REF_COUNT; ref++) {
+                long offset = refAt(slot, ref);
+                if (offset == NULL_REF) {
+                    continue;
+                }
+                int size = stringSize(offset);
+                heapEnd = (int) Math.max(heapEnd, offset + size);
+                if (status == STATUS_LIVE) {
+                    liveHeapBytes += size;
+                }
+            }
+        }
+        writeHeader();
+        if (isbnIndex != null) {
+            isbnIndex.close();
+            isbnIndex = null;
+        }
+        logger.warn("Mapped catalog was not closed cleanly, recovered " + slotCount + " slots");
+    }
+
+    private void rebuildIndex() throws IOException {
+        if (isbnIndex != null) {
+            isbnIndex.close();
+        }
+        isbnIndex = MappedIsbnIndex.create(indexPath(), countLive());
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isLive(slot)) {
+                isbnIndex.put(readString(refAt(slot, REF_ISBN)), slot + 1L);
+            }
+        }
+        isbnIndex.force();
+        logger.info("Rebuilt ISBN index with " + isbnIndex.size() + " entries");
+    }
+
+    @Override
+    public Book save(Book book) {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            insert(book);
+            return book;
+        } catch (IllegalArgumentException | IllegalStateException | IOException e) {
+            logger.error("Error saving book", e);
+            throw new RuntimeException("Error saving book", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<Book> books) {
+        BatchSaveResult result = new BatchSaveResult();
+        if (books == null || books.isEmpty()) {
+            return result;
+        }
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            for (Book book : books) {
+                try {
+                    insert(book);
+                    result.addSaved(book);
+                } catch (IllegalArgumentException | IllegalStateException | IOException e) {
+                    result.addFailure(book, e.getMessage());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.debug("Batch saved " + result.getSavedCount() + " books, " + result.getFailedCount() + " failed");
+        return result;
+    }
+
+    @Override
+    public UpsertResult.Outcome upsert(Book book, ConflictPolicy policy) {
+        return upsertAll(Collections.singletonList(book), policy).singleOutcome();
+    }
+
+    @Override
+    public UpsertResult upsertAll(Collection<Book> books, ConflictPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Conflict policy cannot be null");
+        }
+        UpsertResult result = new UpsertResult();
+        if (books == null || books.isEmpty()) {
+            return result;
+        }
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            for (Book book : books) {
+                try {
+                    result.add(book, upsertOne(book, policy));
+                } catch (IllegalArgumentException | IllegalStateException | IOException e) {
+                    result.addFailure(book, e.getMessage());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.debug("Batch upsert finished: " + result);
+        return result;
+    }
+
+    // 调用方需持有写锁；与 books 表一致，保留传入的 create_time，写入的行 update_time 为当前时间，
+    // 传入的 update_time 只参与冲突判定；只有实际写入的行回填 id
+    private UpsertResult.Outcome upsertOne(Book book, ConflictPolicy policy) throws IOException {
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null");
+        }
+        int slot = book.getIsbn() == null ? -1 : findSlotByIsbn(book.getIsbn());
+        if (slot < 0) {
+            insert(book, parseTime(book.getCreateTime()), System.currentTimeMillis());
+            return UpsertResult.Outcome.INSERTED;
+        }
+        long existingUpdateTime = slots.buffer().getLong(slotOffset(slot) + S_UPDATE_TIME);
+        if (!policy.overwrites(formatTime(existingUpdateTime), book.getUpdateTime())) {
+            return UpsertResult.Outcome.SKIPPED;
+        }
+        overwrite(slot, book);
+        book.setId(slot + 1L);
+        return UpsertResult.Outcome.UPDATED;
+    }
+
+    // 原地覆盖：先追加新字符串，再经重做日志整条写回记录（见 writeRecordJournaled）
+    private void overwrite(int slot, Book book) throws IOException {
+        if (book.getTitle() == null || book.getAuthor() == null || book.getType() == null) {
+            throw new IllegalArgumentException("Column 'title', 'author' and 'type' cannot be null");
+        }
+        BookTypeColumns typeColumns = BookTypeColumns.forBook(book)
+            .orElseThrow(() -> new IllegalArgumentException("Unknown book type: " + book.getType()));
+        long updateTime = System.currentTimeMillis();
+
+        String[] attributes = typeColumns.getAttributes(book);
+        long[] refs = new long[REF_COUNT];
+        int start = heapEnd;
+        refs[REF_ISBN] = refAt(slot, REF_ISBN);
+        refs[REF_TITLE] = appendString(book.getTitle());
+        refs[REF_AUTHOR] = appendString(book.getAuthor());
+        for (int i = 0; i < attributes.length; i++) {
+            refs[REF_ATTRIBUTES + i] = appendString(attributes[i]);
+        }
+        if (sync) {
+            heap.force();
+        }
+
+        long oldBytes = recordHeapBytes(slot);
+        byte[] record = new byte[SLOT_SIZE];
+        slots.buffer().get(slotOffset(slot), record);
+        ByteBuffer image = ByteBuffer.wrap(record);
+        image.put(S_TYPE, (byte) typeColumns.ordinal());
+        image.putInt(S_STOCK, book.getStock());
+        for (int i = 0; i < REF_COUNT; i++) {
+            image.putLong(S_REFS + i * Long.BYTES, refs[i]);
+        }
+        image.putLong(S_UPDATE_TIME, updateTime);
+        writeRecordJournaled(slot, record);
+        liveHeapBytes += stringSize(refs[REF_ISBN]) + (heapEnd - start) - oldBytes;
+        writeHeader();
+        forceIfSync();
+    }
+
+    // 新记录先完整写入日志，有效标记最后写；写回记录槽并落盘后再清除标记
+    private void writeRecordJournaled(int slot, byte[] record) {
+        MappedByteBuffer log = journal.buffer();
+        log.putLong(J_GENERATION, generation);
+        log.putInt(J_SLOT, slot);
+        log.put(J_RECORD, record);
+        if (sync) {
+            journal.force();
+        }
+        log.put(J_VALID, (byte) 1);
+        if (sync) {
+            journal.force();
+        }
+        slots.buffer().put(slotOffset(slot), record);
+        if (sync) {
+            slots.force();
+        }
+        log.put(J_VALID, (byte) 0);
+    }
+
+    // 上次覆盖记录时崩溃：日志有效且属于当前代文件时重新写回整条记录；随后的恢复会按记录重算字符串堆边界
+    private void replayJournal() {
+        MappedByteBuffer log = journal.buffer();
+        if (log.get(J_VALID) != 1) {
+            return;
+        }
+        int slot = log.getInt(J_SLOT);
+        if (log.getLong(J_GENERATION) == generation && slot >= 0
+                && slotOffset(slot) + (long) SLOT_SIZE <= slots.capacity()) {
+            byte[] record = new byte[SLOT_SIZE];
+            log.get(J_RECORD, record);
+            slots.buffer().put(slotOffset(slot), record);
+            slots.force();
+            logger.warn("Replayed interrupted overwrite of catalog record " + (slot + 1));
+        }
+        log.put(J_VALID, (byte) 0);
+        journal.force();
+    }
+
+    // 调用方需持有写锁
+    private void insert(Book book) throws IOException {
+        long now = System.currentTimeMillis();
+        insert(book, now, now);
+    }
+
+    // 调用方需持有写锁
+    private void insert(Book book, long createTime, long updateTime) throws IOException {
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null");
+        }
+        if (book.getIsbn() == null || book.getTitle() == null || book.getAuthor() == null || book.getType() == null) {
+            throw new IllegalArgumentException("Column 'isbn', 'title', 'author' and 'type' cannot be null");
+        }
+        BookTypeColumns typeColumns = BookTypeColumns.forBook(book)
+            .orElseThrow(() -> new IllegalArgumentException("Unknown book type: " + book.getType()));
+        if (findSlotByIsbn(book.getIsbn()) >= 0) {
+            throw new IllegalStateException("Duplicate entry '" + book.getIsbn() + "' for key 'uk_isbn'");
+        }
+
+        int slot = slotCount;
+        long id = slot + 1L;
+        slots.ensureCapacity(slotOffset(slot + 1));
+
+        // 1. 追加字符串
+        String[] attributes = typeColumns.getAttributes(book);
+        long[] refs = new long[REF_COUNT];
+        int start = heapEnd;
+        refs[REF_ISBN] = appendString(book.getIsbn());
+        refs[REF_TITLE] = appendString(book.getTitle());
+        refs[REF_AUTHOR] = appendString(book.getAuthor());
+        for (int i = 0; i < attributes.length; i++) {
+            refs[REF_ATTRIBUTES + i] = appendString(attributes[i]);
+        }
+
+        // 2. 写记录内容（状态仍为空槽）
+        MappedByteBuffer buf = slots.buffer();
+        int pos = slotOffset(slot);
+        buf.put(pos + S_STATUS, STATUS_EMPTY);
+        buf.put(pos + S_TYPE, (byte) typeColumns.ordinal());
+        buf.putInt(pos + S_STOCK, book.getStock());
+        buf.putLong(pos + S_ID, id);
+        buf.putLong(pos + S_CREATE_TIME, createTime);
+        buf.putLong(pos + S_UPDATE_TIME, updateTime);
+        for (int i = 0; i < REF_COUNT; i++) {
+            buf.putLong(pos + S_REFS + i * Long.BYTES, refs[i]);
+        }
+        if (sync) {
+            heap.force();
+            slots.force();
+        }
+
+        // 3. 写状态字节作为提交标记，再更新文件头和索引
+        buf.put(pos + S_STATUS, STATUS_LIVE);
+        slotCount++;
+        liveHeapBytes += heapEnd - start;
+        writeHeader();
+        isbnIndex.put(book.getIsbn(), id);
+        forceIfSync();
+
+        book.setId(id);
+    }
+
+    @Override
+    public Optional<Book> findById(Long id) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            int slot = slotOf(id);
+            return slot >= 0 && isLive(slot) ? Optional.of(readBook(slot)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Book> findByIsbn(String isbn) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            int slot = isbn == null ? -1 : findSlotByIsbn(isbn);
+            return slot >= 0 ? Optional.of(readBook(slot)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public MultiGetResult<Long> findByIds(Collection<Long> ids) {
+        List<Long> keys = MultiGetResult.distinctKeys(ids);
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            return MultiGetResult.of(keys, id -> {
+                int slot = slotOf(id);
+                return slot >= 0 && isLive(slot) ? readBook(slot) : null;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public MultiGetResult<String> findByIsbns(Collection<String> isbns) {
+        List<String> keys = MultiGetResult.distinctKeys(isbns);
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            return MultiGetResult.of(keys, isbn -> {
+                int slot = findSlotByIsbn(isbn);
+                return slot >= 0 ? readBook(slot) : null;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> findByTitle(String title) {
+        return select(containsIgnoreCase(title, REF_TITLE), 0L, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Book> findByType(String type) {
+        return select(sameType(type), 0L, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return select(slot -> true, 0L, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 按 id 顺序分块读取，每块在读锁内解码 STREAM_CHUNK_SIZE 本，块之间释放读锁，
+     * 不会把整个目录加载到内存；与数据库游标一样，扫描期间的写入可能部分可见
+     */
+    @Override
+    public Stream<Book> streamAll() {
+        Spliterator<Book> chunks = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private long afterId;
+            private Iterator<Book> current = Collections.emptyIterator();
+            private boolean exhausted;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Book> action) {
+                while (!current.hasNext()) {
+                    if (exhausted) {
+                        return false;
+                    }
+                    List<Book> chunk = select(slot -> true, afterId, STREAM_CHUNK_SIZE);
+                    exhausted = chunk.size() < STREAM_CHUNK_SIZE;
+                    if (!chunk.isEmpty()) {
+                        afterId = chunk.get(chunk.size() - 1).getId();
+                    }
+                    current = chunk.iterator();
+                }
+                action.accept(current.next());
+                return true;
+            }
+        };
+        return StreamSupport.stream(chunks, false);
+    }
+
+    @Override
+    public void updateStock(Long id, int newStock) {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            writeStock(requireLive(id), newStock);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int adjustStock(Long id, int delta) {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            int slot = requireLive(id);
+            int stock = slots.buffer().getInt(slotOffset(slot) + S_STOCK);
+            int newStock = stock + delta;
+            if (newStock < 0) {
+                throw new InsufficientStockException(id, delta, stock);
+            }
+            writeStock(slot, newStock);
+            return newStock;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Integer> adjustStockAsync(Long id, int delta) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID cannot be null");
+        }
+        // 原地写入没有事务提交开销，直接同步完成
+        try {
+            return CompletableFuture.completedFuture(adjustStock(id, delta));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void writeStock(int slot, int stock) {
+        MappedByteBuffer buf = slots.buffer();
+        int pos = slotOffset(slot);
+        buf.putInt(pos + S_STOCK, stock);
+        buf.putLong(pos + S_UPDATE_TIME, System.currentTimeMillis());
+        forceIfSync();
+    }
+
+    @Override
+    public StockAdjustmentResult bulkAdjustStock(Stream<StockAdjustment> adjustments) {
+        StockAdjustmentResult result = new StockAdjustmentResult();
+        StockAdjustmentPlan.forEachChunk(adjustments, StockAdjustmentPlan.DEFAULT_CHUNK_SIZE, (firstLine, chunk) -> {
+            lock.writeLock().lock();
+            try {
+                checkOpen();
+                MappedByteBuffer buf = slots.buffer();
+                StockAdjustmentPlan plan = new StockAdjustmentPlan(firstLine, chunk, isbn -> {
+                    int slot = findSlotByIsbn(isbn);
+                    return slot < 0 ? null
+                        : new StockAdjustmentPlan.CurrentStock(slot + 1L, buf.getInt(slotOffset(slot) + S_STOCK));
+                });
+                // 整块写完后只刷盘一次
+                long now = System.currentTimeMillis();
+                plan.getUpdates().forEach((id, stock) -> {
+                    int pos = slotOffset((int) (id - 1));
+                    buf.putInt(pos + S_STOCK, stock);
+                    buf.putLong(pos + S_UPDATE_TIME, now);
+                });
+                if (!plan.getUpdates().isEmpty()) {
+                    forceIfSync();
+                }
+                plan.commitTo(result);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+        logger.debug("Bulk stock adjustment finished: " + result);
+        return result;
+    }
+
+    @Override
+    public void delete(Long id) {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            int slot = requireLive(id);
+            String isbn = readString(refAt(slot, REF_ISBN));
+            // 已删除的槽不会复用，删除时间即作为变更订阅的删除记录
+            slots.buffer().putLong(slotOffset(slot) + S_UPDATE_TIME, System.currentTimeMillis());
+            slots.buffer().put(slotOffset(slot) + S_STATUS, STATUS_DELETED);
+            liveHeapBytes -= recordHeapBytes(slot);
+            writeHeader();
+            isbnIndex.remove(isbn, id);
+            forceIfSync();
+            logger.debug("Successfully deleted book with id: " + id);
+
+            if (heapEnd > COMPACT_THRESHOLD && liveHeapBytes * 2 < heapEnd) {
+                compactLocked();
+            }
+        } catch (IOException e) {
+            logger.error("Error deleting book", e);
+            throw new RuntimeException("Error deleting book", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(String isbn) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            return isbn != null && findSlotByIsbn(isbn) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long countAll() {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            return countLive();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CatalogStats getCatalogStats() {
+        // 只读取槽位中的类型和库存字段，不解码字符串
+        CatalogStats stats = new CatalogStats();
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            MappedByteBuffer buf = slots.buffer();
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (isLive(slot)) {
+                    int pos = slotOffset(slot);
+                    stats.accumulate(TYPES[buf.get(pos + S_TYPE)].getType(), buf.getInt(pos + S_STOCK));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stats;
+    }
+
+    @Override
+    public List<Book> findLowStock(int threshold, String type, int limit) {
+        IntPredicate typeFilter = type == null || type.trim().isEmpty() ? slot -> true : sameType(type.trim());
+        // 堆中只保存槽位号，最终入选的记录才解码为图书
+        LowStockRanking<Integer> ranking = new LowStockRanking<>(limit);
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            MappedByteBuffer buf = slots.buffer();
+            for (int slot = 0; slot < slotCount; slot++) {
+                int stock = buf.getInt(slotOffset(slot) + S_STOCK);
+                if (stock < threshold && isLive(slot) && typeFilter.test(slot)) {
+                    ranking.offer(stock, slot + 1L, slot);
+                }
+            }
+            List<Book> result = new ArrayList<>();
+            for (int slot : ranking.result()) {
+                result.add(readBook(slot));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> searchBooks(String keyword, String type) {
+        return select(searchFilter(keyword, type), 0L, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Page<Book> findAllPage(String pageToken, int pageSize) {
+        return selectPage(slot -> true, pageToken, pageSize);
+    }
+
+    @Override
+    public Page<Book> findByTypePage(String type, String pageToken, int pageSize) {
+        return selectPage(sameType(type), pageToken, pageSize);
+    }
+
+    @Override
+    public Page<Book> searchBooksPage(String keyword, String type, String pageToken, int pageSize) {
+        return selectPage(searchFilter(keyword, type), pageToken, pageSize);
+    }
+
+    @Override
+    public ChangeSet findChangesSince(ChangeWatermark since, int limit, int lagSeconds) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        ChangeWatermark from = since != null ? since : ChangeWatermark.INITIAL;
+        String cutoff = formatTime(System.currentTimeMillis() - Math.max(0, lagSeconds) * 1000L);
+        // 先按毫秒值粗筛，早于水位所在秒的记录无需格式化时间
+        long fromMillis = parseTime(from.getTime());
+        List<BookChange> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            MappedByteBuffer buf = slots.buffer();
+            for (int slot = 0; slot < slotCount; slot++) {
+                int pos = slotOffset(slot);
+                byte status = buf.get(pos + S_STATUS);
+                long updateMillis = buf.getLong(pos + S_UPDATE_TIME);
+                if (updateMillis < fromMillis || status != STATUS_LIVE && status != STATUS_DELETED) {
+                    continue;
+                }
+                String time = formatTime(updateMillis);
+                long id = slot + 1L;
+                BookChange.Type type = status == STATUS_LIVE ? BookChange.Type.UPSERT : BookChange.Type.DELETE;
+                if (!from.isBefore(time, id, type) || time.compareTo(cutoff) >= 0) {
+                    continue;
+                }
+                if (status == STATUS_LIVE) {
+                    candidates.add(BookChange.upsert(readBook(slot)));
+                } else if (status == STATUS_DELETED) {
+                    // 压缩后已删除记录的字符串被回收，ISBN 不再可读
+                    long isbnRef = refAt(slot, REF_ISBN);
+                    candidates.add(BookChange.delete(id, isbnRef == NULL_REF ? null : readString(isbnRef), time));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ChangeSet.of(candidates, from, limit);
+    }
+
+    // 删除记录就是已删除的记录槽：槽与 id 一一对应、不会回收，压缩已回收其字符串，无需额外清理
+    @Override
+    public int purgeTombstones(String before, ChangeWatermark oldest) {
+        return 0;
+    }
+
+    /**
+     * 压缩字符串堆：只把存活记录引用的字符串写入新一代文件，原子切换后删除旧文件
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            compactLocked();
+        } catch (IOException e) {
+            logger.error("Error compacting mapped catalog", e);
+            throw new RuntimeException("压缩图书目录文件失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        long start = System.nanoTime();
+        long next = generation + 1;
+        Files.deleteIfExists(slotsPath(next));
+        Files.deleteIfExists(heapPath(next));
+        MappedFile newSlots = new MappedFile(slotsPath(next), slots.capacity());
+        MappedFile newHeap = new MappedFile(heapPath(next), Math.max(INITIAL_HEAP, liveHeapBytes));
+        int newHeapEnd = 0;
+        try {
+            MappedByteBuffer src = slots.buffer();
+            byte[] record = new byte[SLOT_SIZE];
+            for (int slot = 0; slot < slotCount; slot++) {
+                int pos = slotOffset(slot);
+                src.get(pos, record);
+                newSlots.buffer().put(pos, record);
+                boolean live = record[S_STATUS] == STATUS_LIVE;
+                for (int ref = 0; ref < REF_COUNT; ref++) {
+                    long offset = refAt(slot, ref);
+                    long newOffset = NULL_REF;
+                    if (live && offset != NULL_REF) {
+                        newOffset = newHeapEnd;
+                        newHeapEnd = copyString(offset, newHeap, newHeapEnd);
+                    }
+                    newSlots.buffer().putLong(pos + S_REFS + ref * Long.BYTES, newOffset);
+                }
+            }
+            MappedByteBuffer header = newSlots.buffer();
+            header.putInt(H_MAGIC, MAGIC);
+            header.putInt(H_VERSION, VERSION);
+            header.putLong(H_SLOT_COUNT, slotCount);
+            header.putLong(H_HEAP_END, newHeapEnd);
+            header.putLong(H_LIVE_HEAP, newHeapEnd);
+            header.put(H_CLEAN, (byte) 0);
+            newHeap.force();
+            newSlots.force();
+        } catch (IOException | RuntimeException e) {
+            newSlots.close();
+            newHeap.close();
+            Files.deleteIfExists(slotsPath(next));
+            Files.deleteIfExists(heapPath(next));
+            throw e;
+        }
+
+        // 提交点：CURRENT 指向新一代文件之后旧文件才可删除
+        writeCurrentGeneration(next);
+        long reclaimed = heapEnd - newHeapEnd;
+        slots.close();
+        heap.close();
+        Files.deleteIfExists(slotsPath(generation));
+        Files.deleteIfExists(heapPath(generation));
+        slots = newSlots;
+        heap = newHeap;
+        generation = next;
+        heapEnd = newHeapEnd;
+        liveHeapBytes = newHeapEnd;
+        logger.info("Compacted mapped catalog to generation " + generation + ", reclaimed " + reclaimed
+            + " bytes in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * 刷盘并标记为正常关闭，下次打开时无需恢复
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            writeHeader();
+            heap.force();
+            isbnIndex.force();
+            slots.force();
+            slots.buffer().put(H_CLEAN, (byte) 1);
+            slots.close();
+            heap.close();
+            isbnIndex.close();
+            journal.close();
+            closed = true;
+            logger.info("Mapped catalog closed: " + dir);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Page<Book> selectPage(IntPredicate filter, String pageToken, int pageSize) {
+        Page.checkPageSize(pageSize);
+        List<Book> fetched = select(filter, Page.decodeToken(pageToken), pageSize + 1);
+        return Page.of(fetched, pageSize, Book::getId);
+    }
+
+    // 按槽顺序（即 id 顺序）扫描，过滤条件只解码需要的字段，命中后才解码整条记录
+    private List<Book> select(IntPredicate filter, long afterId, int limit) {
+        List<Book> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            for (long slot = Math.max(0L, afterId); slot < slotCount && result.size() < limit; slot++) {
+                if (isLive((int) slot) && filter.test((int) slot)) {
+                    result.add(readBook((int) slot));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private IntPredicate searchFilter(String keyword, String type) {
+        IntPredicate filter = slot -> true;
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            filter = containsIgnoreCase(keyword, REF_TITLE).or(containsIgnoreCase(keyword, REF_AUTHOR));
+        }
+        if (type != null && !type.trim().isEmpty()) {
+            filter = filter.and(sameType(type));
+        }
+        return filter;
+    }
+
+    private IntPredicate containsIgnoreCase(String text, int ref) {
+        String needle = String.valueOf(text).toLowerCase(Locale.ROOT);
+        return slot -> {
+            String value = readString(refAt(slot, ref));
+            return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+        };
+    }
+
+    private IntPredicate sameType(String type) {
+        int code = -1;
+        for (BookTypeColumns columns : TYPES) {
+            if (columns.getType().equalsIgnoreCase(type)) {
+                code = columns.ordinal();
+            }
+        }
+        int typeCode = code;
+        return slot -> slots.buffer().get(slotOffset(slot) + S_TYPE) == typeCode;
+    }
+
+    private Book readBook(int slot) {
+        MappedByteBuffer buf = slots.buffer();
+        int pos = slotOffset(slot);
+        BookTypeColumns typeColumns = TYPES[buf.get(pos + S_TYPE)];
+        Book book = typeColumns.newBook();
+        book.setId(buf.getLong(pos + S_ID));
+        book.setIsbn(readString(refAt(slot, REF_ISBN)));
+        book.setTitle(readString(refAt(slot, REF_TITLE)));
+        book.setAuthor(readString(refAt(slot, REF_AUTHOR)));
+        book.setType(typeColumns.getType());
+        book.setStock(buf.getInt(pos + S_STOCK));
+        book.setCreateTime(formatTime(buf.getLong(pos + S_CREATE_TIME)));
+        book.setUpdateTime(formatTime(buf.getLong(pos + S_UPDATE_TIME)));
+        typeColumns.setAttributes(book,
+            readString(refAt(slot, REF_ATTRIBUTES)),
+            readString(refAt(slot, REF_ATTRIBUTES + 1)),
+            readString(refAt(slot, REF_ATTRIBUTES + 2)));
+        return book;
+    }
+
+    private int findSlotByIsbn(String isbn) {
+        long id = isbnIndex.find(isbn, this::isbnOf);
+        return id > 0 ? (int) (id - 1) : -1;
+    }
+
+    // 索引回读 ISBN 时使用；只有存活记录才参与比较
+    private String isbnOf(long id) {
+        int slot = slotOf(id);
+        return slot >= 0 && isLive(slot) ? readString(refAt(slot, REF_ISBN)) : null;
+    }
+
+    private int requireLive(Long id) {
+        int slot = slotOf(id);
+        if (slot < 0 || !isLive(slot)) {
+            throw new RuntimeException("No book found with id: " + id);
+        }
+        return slot;
+    }
+
+    private int slotOf(Long id) {
+        return id == null || id < 1 || id > slotCount ? -1 : (int) (id - 1);
+    }
+
+    private boolean isLive(int slot) {
+        return slots.buffer().get(slotOffset(slot) + S_STATUS) == STATUS_LIVE;
+    }
+
+    private int countLive() {
+        int live = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isLive(slot)) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    private long refAt(int slot, int ref) {
+        return slots.buffer().getLong(slotOffset(slot) + S_REFS + ref * Long.BYTES);
+    }
+
+    private long recordHeapBytes(int slot) {
+        long bytes = 0;
+        for (int ref = 0; ref < REF_COUNT; ref++) {
+            long offset = refAt(slot, ref);
+            if (offset != NULL_REF) {
+                bytes += stringSize(offset);
+            }
+        }
+        return bytes;
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private long appendString(String value) throws IOException {
+        if (value == null) {
+            return NULL_REF;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int offset = heapEnd;
+        heap.ensureCapacity((long) offset + Integer.BYTES + bytes.length);
+        MappedByteBuffer buf = heap.buffer();
+        buf.putInt(offset, bytes.length);
+        buf.put(offset + Integer.BYTES, bytes);
+        heapEnd = offset + Integer.BYTES + bytes.length;
+        return offset;
+    }
+
+    private String readString(long offset) {
+        if (offset == NULL_REF) {
+            return null;
+        }
+        MappedByteBuffer buf = heap.buffer();
+        byte[] bytes = new byte[buf.getInt((int) offset)];
+        buf.get((int) offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int stringSize(long offset) {
+        return Integer.BYTES + heap.buffer().getInt((int) offset);
+    }
+
+    private int copyString(long offset, MappedFile target, int targetOffset) throws IOException {
+        MappedByteBuffer buf = heap.buffer();
+        byte[] entry = new byte[stringSize(offset)];
+        buf.get((int) offset, entry);
+        target.ensureCapacity((long) targetOffset + entry.length);
+        target.buffer().put(targetOffset, entry);
+        return targetOffset + entry.length;
+    }
+
+    private void writeHeader() {
+        MappedByteBuffer header = slots.buffer();
+        header.putLong(H_SLOT_COUNT, slotCount);
+        header.putLong(H_HEAP_END, heapEnd);
+        header.putLong(H_LIVE_HEAP, liveHeapBytes);
+    }
+
+    private void forceIfSync() {
+        if (sync) {
+            heap.force();
+            slots.force();
+            isbnIndex.force();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Mapped catalog is closed: " + dir);
+        }
+    }
+
+    private long readCurrentGeneration() throws IOException {
+        Path current = dir.resolve("CURRENT");
+        if (!Files.exists(current)) {
+            return 0L;
+        }
+        return Long.parseLong(Files.readString(current, StandardCharsets.UTF_8).trim());
+    }
+
+    // 先写临时文件并落盘，再原子重命名为 CURRENT
+    private void writeCurrentGeneration(long gen) throws IOException {
+        Path tmp = dir.resolve("CURRENT.tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(Long.toString(gen).getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        Files.move(tmp, dir.resolve("CURRENT"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // 删除压缩中途崩溃遗留的其他代文件
+    private void deleteStaleFiles() throws IOException {
+        Files.deleteIfExists(dir.resolve("CURRENT.tmp"));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.dat")) {
+            for (Path file : files) {
+                Matcher matcher = DATA_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches() && Long.parseLong(matcher.group(2)) != generation) {
+                    Files.delete(file);
+                    logger.info("Deleted stale catalog file: " + file);
+                }
+            }
+        }
+    }
+
+    private Path slotsPath(long gen) {
+        return dir.resolve("books-" + gen + ".dat");
+    }
+
+    private Path heapPath(long gen) {
+        return dir.resolve("strings-" + gen + ".dat");
+    }
+
+    private Path indexPath() {
+        return dir.resolve("isbn.idx");
+    }
+
+    private Path journalPath() {
+        return dir.resolve("overwrite.journal");
+    }
+
+    // yyyy-MM-dd HH:mm:ss 格式的时间转为毫秒，未设置时取当前时间
+    private static long parseTime(String time) {
+        if (time == null || time.trim().isEmpty()) {
+            return System.currentTimeMillis();
+        }
+        try {
+            return LocalDateTime.parse(time.trim(), TIME_FORMAT).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time: " + time, e);
+        }
+    }
+
+    private static String formatTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()).format(TIME_FORMAT);
+    }
+}
@@ -0,0 +1,72 @@
+package com.library.repository.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 可扩容的内存映射文件
+ * 作用：封装 FileChannel + MappedByteBuffer，空间不足时按倍数扩大文件并重新映射
+ * 说明：只使用绝对位置读写，读操作可以并发；扩容与写入由调用方加锁互斥。
+ * 单个映射最大 2GB
+ */
+final class MappedFile implements Closeable {
+    private static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    private final Path path;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    MappedFile(Path path, long initialSize) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map(Math.max(initialSize, channel.size()));
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    MappedByteBuffer buffer() {
+        return buffer;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * 保证文件至少有 required 字节，不足时按两倍扩容
+     */
+    void ensureCapacity(long required) throws IOException {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        if (required > MAX_SIZE) {
+            throw new IOException("Mapped file exceeds 2GB limit: " + path);
+        }
+        long size = buffer.capacity();
+        while (size < required) {
+            size = Math.min(MAX_SIZE, size * 2);
+        }
+        map(size);
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    private void map(long size) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,213 @@
+package com.library.repository.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.function.LongFunction;
+
+/**
+ * 堆外 ISBN 哈希索引
+ * 作用：在内存映射文件中维护 ISBN -> 图书 id 的开放寻址哈希表（线性探测）
+ * 布局：16 字节文件头（魔数、容量、有效条目数、已占用条目数）+ 每条 16 字节（id、哈希值）
+ * 说明：条目只保存 ISBN 的哈希值，命中后通过 isbnOf 回读记录中的 ISBN 做最终比较；
+ * 与 uk_isbn 一致，ISBN 不区分大小写，哈希和比较都基于小写形式；
+ * 索引可以随时由记录文件重建，因此不要求与记录文件原子一致
+ */
+final class MappedIsbnIndex implements Closeable {
+    // 版本 2 起按小写 ISBN 散列；旧版本的索引文件打开时魔数不符，会被重建
+    private static final int MAGIC = 0x4C424932; // "LBI2"
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 16;
+    private static final long EMPTY = 0L;
+    private static final long TOMBSTONE = -1L;
+    private static final int MIN_CAPACITY = 1024;
+
+    private final Path path;
+    private MappedFile file;
+    private int capacity;
+    private int count;
+    private int used;
+
+    private MappedIsbnIndex(Path path, MappedFile file, int capacity, int count, int used) {
+        this.path = path;
+        this.file = file;
+        this.capacity = capacity;
+        this.count = count;
+        this.used = used;
+    }
+
+    /**
+     * 打开已有索引；文件不存在或格式不符时返回 null，由调用方重建
+     */
+    static MappedIsbnIndex open(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) {
+            return null;
+        }
+        MappedFile file = new MappedFile(path, HEADER_SIZE);
+        MappedByteBuffer buf = file.buffer();
+        int capacity = buf.getInt(4);
+        if (buf.getInt(0) != MAGIC || Integer.bitCount(capacity) != 1
+                || file.capacity() < HEADER_SIZE + (long) capacity * ENTRY_SIZE) {
+            file.close();
+            return null;
+        }
+        return new MappedIsbnIndex(path, file, capacity, buf.getInt(8), buf.getInt(12));
+    }
+
+    /**
+     * 创建能容纳 expected 个条目的空索引，覆盖已有文件
+     */
+    static MappedIsbnIndex create(Path path, int expected) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        MappedFile file = createFile(tmp, capacityFor(expected));
+        file.close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return open(path);
+    }
+
+    /**
+     * 查找 ISBN 对应的图书 id，不存在时返回 0
+     */
+    long find(String isbn, LongFunction<String> isbnOf) {
+        String key = key(isbn);
+        int hash = hash(key);
+        MappedByteBuffer buf = file.buffer();
+        int mask = capacity - 1;
+        for (int i = hash & mask, probes = 0; probes < capacity; i = (i + 1) & mask, probes++) {
+            int pos = HEADER_SIZE + i * ENTRY_SIZE;
+            long id = buf.getLong(pos);
+            if (id == EMPTY) {
+                return 0L;
+            }
+            if (id != TOMBSTONE && buf.getInt(pos + 8) == hash) {
+                String stored = isbnOf.apply(id);
+                if (stored != null && key.equals(key(stored))) {
+                    return id;
+                }
+            }
+        }
+        return 0L;
+    }
+
+    void put(String isbn, long id) throws IOException {
+        if ((used + 1) * 2L > capacity) {
+            resize(capacityFor(count + 1));
+        }
+        if (insert(file.buffer(), capacity, hash(key(isbn)), id)) {
+            used++;
+        }
+        count++;
+        writeCounts();
+    }
+
+    void remove(String isbn, long id) {
+        int hash = hash(key(isbn));
+        MappedByteBuffer buf = file.buffer();
+        int mask = capacity - 1;
+        for (int i = hash & mask, probes = 0; probes < capacity; i = (i + 1) & mask, probes++) {
+            int pos = HEADER_SIZE + i * ENTRY_SIZE;
+            long current = buf.getLong(pos);
+            if (current == EMPTY) {
+                return;
+            }
+            if (current == id) {
+                buf.putLong(pos, TOMBSTONE);
+                count--;
+                writeCounts();
+                return;
+            }
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    void force() {
+        file.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    // 只根据条目中保存的哈希值重新散列，无需回读 ISBN；新文件写好后原子替换旧文件
+    private void resize(int newCapacity) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        MappedFile resized = createFile(tmp, newCapacity);
+        MappedByteBuffer src = file.buffer();
+        MappedByteBuffer dst = resized.buffer();
+        int live = 0;
+        for (int i = 0; i < capacity; i++) {
+            int pos = HEADER_SIZE + i * ENTRY_SIZE;
+            long id = src.getLong(pos);
+            if (id != EMPTY && id != TOMBSTONE) {
+                insert(dst, newCapacity, src.getInt(pos + 8), id);
+                live++;
+            }
+        }
+        dst.putInt(8, live);
+        dst.putInt(12, live);
+        resized.close();
+        file.close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        file = new MappedFile(path, HEADER_SIZE);
+        capacity = newCapacity;
+        count = live;
+        used = live;
+    }
+
+    // 写入条目；占用了新的空槽（而不是复用墓碑）时返回 true
+    private static boolean insert(MappedByteBuffer buf, int capacity, int hash, long id) {
+        int mask = capacity - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int pos = HEADER_SIZE + i * ENTRY_SIZE;
+            long current = buf.getLong(pos);
+            if (current == EMPTY || current == TOMBSTONE) {
+                buf.putInt(pos + 8, hash);
+                buf.putLong(pos, id);
+                return current == EMPTY;
+            }
+        }
+    }
+
+    private void writeCounts() {
+        MappedByteBuffer buf = file.buffer();
+        buf.putInt(8, count);
+        buf.putInt(12, used);
+    }
+
+    private static MappedFile createFile(Path path, int capacity) throws IOException {
+        Files.deleteIfExists(path);
+        MappedFile file = new MappedFile(path, HEADER_SIZE + (long) capacity * ENTRY_SIZE);
+        MappedByteBuffer buf = file.buffer();
+        buf.putInt(0, MAGIC);
+        buf.putInt(4, capacity);
+        buf.putInt(8, 0);
+        buf.putInt(12, 0);
+        return file;
+    }
+
+    // 负载因子不超过 0.5
+    private static int capacityFor(int entries) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < entries * 2L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static String key(String isbn) {
+        return isbn.toLowerCase(Locale.ROOT);
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
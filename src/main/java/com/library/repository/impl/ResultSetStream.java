@@ -0,0 +1,102 @@
+package com.library.repository.impl;
+
+import com.library.util.DBHandler;
+import org.apache.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 基于游标的结果集流
+ * 作用：逐行读取 ResultSet 并包装为 Stream，读取完毕、出错或调用 close() 时释放语句和连接
+ * 说明：调用方必须关闭返回的 Stream（推荐 try-with-resources），否则连接会一直被占用直到读到末尾
+ */
+final class ResultSetStream<T> extends Spliterators.AbstractSpliterator<T> {
+    private static final Logger logger = Logger.getLogger(ResultSetStream.class);
+
+    private final Connection conn;
+    private final PreparedStatement stmt;
+    private final ResultSet rs;
+    private final RowMapper<T> mapper;
+    private boolean closed;
+
+    private ResultSetStream(Connection conn, PreparedStatement stmt, ResultSet rs, RowMapper<T> mapper) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.conn = conn;
+        this.stmt = stmt;
+        this.rs = rs;
+        this.mapper = mapper;
+    }
+
+    /**
+     * 执行已绑定参数的查询并返回流；流接管连接和语句的所有权
+     */
+    static <T> Stream<T> open(Connection conn, PreparedStatement stmt, RowMapper<T> mapper) {
+        ResultSet rs;
+        try {
+            rs = stmt.executeQuery();
+        } catch (SQLException e) {
+            closeQuietly(stmt);
+            DBHandler.rollback(conn);
+            DBHandler.closeConnection(conn);
+            throw new RuntimeException("Error opening result stream", e);
+        }
+        ResultSetStream<T> spliterator = new ResultSetStream<>(conn, stmt, rs, mapper);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (!rs.next()) {
+                // 读到末尾即释放连接，避免调用方忘记关闭时长期占用连接池
+                close();
+                return false;
+            }
+            action.accept(mapper.mapRow(rs));
+            return true;
+        } catch (SQLException e) {
+            DBHandler.rollback(conn);
+            close();
+            logger.error("Error reading result stream", e);
+            throw new RuntimeException("Error reading result stream", e);
+        }
+    }
+
+    private void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            rs.close();
+        } catch (SQLException e) {
+            logger.error("Error closing result set", e);
+        }
+        closeQuietly(stmt);
+        try {
+            conn.commit();  // 结束只读事务
+        } catch (SQLException e) {
+            logger.error("Error committing read transaction", e);
+        }
+        DBHandler.closeConnection(conn);
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            logger.error("Error closing statement", e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.library.repository.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 结果集行映射器
+ * 作用：将 ResultSet 的当前行转换为对象
+ */
+@FunctionalInterface
+interface RowMapper<T> {
+    T mapRow(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,232 @@
+package com.library.repository.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 示例数据脚本解析器
+ * 作用：从 sample_data.sql 这类脚本中解析出 INSERT INTO t (cols) VALUES (...), (...) 语句，
+ * 供内存存储引擎载入初始数据
+ * 说明：只识别 INSERT 语句，其余语句（USE、TRUNCATE、SET 等）忽略；
+ * 字符串值支持 '' 与反斜杠转义，NULL 解析为 null，其他表达式（如 DATE_SUB(...)）按原文保留
+ */
+final class SqlSeedScript {
+
+    private SqlSeedScript() {
+    }
+
+    static List<Insert> load(String resource) throws IOException {
+        try (InputStream in = SqlSeedScript.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Cannot find " + resource);
+            }
+            return parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    static List<Insert> parse(String script) {
+        List<Insert> inserts = new ArrayList<>();
+        for (String statement : splitStatements(script)) {
+            String trimmed = statement.trim();
+            if (trimmed.regionMatches(true, 0, "INSERT INTO", 0, "INSERT INTO".length())) {
+                inserts.add(parseInsert(trimmed));
+            }
+        }
+        return inserts;
+    }
+
+    // 按引号外的分号切分语句，同时去掉 -- 行注释
+    private static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < script.length(); i++) {
+            char c = script.charAt(i);
+            if (quoted) {
+                current.append(c);
+                if (c == '\\' && i + 1 < script.length()) {
+                    current.append(script.charAt(++i));
+                } else if (c == '\'') {
+                    quoted = false;
+                }
+            } else if (c == '\'') {
+                quoted = true;
+                current.append(c);
+            } else if (c == '-' && script.startsWith("--", i)) {
+                int end = script.indexOf('\n', i);
+                i = end < 0 ? script.length() : end - 1;
+            } else if (c == ';') {
+                statements.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (!current.toString().trim().isEmpty()) {
+            statements.add(current.toString());
+        }
+        return statements;
+    }
+
+    private static Insert parseInsert(String statement) {
+        Cursor cursor = new Cursor(statement, "INSERT INTO".length());
+        String table = cursor.readIdentifier().toLowerCase(Locale.ROOT);
+
+        List<String> columns = new ArrayList<>();
+        cursor.expect('(');
+        do {
+            columns.add(cursor.readIdentifier().toLowerCase(Locale.ROOT));
+        } while (cursor.consume(','));
+        cursor.expect(')');
+
+        if (!cursor.readIdentifier().equalsIgnoreCase("VALUES")) {
+            throw new IllegalArgumentException("Expected VALUES in: " + statement);
+        }
+        List<List<String>> rows = new ArrayList<>();
+        do {
+            cursor.expect('(');
+            List<String> row = new ArrayList<>();
+            do {
+                row.add(cursor.readValue());
+            } while (cursor.consume(','));
+            cursor.expect(')');
+            if (row.size() != columns.size()) {
+                throw new IllegalArgumentException("Column count mismatch in INSERT INTO " + table);
+            }
+            rows.add(row);
+        } while (cursor.consume(','));
+        return new Insert(table, columns, rows);
+    }
+
+    /**
+     * 一条 INSERT 语句：表名、列名（小写）以及每行的值
+     */
+    static final class Insert {
+        private final String table;
+        private final List<String> columns;
+        private final List<List<String>> rows;
+
+        private Insert(String table, List<String> columns, List<List<String>> rows) {
+            this.table = table;
+            this.columns = Collections.unmodifiableList(columns);
+            this.rows = Collections.unmodifiableList(rows);
+        }
+
+        String getTable() {
+            return table;
+        }
+
+        List<String> getColumns() {
+            return columns;
+        }
+
+        List<List<String>> getRows() {
+            return rows;
+        }
+
+        /**
+         * 按列名取值；语句中未出现该列时返回 null
+         */
+        String value(List<String> row, String column) {
+            int index = columns.indexOf(column);
+            return index < 0 ? null : row.get(index);
+        }
+    }
+
+    private static final class Cursor {
+        private final String text;
+        private int pos;
+
+        private Cursor(String text, int pos) {
+            this.text = text;
+            this.pos = pos;
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private boolean consume(char c) {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) {
+                throw new IllegalArgumentException("Expected '" + c + "' at position " + pos + " in: " + text);
+            }
+        }
+
+        private String readIdentifier() {
+            skipWhitespace();
+            int start = pos;
+            while (pos < text.length()
+                    && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_'
+                        || text.charAt(pos) == '`' || text.charAt(pos) == '.')) {
+                pos++;
+            }
+            if (start == pos) {
+                throw new IllegalArgumentException("Expected identifier at position " + pos + " in: " + text);
+            }
+            return text.substring(start, pos).replace("`", "");
+        }
+
+        private String readValue() {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == '\'') {
+                return readString();
+            }
+            // 非字符串值：读到括号外的逗号或右括号为止
+            int start = pos;
+            int depth = 0;
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    if (depth == 0) {
+                        break;
+                    }
+                    depth--;
+                } else if (c == ',' && depth == 0) {
+                    break;
+                }
+                pos++;
+            }
+            String raw = text.substring(start, pos).trim();
+            return raw.equalsIgnoreCase("NULL") ? null : raw;
+        }
+
+        private String readString() {
+            StringBuilder value = new StringBuilder();
+            pos++;
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '\\' && pos < text.length()) {
+                    value.append(text.charAt(pos++));
+                } else if (c == '\'') {
+                    if (pos < text.length() && text.charAt(pos) == '\'') {
+                        value.append('\'');
+                        pos++;
+                    } else {
+                        return value.toString();
+                    }
+                } else {
+                    value.append(c);
+                }
+            }
+            throw new IllegalArgumentException("Unterminated string literal in: " + text);
+        }
+    }
+}
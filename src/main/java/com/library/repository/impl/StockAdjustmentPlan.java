@@ -0,0 +1,130 @@
+package com.library.repository.impl;
+
+import com.library.repository.StockAdjustment;
+import com.library.repository.StockAdjustmentResult;
+import com.library.repository.StockAdjustmentResult.Line;
+import com.library.repository.StockAdjustmentResult.Status;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 一块库存调整行的执行计划
+ * 作用：按行序在当前库存上依次计算新库存，得到每行的结果和每本图书最终要写入的库存
+ * 说明：同一本书出现多次时后面的行基于前面调整后的库存；结果为负数的行拒绝，不影响其他行
+ */
+final class StockAdjustmentPlan {
+    // 内存存储每块持有一次写锁，避免读取输入流期间长时间阻塞其他读写
+    static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private final List<Line> lines = new ArrayList<>();
+    // 图书 id -> 最终库存，每本书只需写一次
+    private final Map<Long, Integer> updates = new LinkedHashMap<>();
+
+    /**
+     * @param firstLineNumber 本块第一行的行号
+     * @param lookup          按 ISBN 查当前库存，不存在时返回 null；同一本书须返回同一个对象
+     */
+    StockAdjustmentPlan(long firstLineNumber, List<StockAdjustment> chunk, Function<String, CurrentStock> lookup) {
+        Map<String, CurrentStock> resolved = new HashMap<>();
+        long lineNumber = firstLineNumber;
+        for (StockAdjustment adjustment : chunk) {
+            lines.add(planLine(lineNumber++, adjustment, resolved, lookup));
+        }
+    }
+
+    private Line planLine(long lineNumber, StockAdjustment adjustment, Map<String, CurrentStock> resolved,
+                          Function<String, CurrentStock> lookup) {
+        if (adjustment == null || adjustment.getIsbn() == null || adjustment.getIsbn().isEmpty()) {
+            return new Line(lineNumber, adjustment, Status.INVALID, null, null, null, "ISBN不能为空");
+        }
+        CurrentStock current = resolved.computeIfAbsent(adjustment.getIsbn(), lookup);
+        if (current == null) {
+            return new Line(lineNumber, adjustment, Status.NOT_FOUND, null, null, null, "未找到该书");
+        }
+        long next = adjustment.applyTo(current.stock);
+        if (adjustment.getMode() == StockAdjustment.Mode.SET && next < 0) {
+            return new Line(lineNumber, adjustment, Status.INVALID, current.id, current.stock, null, "库存不能为负数");
+        }
+        if (next < 0) {
+            return new Line(lineNumber, adjustment, Status.INSUFFICIENT_STOCK, current.id, current.stock, null,
+                "当前库存 " + current.stock + "，无法调整 " + adjustment.getAmount());
+        }
+        if (next > Integer.MAX_VALUE) {
+            return new Line(lineNumber, adjustment, Status.INVALID, current.id, current.stock, null, "库存超出范围");
+        }
+        int previous = current.stock;
+        current.stock = (int) next;
+        updates.put(current.id, current.stock);
+        return new Line(lineNumber, adjustment, Status.APPLIED, current.id, previous, current.stock, null);
+    }
+
+    Map<Long, Integer> getUpdates() {
+        return updates;
+    }
+
+    /**
+     * 写入成功后登记全部行的结果
+     */
+    void commitTo(StockAdjustmentResult result) {
+        result.addAll(lines);
+    }
+
+    /**
+     * 写入失败（整块回滚）：已计划应用的行改为失败，其余行保持原结果
+     */
+    void failTo(StockAdjustmentResult result, String reason) {
+        for (Line line : lines) {
+            result.add(line.getStatus() == Status.APPLIED ? line.failed(reason) : line);
+        }
+    }
+
+    /**
+     * 整块在计划之前就失败（如加锁查询出错）：全部行记为失败
+     */
+    static void failAll(long firstLineNumber, List<StockAdjustment> chunk, StockAdjustmentResult result,
+                        String reason) {
+        long lineNumber = firstLineNumber;
+        for (StockAdjustment adjustment : chunk) {
+            result.add(new Line(lineNumber++, adjustment, Status.FAILED, null, null, null, reason));
+        }
+    }
+
+    /**
+     * 按 chunkSize 分块读取输入流，依次交给 handler 处理；handler 返回后该块列表会被复用
+     */
+    static void forEachChunk(Stream<StockAdjustment> adjustments, int chunkSize, ChunkHandler handler) {
+        List<StockAdjustment> chunk = new ArrayList<>(chunkSize);
+        long firstLineNumber = 1;
+        Iterator<StockAdjustment> iterator = adjustments.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() >= chunkSize || !iterator.hasNext()) {
+                handler.handle(firstLineNumber, chunk);
+                firstLineNumber += chunk.size();
+                chunk.clear();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface ChunkHandler {
+        void handle(long firstLineNumber, List<StockAdjustment> chunk);
+    }
+
+    static final class CurrentStock {
+        private final long id;
+        private int stock;
+
+        CurrentStock(long id, int stock) {
+            this.id = id;
+            this.stock = stock;
+        }
+    }
+}
@@ -7,6 +7,8 @@ import org.apache.log4j.Logger;
 
 import java.sql.*;
 import java.util.Optional;
+import java.util.Properties;
+import java.util.stream.Stream;
 
 /**
  * 用户仓库实现类
@@ -17,6 +19,15 @@ import java.util.Optional;
  */
 public class UserRepositoryImpl implements UserRepository {
     private static final Logger logger = Logger.getLogger(UserRepositoryImpl.class);
+    private final int streamFetchSize;
+
+    public UserRepositoryImpl() {
+        this(null);
+    }
+
+    public UserRepositoryImpl(Properties props) {
+        this.streamFetchSize = BookRepositoryImpl.resolveStreamFetchSize(props);
+    }
 
     @Override
     public User save(User user) {
@@ -31,13 +42,17 @@ public class UserRepositoryImpl implements UserRepository {
             
             int affected = stmt.executeUpdate();
             if (affected > 0) {
-                ResultSet rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    user.setId(rs.getLong(1));
-                    return user;
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        user.setId(rs.getLong(1));
+                        // 连接池关闭了自动提交，需要显式提交（事务内由事务边界统一提交）
+                        conn.commit();
+                        logger.debug("User saved successfully: " + user.getUsername());
+                        return user;
+                    }
                 }
             }
-            logger.debug("User saved successfully: " + user.getUsername());
+            conn.rollback();
         } catch (SQLException e) {
             logger.error("Error saving user: " + user.getUsername(), e);
             throw new RuntimeException("Error saving user", e);
@@ -91,4 +106,29 @@ public class UserRepositoryImpl implements UserRepository {
         }
         return false;
     }
-} 
\ No newline at end of file
+
+    @Override
+    public Stream<String> streamUsernames() {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        try {
+            conn = DBHandler.getConnection();
+            stmt = conn.prepareStatement("SELECT username FROM users",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(streamFetchSize);
+        } catch (SQLException e) {
+            if (stmt != null) {
+                try {
+                    stmt.close();
+                } catch (SQLException ex) {
+                    logger.error("Error closing statement", ex);
+                }
+            }
+            DBHandler.rollback(conn);
+            DBHandler.closeConnection(conn);
+            logger.error("Error opening username stream", e);
+            throw new RuntimeException("Error opening username stream", e);
+        }
+        return ResultSetStream.open(conn, stmt, rs -> rs.getString(1));
+    }
+}
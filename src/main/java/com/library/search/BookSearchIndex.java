@@ -0,0 +1,239 @@
+package com.library.search;
+
+import com.library.domain.book.Book;
+import com.library.repository.impl.BookTypeColumns;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * 图书内存倒排索引
+ * 作用：
+ * - 对标题和作者分词建立倒排表，按类型建立类型倒排表
+ * - 关键字 + 类型查询通过倒排表求交集得到候选 id，再用子串校验保证结果与 LIKE 一致
+ * - 支持保存/删除/库存变更时增量维护
+ * 说明：拉丁单词按前缀匹配（如 "java" 可匹配 "JavaScript"，但 "ava" 不会匹配）；
+ * 返回的是索引内部实例的副本，之后的库存变更不会改到调用方手里的结果
+ */
+public class BookSearchIndex {
+    private static final Logger logger = Logger.getLogger(BookSearchIndex.class);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, PostingList> postings = new HashMap<>();
+    private Map<String, PostingList> typePostings = new HashMap<>();
+    private Map<Long, Document> documents = new HashMap<>();
+    private PostingList allIds = new PostingList();
+
+    /**
+     * 用全量数据重建索引；构建期间旧索引仍可查询，构建完成后一次性替换
+     */
+    public int rebuild(Stream<Book> books) {
+        long start = System.nanoTime();
+        BookSearchIndex fresh = new BookSearchIndex();
+        books.forEach(fresh::addDocument);
+
+        lock.writeLock().lock();
+        try {
+            postings = fresh.postings;
+            typePostings = fresh.typePostings;
+            documents = fresh.documents;
+            allIds = fresh.allIds;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Search index rebuilt with " + fresh.documents.size() + " books in "
+            + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return fresh.documents.size();
+    }
+
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(book.getId());
+            addDocument(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateStock(Long id, int stock) {
+        lock.writeLock().lock();
+        try {
+            Document doc = documents.get(id);
+            if (doc != null) {
+                doc.book.setStock(stock);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 在标题或作者中检索；keyword 和 type 均可为空
+     */
+    public List<Book> search(String keyword, String type, long afterId, int limit) {
+        return query(keyword, type, false, afterId, limit);
+    }
+
+    /**
+     * 仅在标题中检索
+     */
+    public List<Book> searchTitle(String title, long afterId, int limit) {
+        return query(title, null, true, afterId, limit);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Book> query(String keyword, String type, boolean titleOnly, long afterId, int limit) {
+        List<String> terms = BookTokenizer.queryTerms(keyword);
+        List<Book> results = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            // 收集所有需要求交集的倒排表，任一词项不存在则直接返回空
+            List<PostingList> lists = new ArrayList<>();
+            for (String term : terms) {
+                for (String token : BookTokenizer.queryTokens(term)) {
+                    PostingList list = postings.get(token);
+                    if (list == null) {
+                        return results;
+                    }
+                    lists.add(list);
+                }
+            }
+            if (type != null && !type.trim().isEmpty()) {
+                PostingList list = typePostings.get(type.trim().toLowerCase(Locale.ROOT));
+                if (list == null) {
+                    return results;
+                }
+                lists.add(list);
+            }
+            if (lists.isEmpty()) {
+                lists.add(allIds);
+            }
+            lists.sort(Comparator.comparingInt(PostingList::size));
+
+            // 以最短的倒排表驱动，对其余倒排表做二分查找求交集
+            PostingList driver = lists.get(0);
+            for (int i = driver.indexAfter(afterId); i < driver.size() && results.size() < limit; i++) {
+                long id = driver.get(i);
+                if (!containedInAll(lists, id)) {
+                    continue;
+                }
+                Document doc = documents.get(id);
+                if (doc != null && doc.matches(terms, titleOnly)) {
+                    results.add(BookTypeColumns.copyOf(doc.book));
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean containedInAll(List<PostingList> lists, long id) {
+        for (int j = 1; j < lists.size(); j++) {
+            if (!lists.get(j).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 保存副本：updateStock 会修改索引中的对象，不能影响调用方持有的 Book
+    private void addDocument(Book book) {
+        Document doc = new Document(BookTypeColumns.copyOf(book));
+        long id = book.getId();
+        documents.put(id, doc);
+        allIds.add(id);
+        for (String token : doc.tokens()) {
+            postings.computeIfAbsent(token, k -> new PostingList()).add(id);
+        }
+        if (doc.typeKey != null) {
+            typePostings.computeIfAbsent(doc.typeKey, k -> new PostingList()).add(id);
+        }
+    }
+
+    private void removeDocument(long id) {
+        Document doc = documents.remove(id);
+        if (doc == null) {
+            return;
+        }
+        allIds.remove(id);
+        for (String token : doc.tokens()) {
+            removePosting(postings, token, id);
+        }
+        if (doc.typeKey != null) {
+            removePosting(typePostings, doc.typeKey, id);
+        }
+    }
+
+    private static void removePosting(Map<String, PostingList> map, String key, long id) {
+        PostingList list = map.get(key);
+        if (list != null && list.remove(id) && list.isEmpty()) {
+            map.remove(key);
+        }
+    }
+
+    private static final class Document {
+        private final Book book;
+        private final String title;
+        private final String author;
+        private final String typeKey;
+
+        private Document(Book book) {
+            this.book = book;
+            this.typeKey = book.getType() != null ? book.getType().toLowerCase(Locale.ROOT) : null;
+            this.title = BookTokenizer.normalize(book.getTitle());
+            this.author = BookTokenizer.normalize(book.getAuthor());
+        }
+
+        // 基于建索引时保存的归一化文本分词，保证删除时与插入时的词项一致
+        private Set<String> tokens() {
+            Set<String> tokens = BookTokenizer.indexTokens(title);
+            tokens.addAll(BookTokenizer.indexTokens(author));
+            return tokens;
+        }
+
+        // 二元组交集可能产生不连续的误匹配，用子串校验排除
+        private boolean matches(List<String> terms, boolean titleOnly) {
+            for (String term : terms) {
+                if (!title.contains(term) && (titleOnly || !author.contains(term))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
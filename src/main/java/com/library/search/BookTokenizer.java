@@ -0,0 +1,139 @@
+package com.library.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 图书标题/作者分词器
+ * 作用：
+ * - 中日韩文字按单字 + 相邻二元组（bigram）切分
+ * - 拉丁字母和数字按单词切分，索引时额外生成单词前缀，以支持前缀匹配
+ * - 统一做 NFKC 归一化并转为小写
+ */
+public final class BookTokenizer {
+    static final int MAX_PREFIX_LENGTH = 16;
+
+    private BookTokenizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 将查询关键字按空白拆分为若干检索词（已归一化）
+     */
+    public static List<String> queryTerms(String keyword) {
+        List<String> terms = new ArrayList<>();
+        for (String term : normalize(keyword).trim().split("\\s+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 文档分词：CJK 单字和二元组，拉丁单词及其全部前缀
+     */
+    public static Set<String> indexTokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (Run run : segment(normalize(text))) {
+            if (run.cjk) {
+                int[] cps = run.text.codePoints().toArray();
+                for (int i = 0; i < cps.length; i++) {
+                    tokens.add(new String(cps, i, 1));
+                    if (i + 1 < cps.length) {
+                        tokens.add(new String(cps, i, 2));
+                    }
+                }
+            } else {
+                int limit = Math.min(run.text.length(), MAX_PREFIX_LENGTH);
+                for (int len = 1; len <= limit; len++) {
+                    tokens.add(run.text.substring(0, len));
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 查询分词：单个 CJK 字用单字，多个 CJK 字用相邻二元组；拉丁单词取前缀（最长 MAX_PREFIX_LENGTH）
+     */
+    public static Set<String> queryTokens(String term) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (Run run : segment(normalize(term))) {
+            if (run.cjk) {
+                int[] cps = run.text.codePoints().toArray();
+                if (cps.length == 1) {
+                    tokens.add(run.text);
+                }
+                for (int i = 0; i + 1 < cps.length; i++) {
+                    tokens.add(new String(cps, i, 2));
+                }
+            } else {
+                tokens.add(run.text.length() > MAX_PREFIX_LENGTH
+                    ? run.text.substring(0, MAX_PREFIX_LENGTH) : run.text);
+            }
+        }
+        return tokens;
+    }
+
+    // 将文本切分为连续的 CJK 片段和字母数字片段，其余字符视为分隔符
+    private static List<Run> segment(String text) {
+        List<Run> runs = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        Boolean currentCjk = null;
+        int i = 0;
+        while (i < text.length()) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            boolean cjk = isCjk(cp);
+            boolean word = !cjk && Character.isLetterOrDigit(cp);
+            if (!cjk && !word) {
+                flush(runs, current, currentCjk);
+                currentCjk = null;
+                continue;
+            }
+            if (currentCjk != null && currentCjk != cjk) {
+                flush(runs, current, currentCjk);
+            }
+            currentCjk = cjk;
+            current.appendCodePoint(cp);
+        }
+        flush(runs, current, currentCjk);
+        return runs;
+    }
+
+    private static void flush(List<Run> runs, StringBuilder current, Boolean cjk) {
+        if (current.length() > 0 && cjk != null) {
+            runs.add(new Run(current.toString(), cjk));
+        }
+        current.setLength(0);
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static final class Run {
+        private final String text;
+        private final boolean cjk;
+
+        private Run(String text, boolean cjk) {
+            this.text = text;
+            this.cjk = cjk;
+        }
+    }
+}
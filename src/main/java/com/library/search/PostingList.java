@@ -0,0 +1,62 @@
+package com.library.search;
+
+import java.util.Arrays;
+
+/**
+ * 倒排表
+ * 作用：以有序 long 数组保存图书 id，支持增量插入/删除和二分查找
+ * 说明：按 id 递增顺序追加时插入为 O(1)，非线程安全，由 BookSearchIndex 的读写锁保护
+ */
+final class PostingList {
+    private long[] ids = new long[4];
+    private int size;
+
+    boolean add(long id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) {
+            return false;
+        }
+        pos = -pos - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+        ids[pos] = id;
+        size++;
+        return true;
+    }
+
+    boolean remove(long id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        size--;
+        return true;
+    }
+
+    boolean contains(long id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    /**
+     * 返回第一个大于 afterId 的元素下标
+     */
+    int indexAfter(long afterId) {
+        int pos = Arrays.binarySearch(ids, 0, size, afterId);
+        return pos >= 0 ? pos + 1 : -pos - 1;
+    }
+
+    long get(int index) {
+        return ids[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,181 @@
+package com.library.service;
+
+import com.library.domain.book.Book;
+import com.library.repository.MultiGetResult;
+import com.library.repository.Page;
+import org.apache.log4j.Logger;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 异步图书服务
+ * 作用：把 BookService 的阻塞调用放到后台线程执行并返回 CompletableFuture，调用方可以并发发起多个查询
+ * 说明：
+ * - 运行在支持虚拟线程的 JDK 上时每个任务使用一个虚拟线程，否则使用固定大小的平台线程池
+ * - 同时执行的任务数由信号量限制，上限取连接池大小，任务再多也不会压垮连接池，
+ *   超出的任务在后台排队，不阻塞调用方线程
+ */
+public class AsyncBookService {
+    private static final Logger logger = Logger.getLogger(AsyncBookService.class);
+
+    private final BookService bookService;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public AsyncBookService(BookService bookService, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be positive");
+        }
+        this.bookService = bookService;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency, true);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(maxConcurrency, daemonThreads());
+        logger.info("Async book service started: " + (virtualThreads ? "virtual threads" : "platform threads")
+            + ", max concurrency " + maxConcurrency);
+    }
+
+    // JDK 21 起才有 Executors.newVirtualThreadPerTaskExecutor，通过反射调用以兼容 Java 17 编译目标
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Virtual threads unavailable, falling back to a platform thread pool");
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "async-book-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 在后台执行任意 BookService 调用，受并发上限约束
+     */
+    public <T> CompletableFuture<T> submit(Function<BookService, T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            inFlight.incrementAndGet();
+            try {
+                return call.apply(bookService);
+            } finally {
+                inFlight.decrementAndGet();
+                permits.release();
+            }
+        }, executor);
+    }
+
+    public CompletableFuture<Optional<Book>> findById(Long id) {
+        return submit(service -> service.findById(id));
+    }
+
+    public CompletableFuture<Optional<Book>> findByIsbn(String isbn) {
+        return submit(service -> service.findByIsbn(isbn));
+    }
+
+    public CompletableFuture<MultiGetResult<Long>> findByIds(Collection<Long> ids) {
+        return submit(service -> service.findByIds(ids));
+    }
+
+    public CompletableFuture<MultiGetResult<String>> findByIsbns(Collection<String> isbns) {
+        return submit(service -> service.findByIsbns(isbns));
+    }
+
+    public CompletableFuture<List<Book>> findByTitle(String title) {
+        return submit(service -> service.findByTitle(title));
+    }
+
+    public CompletableFuture<List<Book>> findByType(String type) {
+        return submit(service -> service.findByType(type));
+    }
+
+    public CompletableFuture<List<Book>> searchBooks(String keyword, String type) {
+        return submit(service -> service.searchBooks(keyword, type));
+    }
+
+    public CompletableFuture<Page<Book>> findAllPage(String pageToken, int pageSize) {
+        return submit(service -> service.findAllPage(pageToken, pageSize));
+    }
+
+    public CompletableFuture<Page<Book>> findByTypePage(String type, String pageToken, int pageSize) {
+        return submit(service -> service.findByTypePage(type, pageToken, pageSize));
+    }
+
+    public CompletableFuture<Page<Book>> searchBooksPage(String keyword, String type, String pageToken, int pageSize) {
+        return submit(service -> service.searchBooksPage(keyword, type, pageToken, pageSize));
+    }
+
+    public CompletableFuture<Book> addBook(Book book) {
+        return submit(service -> service.addBook(book));
+    }
+
+    public CompletableFuture<Integer> adjustStock(Long id, int delta) {
+        return submit(service -> service.adjustStock(id, delta));
+    }
+
+    public CompletableFuture<Void> deleteBook(Long id) {
+        return submit(service -> {
+            service.deleteBook(id);
+            return null;
+        });
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * 正在执行（已取得许可）的任务数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 等待许可的任务数（估计值）
+     */
+    public int getQueued() {
+        return permits.getQueueLength();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
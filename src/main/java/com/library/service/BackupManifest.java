@@ -0,0 +1,156 @@
+package com.library.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 备份清单
+ * 作用：按时间顺序记录每次全量/增量备份的文件名和高水位 (update_time, id)，
+ * 增量备份从上一次备份的水位继续读取变更，恢复时据此找到全量基线及其后的增量链
+ * 说明：
+ * - 水位按 ChangeWatermark.format() 的 "时间|id|类型" 字符串保存
+ * - fullRequired 在恢复后置位：恢复写入的行带着备份中的旧 update_time，增量读取不到，下一次必须做全量备份
+ */
+public class BackupManifest {
+    public enum Kind {
+        FULL,
+        DELTA
+    }
+
+    private List<Entry> entries = new ArrayList<>();
+    private boolean fullRequired;
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<Entry> entries) {
+        this.entries = entries != null ? entries : new ArrayList<>();
+    }
+
+    public boolean isFullRequired() {
+        return fullRequired;
+    }
+
+    public void setFullRequired(boolean fullRequired) {
+        this.fullRequired = fullRequired;
+    }
+
+    public void add(Entry entry) {
+        entries.add(entry);
+    }
+
+    @JsonIgnore
+    public Entry getLatest() {
+        return entries.isEmpty() ? null : entries.get(entries.size() - 1);
+    }
+
+    public Entry find(String fileName) {
+        for (Entry entry : entries) {
+            if (entry.getFileName().equals(fileName)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 恢复到 fileName 所需的备份链：全量基线在前，随后是截至 fileName 的各个增量；fileName 不在清单中时返回空列表
+     */
+    public List<Entry> chainOf(String fileName) {
+        Entry target = find(fileName);
+        if (target == null) {
+            return List.of();
+        }
+        String base = target.getKind() == Kind.FULL ? target.getFileName() : target.getBase();
+        List<Entry> chain = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.getFileName().equals(base) || entry.getKind() == Kind.DELTA && base.equals(entry.getBase())) {
+                chain.add(entry);
+            }
+            if (entry == target) {
+                break;
+            }
+        }
+        return chain;
+    }
+
+    /**
+     * 单条备份记录
+     * - base：增量备份所依赖的全量备份文件名，全量备份为 null
+     * - since：增量备份读取变更的起始水位，即上一次备份的 watermark
+     * - watermark：本次备份覆盖到的高水位
+     */
+    public static class Entry {
+        private String fileName;
+        private Kind kind;
+        private String base;
+        private String since;
+        private String watermark;
+        private String backupTime;
+        private long recordCount;
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public void setFileName(String fileName) {
+            this.fileName = fileName;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public void setKind(Kind kind) {
+            this.kind = kind;
+        }
+
+        public String getBase() {
+            return base;
+        }
+
+        public void setBase(String base) {
+            this.base = base;
+        }
+
+        public String getSince() {
+            return since;
+        }
+
+        public void setSince(String since) {
+            this.since = since;
+        }
+
+        public String getWatermark() {
+            return watermark;
+        }
+
+        public void setWatermark(String watermark) {
+            this.watermark = watermark;
+        }
+
+        public String getBackupTime() {
+            return backupTime;
+        }
+
+        public void setBackupTime(String backupTime) {
+            this.backupTime = backupTime;
+        }
+
+        public long getRecordCount() {
+            return recordCount;
+        }
+
+        public void setRecordCount(long recordCount) {
+            this.recordCount = recordCount;
+        }
+
+        @Override
+        public String toString() {
+            return kind + "{" + fileName + ", watermark=" + watermark + ", records=" + recordCount + "}";
+        }
+    }
+}
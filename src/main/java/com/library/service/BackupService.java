@@ -1,26 +1,86 @@
 package com.library.service;
 
 import com.library.domain.book.Book;
+import com.library.repository.BatchSaveResult;
+import com.library.repository.BookChange;
+import com.library.repository.ChangeSet;
+import com.library.repository.ChangeWatermark;
+import com.library.repository.ConflictPolicy;
+import com.library.repository.UpsertResult;
+import com.library.util.ConfigUtils;
 import org.apache.log4j.Logger;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Properties;
 import java.util.concurrent.*;
+import java.util.stream.Stream;
 
+/**
+ * 备份服务
+ * 作用：定期全量备份图书目录，开启增量模式后在两次全量之间只导出变更（新增/修改与删除）
+ * 说明：
+ * - 每次备份的高水位记录在备份清单中，增量备份按变更订阅的 (update_time, id) 水位从上一次备份处继续读取
+ * - 全量备份的水位取开始时间向前 overlapSeconds 秒，重叠部分的变更会在下一个增量中重放一次，重放是幂等的
+ * - 恢复增量备份时先恢复其全量基线，再按顺序重放截至该增量的各个增量，得到该时间点的目录
+ * - 清单只在备份线程中读写
+ */
 public class BackupService {
     private static final Logger logger = Logger.getLogger(BackupService.class);
+    private static final int RESTORE_BATCH_SIZE = 1000;
+    private static final int CHANGE_PAGE_SIZE = 1000;
+    private static final String FULL_PREFIX = "books_backup_";
+    private static final String DELTA_PREFIX = "books_delta_";
+    private static final String MANIFEST_FILE = "backup_manifest.json";
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private final BookService bookService;
     private final FileStorageService fileStorageService;
     private final ScheduledExecutorService scheduler;
     private final ExecutorService backupExecutor;
     private final String backupDir;
+    private final ConflictPolicy restorePolicy;
+    private final boolean incrementalEnabled;
+    private final int fullEvery;
+    private final int overlapSeconds;
+    private final int lagSeconds;
 
     public BackupService(BookService bookService, FileStorageService fileStorageService, String backupDir) {
+        this(bookService, fileStorageService, backupDir, ConflictPolicy.SKIP);
+    }
+
+    /**
+     * @param restorePolicy 恢复时备份中的 ISBN 已存在于库中的处理策略
+     */
+    public BackupService(BookService bookService, FileStorageService fileStorageService, String backupDir,
+                         ConflictPolicy restorePolicy) {
+        this(bookService, fileStorageService, backupDir, restorePolicy, null);
+    }
+
+    /**
+     * @param props 增量备份配置（backup.incremental.*）以及变更订阅的 changefeed.lagSeconds，为 null 时只做全量备份
+     */
+    public BackupService(BookService bookService, FileStorageService fileStorageService, String backupDir,
+                         ConflictPolicy restorePolicy, Properties props) {
         this.bookService = bookService;
         this.fileStorageService = fileStorageService;
         this.backupDir = backupDir;
+        this.restorePolicy = restorePolicy;
+        this.incrementalEnabled = ConfigUtils.getBoolean(props, "backup.incremental.enabled", false);
+        this.fullEvery = Math.max(1, ConfigUtils.getInt(props, "backup.incremental.fullEvery", 7));
+        this.lagSeconds = Math.max(0, ConfigUtils.getInt(props, "changefeed.lagSeconds", 1));
+        // 重叠窗口至少覆盖变更订阅的延迟，另外留出应用与数据库时钟偏差的余量
+        this.overlapSeconds = Math.max(lagSeconds, ConfigUtils.getInt(props, "backup.incremental.overlapSeconds", 60));
         this.scheduler = Executors.newScheduledThreadPool(1);
         this.backupExecutor = Executors.newSingleThreadExecutor();
         
@@ -39,47 +99,257 @@ public class BackupService {
         logger.info("Scheduled backup started with interval: " + interval + " " + unit);
     }
 
+    /**
+     * 执行一次备份：开启增量模式且已有可用的全量基线、当前链中的增量不足 fullEvery - 1 个、
+     * 上次备份后没有执行过恢复时做增量备份，否则做全量备份
+     *
+     * @return 备份文件名
+     */
     public Future<String> performBackup() {
         return backupExecutor.submit(() -> {
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            String filename = "books_backup_" + timestamp + ".json";
-            
-            List<Book> books = bookService.findAll();
-            fileStorageService.saveBooks(books, filename).get();
-            
-            logger.debug("Backup completed: " + filename);
-            return filename;
+            BackupManifest manifest = loadManifest();
+            BackupManifest.Entry latest = manifest.getLatest();
+            if (incrementalEnabled && latest != null && !manifest.isFullRequired()) {
+                List<BackupManifest.Entry> chain = manifest.chainOf(latest.getFileName());
+                if (chain.size() < fullEvery && isComplete(chain)) {
+                    return performDeltaBackup(manifest, latest);
+                }
+            }
+            return performFullBackup(manifest);
         });
     }
 
+    private String performFullBackup(BackupManifest manifest) {
+        LocalDateTime startTime = LocalDateTime.now();
+        ChangeWatermark watermark = new ChangeWatermark(startTime.minusSeconds(overlapSeconds).format(TIME_FORMAT), 0L);
+        String filename = newBackupFileName(FULL_PREFIX, startTime);
+
+        // 游标逐行读取、逐本写出，不把整个目录加载到内存
+        long count;
+        try (Stream<Book> books = bookService.streamAll()) {
+            count = fileStorageService.writeBooks(books, filename);
+        }
+
+        manifest.add(newEntry(filename, BackupManifest.Kind.FULL, null, null, watermark, startTime, count));
+        manifest.setFullRequired(false);
+        saveManifest(manifest);
+        logger.debug("Backup completed: " + filename + " (" + count + " books)");
+        return filename;
+    }
+
+    // 从上一次备份的水位读取变更写入增量文件，文件大小只与期间的变更数有关
+    private String performDeltaBackup(BackupManifest manifest, BackupManifest.Entry previous) {
+        LocalDateTime startTime = LocalDateTime.now();
+        ChangeWatermark since = ChangeWatermark.parse(previous.getWatermark());
+        String base = previous.getKind() == BackupManifest.Kind.FULL ? previous.getFileName() : previous.getBase();
+        String filename = newBackupFileName(DELTA_PREFIX, startTime);
+
+        ChangePager changes = new ChangePager(since);
+        long count = fileStorageService.writeChanges(changes, filename);
+
+        manifest.add(newEntry(filename, BackupManifest.Kind.DELTA, base, since, changes.getWatermark(), startTime, count));
+        saveManifest(manifest);
+        logger.debug("Incremental backup completed: " + filename + " (" + count + " changes since " + since + ")");
+        return filename;
+    }
+
+    /**
+     * 从备份恢复：全量备份直接恢复；增量备份先恢复其全量基线，再按顺序重放截至该增量的各个增量
+     * 恢复写入的行保留备份中的 update_time，位于当前水位之前，增量读取不到它们，因此恢复后（包括恢复失败时）
+     * 下一次备份强制为全量
+     *
+     * @return 新增或更新的图书数量
+     */
     public Future<Integer> restoreFromBackup(String filename) {
         return backupExecutor.submit(() -> {
             try {
-                List<Book> books = fileStorageService.loadBooks(filename).get();
-                int restoredCount = 0;
-                
-                for (Book book : books) {
-                    try {
-                        bookService.addBook(book);
-                        restoredCount++;
-                    } catch (Exception e) {
-                        logger.error("Failed to restore book: " + book.getIsbn(), e);
-                    }
+                if (!filename.startsWith(DELTA_PREFIX)) {
+                    RestoreProgress progress = new RestoreProgress();
+                    restoreFull(filename, progress);
+                    logger.info("Restored " + progress.restored + " books from backup: " + filename
+                        + " (skipped " + progress.skipped + ", failed " + progress.failed + ")");
+                    return progress.restored;
                 }
-                
-                logger.info("Restored " + restoredCount + " books from backup: " + filename);
-                return restoredCount;
+
+                List<BackupManifest.Entry> chain = resolveChain(filename);
+                RestoreProgress progress = new RestoreProgress();
+                restoreFull(chain.get(0).getFileName(), progress);
+                for (BackupManifest.Entry delta : chain.subList(1, chain.size())) {
+                    replayDelta(delta.getFileName(), progress);
+                }
+                logger.info("Restored " + progress.restored + " books from backup chain ending at " + filename
+                    + " (" + chain.size() + " files, deleted " + progress.deleted + ", skipped " + progress.skipped
+                    + ", failed " + progress.failed + ")");
+                return progress.restored;
             } catch (Exception e) {
                 logger.error("Failed to restore from backup: " + filename, e);
                 throw e;
+            } finally {
+                requireFullBackup();
             }
         });
     }
 
+    private void requireFullBackup() {
+        try {
+            BackupManifest manifest = loadManifest();
+            if (!manifest.isFullRequired()) {
+                manifest.setFullRequired(true);
+                saveManifest(manifest);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to mark backup manifest for a full backup after restore", e);
+        }
+    }
+
+    private void restoreFull(String filename, RestoreProgress progress) {
+        try (Stream<Book> books = fileStorageService.streamBooks(filename)) {
+            // 边解析边按批次 upsert，已存在的 ISBN 按恢复策略处理；只累计数量，不保留已恢复的图书
+            List<Book> batch = new ArrayList<>(RESTORE_BATCH_SIZE);
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() >= RESTORE_BATCH_SIZE) {
+                    upsertBatch(batch, restorePolicy, progress);
+                }
+            }
+            upsertBatch(batch, restorePolicy, progress);
+        }
+    }
+
+    // 增量中的变更都晚于基线，新增/修改按 NEWER_WINS 重放（恢复策略为 OVERWRITE 时直接覆盖）；
+    // 删除前先写入已攒的批次，保证同一 ISBN 先删后增的顺序
+    private void replayDelta(String filename, RestoreProgress progress) {
+        ConflictPolicy policy = restorePolicy == ConflictPolicy.OVERWRITE ? ConflictPolicy.OVERWRITE : ConflictPolicy.NEWER_WINS;
+        try (Stream<BookChange> changes = fileStorageService.streamChanges(filename)) {
+            List<Book> batch = new ArrayList<>(RESTORE_BATCH_SIZE);
+            Iterator<BookChange> iterator = changes.iterator();
+            while (iterator.hasNext()) {
+                BookChange change = iterator.next();
+                if (change.isDelete()) {
+                    upsertBatch(batch, policy, progress);
+                    if (applyDelete(change, policy)) {
+                        progress.deleted++;
+                    }
+                    continue;
+                }
+                batch.add(change.getBook());
+                if (batch.size() >= RESTORE_BATCH_SIZE) {
+                    upsertBatch(batch, policy, progress);
+                }
+            }
+            upsertBatch(batch, policy, progress);
+        }
+    }
+
+    // 删除记录按 ISBN 匹配（恢复后的 id 可能不同）；库中记录比删除时间新时视为删除后重新添加，予以保留
+    private boolean applyDelete(BookChange change, ConflictPolicy policy) {
+        if (change.getIsbn() == null) {
+            logger.warn("Skipping delete without ISBN during restore: " + change);
+            return false;
+        }
+        Optional<Book> existing = bookService.findByIsbn(change.getIsbn());
+        if (existing.isEmpty()) {
+            return false;
+        }
+        String existingTime = existing.get().getUpdateTime();
+        if (policy != ConflictPolicy.OVERWRITE && existingTime != null && existingTime.compareTo(change.getTime()) > 0) {
+            return false;
+        }
+        bookService.deleteBook(existing.get().getId());
+        return true;
+    }
+
+    private void upsertBatch(List<Book> batch, ConflictPolicy policy, RestoreProgress progress) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        UpsertResult result = bookService.upsertAll(batch, policy);
+        for (BatchSaveResult.Failure failure : result.getFailures()) {
+            logger.error("Failed to restore book: " + failure);
+        }
+        progress.restored += result.getInsertedCount() + result.getUpdatedCount();
+        progress.skipped += result.getSkippedCount();
+        progress.failed += result.getFailedCount();
+        batch.clear();
+    }
+
+    // 增量的 since 必须与链中上一个备份的水位衔接，文件也必须都在
+    private List<BackupManifest.Entry> resolveChain(String filename) {
+        List<BackupManifest.Entry> chain = loadManifest().chainOf(filename);
+        if (chain.isEmpty() || chain.get(0).getKind() != BackupManifest.Kind.FULL) {
+            throw new IllegalStateException("备份清单中找不到增量备份的全量基线: " + filename);
+        }
+        if (!isComplete(chain)) {
+            throw new IllegalStateException("增量备份链不完整，无法恢复: " + filename);
+        }
+        return chain;
+    }
+
+    private boolean isComplete(List<BackupManifest.Entry> chain) {
+        if (chain.isEmpty() || chain.get(0).getKind() != BackupManifest.Kind.FULL) {
+            return false;
+        }
+        for (int i = 0; i < chain.size(); i++) {
+            BackupManifest.Entry entry = chain.get(i);
+            if (!Files.exists(Paths.get(backupDir, entry.getFileName()))) {
+                return false;
+            }
+            if (i > 0 && !chain.get(i - 1).getWatermark().equals(entry.getSince())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private BackupManifest loadManifest() {
+        BackupManifest manifest = fileStorageService.readJson(MANIFEST_FILE, BackupManifest.class);
+        return manifest != null ? manifest : new BackupManifest();
+    }
+
+    private void saveManifest(BackupManifest manifest) {
+        fileStorageService.writeJson(manifest, MANIFEST_FILE);
+    }
+
+    private static BackupManifest.Entry newEntry(String filename, BackupManifest.Kind kind, String base,
+                                                 ChangeWatermark since, ChangeWatermark watermark,
+                                                 LocalDateTime backupTime, long count) {
+        BackupManifest.Entry entry = new BackupManifest.Entry();
+        entry.setFileName(filename);
+        entry.setKind(kind);
+        entry.setBase(base);
+        entry.setSince(since != null ? since.format() : null);
+        entry.setWatermark(watermark.format());
+        entry.setBackupTime(backupTime.format(TIME_FORMAT));
+        entry.setRecordCount(count);
+        return entry;
+    }
+
+    // 同一秒内的多次备份追加序号，避免覆盖已有文件
+    private String newBackupFileName(String prefix, LocalDateTime time) {
+        String name = prefix + time.format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String extension = ".json" + (fileStorageService.isCompressionEnabled() ? FileStorageService.COMPRESSED_SUFFIX : "");
+        String filename = name + extension;
+        for (int sequence = 2; Files.exists(Paths.get(backupDir, filename)); sequence++) {
+            filename = name + "_" + sequence + extension;
+        }
+        return filename;
+    }
+
     public List<String> listBackups() {
         File dir = new File(backupDir);
-        String[] files = dir.list((d, name) -> name.startsWith("books_backup_") && name.endsWith(".json"));
-        return files != null ? List.of(files) : List.of();
+        // 全量与增量、压缩与未压缩的备份都列出，按文件名中的时间戳排序
+        String[] files = dir.list((d, name) -> (name.startsWith(FULL_PREFIX) || name.startsWith(DELTA_PREFIX))
+            && (name.endsWith(".json") || name.endsWith(".json" + FileStorageService.COMPRESSED_SUFFIX)));
+        if (files == null) {
+            return List.of();
+        }
+        Arrays.sort(files, Comparator.comparing(BackupService::backupTimestamp).thenComparing(Comparator.naturalOrder()));
+        return List.of(files);
+    }
+
+    private static String backupTimestamp(String filename) {
+        return filename.substring(filename.startsWith(DELTA_PREFIX) ? DELTA_PREFIX.length() : FULL_PREFIX.length());
     }
 
     public void shutdown() {
@@ -97,6 +367,49 @@ public class BackupService {
             scheduler.shutdownNow();
             backupExecutor.shutdownNow();
             Thread.currentThread().interrupt();
+        } finally {
+            fileStorageService.shutdown();
+        }
+    }
+
+    private static final class RestoreProgress {
+        private int restored;
+        private int skipped;
+        private int failed;
+        private int deleted;
+    }
+
+    // 按水位分页读取变更供增量备份逐条写出；读完后 getWatermark() 为最后一条变更的水位
+    private final class ChangePager implements Iterator<BookChange> {
+        private ChangeWatermark watermark;
+        private Iterator<BookChange> page = Collections.emptyIterator();
+        private boolean more = true;
+
+        private ChangePager(ChangeWatermark since) {
+            this.watermark = since;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext() && more) {
+                ChangeSet changes = bookService.findChangesSince(watermark, CHANGE_PAGE_SIZE, lagSeconds);
+                page = changes.getChanges().iterator();
+                watermark = changes.getWatermark();
+                more = changes.hasMore() && !changes.isEmpty();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public BookChange next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+
+        private ChangeWatermark getWatermark() {
+            return watermark;
         }
     }
 } 
\ No newline at end of file
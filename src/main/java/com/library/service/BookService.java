@@ -1,17 +1,71 @@
 package com.library.service;
 
 import com.library.domain.book.Book;
+import com.library.repository.BatchSaveResult;
+import com.library.repository.CatalogStats;
+import com.library.repository.ChangeSet;
+import com.library.repository.ChangeWatermark;
+import com.library.repository.ConflictPolicy;
+import com.library.repository.MultiGetResult;
+import com.library.repository.Page;
+import com.library.repository.StockAdjustment;
+import com.library.repository.StockAdjustmentResult;
+import com.library.repository.UpsertResult;
+import com.library.util.CacheStats;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public interface BookService {
     Book addBook(Book book);
+    BatchSaveResult saveAll(Collection<Book> books);
+
+    /**
+     * 批量按 ISBN 插入或更新，已存在的 ISBN 按 policy 处理
+     */
+    UpsertResult upsertAll(Collection<Book> books, ConflictPolicy policy);
     Optional<Book> findById(Long id);
     Optional<Book> findByIsbn(String isbn);
+    MultiGetResult<Long> findByIds(Collection<Long> ids);
+    MultiGetResult<String> findByIsbns(Collection<String> isbns);
     List<Book> findByTitle(String title);
     List<Book> findByType(String type);
     List<Book> findAll();
+    Stream<Book> streamAll();
     void updateStock(Long id, int change);
+    int adjustStock(Long id, int delta);
+    CompletableFuture<Integer> adjustStockAsync(Long id, int delta);
+    /**
+     * 批量调整库存（盘点对账），返回逐行结果；单行失败不影响其他行
+     */
+    StockAdjustmentResult bulkAdjustStock(Stream<StockAdjustment> adjustments);
     void deleteBook(Long id);
     List<Book> searchBooks(String keyword, String type);
+    Page<Book> findAllPage(String pageToken, int pageSize);
+    Page<Book> findByTypePage(String type, String pageToken, int pageSize);
+    Page<Book> searchBooksPage(String keyword, String type, String pageToken, int pageSize);
+
+    long countAll();
+
+    /**
+     * 按类型汇总的图书数、库存总量和缺货数
+     */
+    CatalogStats getCatalogStats();
+
+    /**
+     * 库存低于 threshold 的图书，库存最少的排在前面；type 为空时包含所有类型
+     */
+    List<Book> findLowStock(int threshold, String type, int limit);
+
+    /**
+     * 搜索结果缓存的统计信息，未启用缓存时返回 null
+     */
+    CacheStats getSearchCacheStats();
+
+    /**
+     * 水位之后的新增/修改与删除，最多 limit 条，只包含早于当前时间 lagSeconds 秒的变更
+     */
+    ChangeSet findChangesSince(ChangeWatermark since, int limit, int lagSeconds);
 } 
\ No newline at end of file
@@ -0,0 +1,176 @@
+package com.library.service;
+
+import com.library.repository.BookRepository;
+import com.library.repository.ChangeListener;
+import com.library.repository.ChangeSet;
+import com.library.repository.ChangeWatermark;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图书变更订阅服务
+ * 作用：定时按 (update_time, id) 水位增量读取图书的新增/修改和删除，分批推送给已注册的监听器
+ * （缓存、搜索索引、副本等），无需 findAll 全量重新加载
+ * 说明：
+ * - 所有监听器处理成功后水位才前进并持久化到文件，推送语义为至少一次
+ * - 没有持久化水位时从一分钟前开始：启动时已全量加载过的数据无需回放
+ * - 只读取早于当前时间 lagSeconds 秒的变更，提交时间晚于写入时间超过 lag 的长事务仍可能被跳过
+ * - 每小时清理一次超过 tombstoneRetentionDays 天的删除记录（0 表示不按时间清理），
+ *   只在本进程内可见的存储还会清理本服务水位已越过的删除记录；停机超过保留期的订阅方需要全量重新加载
+ */
+public class ChangeFeedService {
+    private static final Logger logger = Logger.getLogger(ChangeFeedService.class);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int MAX_BATCHES_PER_POLL = 20;
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final BookRepository bookRepository;
+    private final Path watermarkFile;
+    private final int batchSize;
+    private final int lagSeconds;
+    private final int tombstoneRetentionDays;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile ChangeWatermark watermark;
+    private long lastPurgeMillis;
+
+    public ChangeFeedService(BookRepository bookRepository, Path watermarkFile, int batchSize, int lagSeconds,
+                             int tombstoneRetentionDays) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.bookRepository = bookRepository;
+        this.watermarkFile = watermarkFile;
+        this.batchSize = batchSize;
+        this.lagSeconds = Math.max(0, lagSeconds);
+        this.tombstoneRetentionDays = Math.max(0, tombstoneRetentionDays);
+        this.watermark = loadWatermark();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public ChangeWatermark getWatermark() {
+        return watermark;
+    }
+
+    public void start(long interval, TimeUnit unit) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (Exception e) {
+                logger.error("Change feed poll failed at watermark " + watermark, e);
+            }
+        }, interval, interval, unit);
+        logger.info("Change feed started at watermark " + watermark + " with interval: " + interval + " " + unit);
+    }
+
+    /**
+     * 读取并推送水位之后的变更，返回推送的变更数；单次最多读取 MAX_BATCHES_PER_POLL 批
+     */
+    public synchronized int poll() {
+        int delivered = 0;
+        for (int i = 0; i < MAX_BATCHES_PER_POLL; i++) {
+            ChangeSet changes = bookRepository.findChangesSince(watermark, batchSize, lagSeconds);
+            if (changes.isEmpty()) {
+                break;
+            }
+            for (ChangeListener listener : listeners) {
+                listener.onChanges(changes);
+            }
+            watermark = changes.getWatermark();
+            saveWatermark(watermark);
+            delivered += changes.size();
+            if (!changes.hasMore()) {
+                break;
+            }
+        }
+        if (delivered > 0) {
+            logger.debug("Change feed delivered " + delivered + " changes, watermark " + watermark);
+        }
+        if (System.currentTimeMillis() - lastPurgeMillis >= PURGE_INTERVAL_MILLIS) {
+            try {
+                purgeTombstones();
+            } catch (RuntimeException e) {
+                // 清理失败不影响推送，下一个周期再试
+                logger.warn("Failed to purge book tombstones", e);
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * 清理超过保留期以及本服务水位已越过的删除记录，返回清理的条数
+     */
+    public synchronized int purgeTombstones() {
+        lastPurgeMillis = System.currentTimeMillis();
+        String before = tombstoneRetentionDays > 0
+            ? LocalDateTime.now().minusDays(tombstoneRetentionDays).format(TIME_FORMAT) : null;
+        int purged = bookRepository.purgeTombstones(before, watermark);
+        if (purged > 0) {
+            logger.info("Purged " + purged + " book tombstones, retention " + tombstoneRetentionDays + " days");
+        }
+        return purged;
+    }
+
+    private ChangeWatermark loadWatermark() {
+        try {
+            if (Files.exists(watermarkFile)) {
+                return ChangeWatermark.parse(Files.readString(watermarkFile, StandardCharsets.UTF_8).trim());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Invalid change feed watermark file, starting from recent changes: " + watermarkFile, e);
+        }
+        return new ChangeWatermark(LocalDateTime.now().minusMinutes(1).format(TIME_FORMAT), 0L);
+    }
+
+    // 先写临时文件再原子替换，进程崩溃时不会留下半个水位
+    private void saveWatermark(ChangeWatermark value) {
+        try {
+            Path parent = watermarkFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tmp = watermarkFile.resolveSibling(watermarkFile.getFileName() + ".tmp");
+            Files.writeString(tmp, value.format(), StandardCharsets.UTF_8);
+            Files.move(tmp, watermarkFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // 水位只在内存中前进，重启后会重复推送一部分变更
+            logger.error("Failed to persist change feed watermark: " + watermarkFile, e);
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(30, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,26 +1,84 @@
 package com.library.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.library.domain.book.Book;
+import com.library.repository.BookChange;
+import com.library.util.ConfigUtils;
+import com.library.util.ParallelGzipInputStream;
+import com.library.util.ParallelGzipOutputStream;
 import org.apache.log4j.Logger;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class FileStorageService {
     private static final Logger logger = Logger.getLogger(FileStorageService.class);
     private final String storageDir;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    public static final String COMPRESSED_SUFFIX = ".gz";
     private final ObjectMapper objectMapper;
+    // 逐本写入时不在每本之后刷新，由缓冲区攒满再写入文件
+    private final ObjectWriter bookWriter;
+    private final ObjectReader bookReader;
+    // 压缩备份：按块并行压缩/解压，格式见 ChunkedGzip
+    private final boolean compressionEnabled;
+    private final int compressionChunkSize;
+    private final int compressionLevel;
+    private final int compressionThreads;
+    private final ExecutorService compressionExecutor;
 
     public FileStorageService(String storageDir) {
+        this(storageDir, null);
+    }
+
+    public FileStorageService(String storageDir, Properties props) {
         this.storageDir = storageDir;
+        this.compressionEnabled = ConfigUtils.getBoolean(props, "backup.compress.enabled", false);
+        this.compressionChunkSize = Math.max(64, ConfigUtils.getInt(props, "backup.compress.chunkKb", 1024)) * 1024;
+        this.compressionLevel = Math.max(1, Math.min(9, ConfigUtils.getInt(props, "backup.compress.level", 6)));
+        int threads = ConfigUtils.getInt(props, "backup.compress.threads", 0);
+        this.compressionThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.compressionExecutor = Executors.newFixedThreadPool(compressionThreads, runnable -> {
+            Thread thread = new Thread(runnable, "backup-gzip-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
         this.objectMapper = new ObjectMapper()
             .registerModule(new JavaTimeModule());
+        this.bookWriter = objectMapper.writerFor(Book.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.bookReader = objectMapper.readerFor(Book.class);
         
         try {
             Files.createDirectories(Paths.get(storageDir));
@@ -48,10 +106,13 @@ public class FileStorageService {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 Path filePath = Paths.get(storageDir, filename);
-                List<Book> books = objectMapper.readValue(
-                    filePath.toFile(),
-                    objectMapper.getTypeFactory().constructCollectionType(List.class, Book.class)
-                );
+                List<Book> books;
+                try (InputStream in = openInput(filePath)) {
+                    books = objectMapper.readValue(
+                        in,
+                        objectMapper.getTypeFactory().constructCollectionType(List.class, Book.class)
+                    );
+                }
                 logger.debug("Successfully loaded " + books.size() + " books from file: " + filePath);
                 return books;
             } catch (Exception e) {
@@ -61,6 +122,199 @@ public class FileStorageService {
         });
     }
 
+    /**
+     * 流式写出图书：JsonGenerator 逐本序列化到带缓冲的文件通道，内存占用与图书数量无关
+     * 文件名以 .gz 结尾时写为分块 gzip，各块由压缩线程池并行压缩
+     * 先写入临时文件，完成并刷盘后再原子替换为目标文件，中途失败不会留下不完整的备份
+     *
+     * @return 写出的图书数量
+     */
+    public long writeBooks(Stream<Book> books, String filename) {
+        return writeArray(books.iterator(), filename, bookWriter::writeValue);
+    }
+
+    /**
+     * 流式写出增量备份中的变更，写法与 writeBooks 相同；每个元素为
+     * {"op":"UPSERT","time":...,"book":{...}} 或 {"op":"DELETE","time":...,"id":...,"isbn":...}
+     *
+     * @return 写出的变更数量
+     */
+    public long writeChanges(Iterator<BookChange> changes, String filename) {
+        return writeArray(changes, filename, this::writeChange);
+    }
+
+    private <T> long writeArray(Iterator<T> elements, String filename, ElementWriter<T> elementWriter) {
+        Path target = Paths.get(storageDir, filename);
+        Path temp = Paths.get(storageDir, filename + ".tmp");
+        long count = 0;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                try (OutputStream out = openOutput(channel, filename);
+                     JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                    generator.writeStartArray();
+                    while (elements.hasNext()) {
+                        elementWriter.write(generator, elements.next());
+                        count++;
+                    }
+                    generator.writeEndArray();
+                }
+                // 压缩流在关闭时才写出最后一块和块索引，必须先关闭再刷盘，否则改名后的文件可能缺少尾部
+                channel.force(false);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Streamed " + count + " records to file: " + target);
+            return count;
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(temp);
+            logger.error("Failed to write records to file: " + filename, e);
+            throw new RuntimeException("Failed to save books", e);
+        }
+    }
+
+    private void writeChange(JsonGenerator generator, BookChange change) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("op", change.getType().name());
+        generator.writeStringField("time", change.getTime());
+        if (change.isDelete()) {
+            generator.writeNumberField("id", change.getId());
+            generator.writeStringField("isbn", change.getIsbn());
+        } else {
+            generator.writeFieldName("book");
+            bookWriter.writeValue(generator, change.getBook());
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * 流式读取 writeBooks（或 saveBooks）写出的 JSON 数组，JsonParser 每次只解析一本图书
+     * 返回的流持有文件句柄，必须由调用方关闭
+     */
+    public Stream<Book> streamBooks(String filename) {
+        return streamArray(filename, bookReader::readValue);
+    }
+
+    /**
+     * 流式读取 writeChanges 写出的变更，顺序与写出时一致；返回的流必须由调用方关闭
+     */
+    public Stream<BookChange> streamChanges(String filename) {
+        return streamArray(filename, this::readChange);
+    }
+
+    private <T> Stream<T> streamArray(String filename, ElementReader<T> elementReader) {
+        Path filePath = Paths.get(storageDir, filename);
+        JsonParser parser = null;
+        try {
+            parser = objectMapper.getFactory().createParser(openInput(filePath));
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Backup file is not a JSON array: " + filePath);
+            }
+        } catch (IOException e) {
+            closeQuietly(parser);
+            logger.error("Failed to open books file: " + filename, e);
+            throw new RuntimeException("Failed to load books", e);
+        }
+        JsonParser opened = parser;
+        return StreamSupport.stream(new ArraySpliterator<>(opened, elementReader), false)
+            .onClose(() -> closeQuietly(opened));
+    }
+
+    // 解析器位于 START_OBJECT，字段顺序不限
+    private BookChange readChange(JsonParser parser) throws IOException {
+        String op = null;
+        String time = null;
+        long id = 0;
+        String isbn = null;
+        Book book = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "op" -> op = parser.getValueAsString();
+                case "time" -> time = parser.getValueAsString();
+                case "id" -> id = parser.getValueAsLong();
+                case "isbn" -> isbn = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                case "book" -> book = bookReader.readValue(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        if ("DELETE".equals(op)) {
+            return BookChange.delete(id, isbn, time);
+        }
+        if ("UPSERT".equals(op) && book != null) {
+            return BookChange.upsert(book);
+        }
+        throw new IOException("Invalid change record: op=" + op);
+    }
+
+    /**
+     * 读取小型 JSON 文件（如备份清单），文件不存在时返回 null
+     */
+    public <T> T readJson(String filename, Class<T> type) {
+        Path filePath = Paths.get(storageDir, filename);
+        if (!Files.exists(filePath)) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(filePath.toFile(), type);
+        } catch (IOException e) {
+            logger.error("Failed to read file: " + filename, e);
+            throw new RuntimeException("Failed to read " + filename, e);
+        }
+    }
+
+    /**
+     * 写入小型 JSON 文件：先写临时文件再原子替换
+     */
+    public void writeJson(Object value, String filename) {
+        Path target = Paths.get(storageDir, filename);
+        Path temp = Paths.get(storageDir, filename + ".tmp");
+        try {
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), value);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            logger.error("Failed to write file: " + filename, e);
+            throw new RuntimeException("Failed to write " + filename, e);
+        }
+    }
+
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    public void shutdown() {
+        compressionExecutor.shutdownNow();
+    }
+
+    // 压缩时 JsonGenerator 自带缓冲，直接写入分块压缩流；同时在途的块数为线程数的两倍，让各线程始终有块可压
+    // 两种输出流关闭时都不关闭文件通道，关闭后仍可对通道刷盘
+    private OutputStream openOutput(FileChannel channel, String filename) {
+        if (filename.endsWith(COMPRESSED_SUFFIX)) {
+            return new ParallelGzipOutputStream(channel, compressionExecutor, compressionChunkSize, compressionLevel,
+                compressionThreads * 2);
+        }
+        OutputStream channelOut = new FilterOutputStream(Channels.newOutputStream(channel)) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        return new BufferedOutputStream(channelOut, STREAM_BUFFER_SIZE);
+    }
+
+    private InputStream openInput(Path filePath) throws IOException {
+        if (filePath.getFileName().toString().endsWith(COMPRESSED_SUFFIX)) {
+            return ParallelGzipInputStream.open(filePath, compressionExecutor, compressionThreads * 2);
+        }
+        return new BufferedInputStream(Channels.newInputStream(FileChannel.open(filePath)), STREAM_BUFFER_SIZE);
+    }
+
     public void deleteFile(String filename) {
         try {
             Path filePath = Paths.get(storageDir, filename);
@@ -71,4 +325,60 @@ public class FileStorageService {
             throw new RuntimeException("Failed to delete file", e);
         }
     }
-} 
\ No newline at end of file
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Failed to delete temporary file: " + path, e);
+        }
+    }
+
+    private static void closeQuietly(JsonParser parser) {
+        if (parser == null) {
+            return;
+        }
+        try {
+            parser.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close books file", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ElementWriter<T> {
+        void write(JsonGenerator generator, T element) throws IOException;
+    }
+
+    // 调用时解析器位于元素的起始 token
+    @FunctionalInterface
+    private interface ElementReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    // 逐个读取数组元素，读到 END_ARRAY 结束
+    private static final class ArraySpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final JsonParser parser;
+        private final ElementReader<T> elementReader;
+
+        private ArraySpliterator(JsonParser parser, ElementReader<T> elementReader) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.parser = parser;
+            this.elementReader = elementReader;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                JsonToken token = parser.nextToken();
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    return false;
+                }
+                action.accept(elementReader.read(parser));
+                return true;
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read record from backup", e);
+            }
+        }
+    }
+}
@@ -1,19 +1,43 @@
 package com.library.service.impl;
 
 import com.library.domain.book.Book;
+import com.library.domain.book.InsufficientStockException;
+import com.library.repository.BatchSaveResult;
 import com.library.repository.BookRepository;
+import com.library.repository.CatalogStats;
+import com.library.repository.ChangeSet;
+import com.library.repository.ChangeWatermark;
+import com.library.repository.ConflictPolicy;
+import com.library.repository.MultiGetResult;
+import com.library.repository.Page;
+import com.library.repository.StockAdjustment;
+import com.library.repository.StockAdjustmentResult;
+import com.library.repository.UpsertResult;
 import com.library.service.BookService;
+import com.library.util.CacheStats;
+import com.library.util.TransactionManager;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public class BookServiceImpl implements BookService {
     private static final Logger logger = Logger.getLogger(BookServiceImpl.class);
     private final BookRepository bookRepository;
+    // 为 null 时不缓存搜索结果
+    private final SearchResultCache searchCache;
     
     public BookServiceImpl(BookRepository bookRepository) {
+        this(bookRepository, null);
+    }
+    
+    public BookServiceImpl(BookRepository bookRepository, SearchResultCache searchCache) {
         this.bookRepository = bookRepository;
+        this.searchCache = searchCache;
     }
     
     @Override
@@ -22,17 +46,74 @@ public class BookServiceImpl implements BookService {
             // 验证图书信息
             book.validate();
             
-            // 检查ISBN是否已存在
-            if (bookRepository.findByIsbn(book.getIsbn()).isPresent()) {
+            // 依赖 uk_isbn 唯一键一次完成查重与插入，ISBN 已存在时不做修改
+            if (bookRepository.upsert(book, ConflictPolicy.SKIP) == UpsertResult.Outcome.SKIPPED) {
                 throw new IllegalArgumentException("ISBN已存在");
             }
-            
-            // 保存图书
-            return bookRepository.save(book);
+            return book;
         } catch (Exception e) {
             logger.error("Error adding book: " + book.getIsbn(), e);
             throw new RuntimeException("添加图书失败: " + e.getMessage(), e);
+        } finally {
+            catalogChanged();
+        }
+    }
+    
+    @Override
+    public BatchSaveResult saveAll(Collection<Book> books) {
+        if (books == null) {
+            throw new IllegalArgumentException("Books cannot be null");
+        }
+        
+        // 先在内存中校验，未通过校验的图书不进入数据库批次
+        BatchSaveResult result = new BatchSaveResult();
+        List<Book> valid = new ArrayList<>(books.size());
+        for (Book book : books) {
+            try {
+                book.validate();
+                valid.add(book);
+            } catch (Exception e) {
+                result.addFailure(book, e.getMessage());
+            }
+        }
+        
+        try {
+            result.merge(bookRepository.saveAll(valid));
+        } finally {
+            // 分块提交，失败时前面的块可能已经写入
+            catalogChanged();
         }
+        logger.info("Bulk saved " + result.getSavedCount() + " books, " + result.getFailedCount() + " failed");
+        return result;
+    }
+    
+    @Override
+    public UpsertResult upsertAll(Collection<Book> books, ConflictPolicy policy) {
+        if (books == null) {
+            throw new IllegalArgumentException("Books cannot be null");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Conflict policy cannot be null");
+        }
+
+        UpsertResult result = new UpsertResult();
+        List<Book> valid = new ArrayList<>(books.size());
+        for (Book book : books) {
+            try {
+                book.validate();
+                valid.add(book);
+            } catch (Exception e) {
+                result.addFailure(book, e.getMessage());
+            }
+        }
+
+        try {
+            result.merge(bookRepository.upsertAll(valid, policy));
+        } finally {
+            catalogChanged();
+        }
+        logger.info("Bulk upserted books (" + policy + "): " + result);
+        return result;
     }
     
     @Override
@@ -51,6 +132,22 @@ public class BookServiceImpl implements BookService {
         return bookRepository.findByIsbn(isbn);
     }
     
+    @Override
+    public MultiGetResult<Long> findByIds(Collection<Long> ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("IDs cannot be null");
+        }
+        return bookRepository.findByIds(ids);
+    }
+    
+    @Override
+    public MultiGetResult<String> findByIsbns(Collection<String> isbns) {
+        if (isbns == null) {
+            throw new IllegalArgumentException("ISBNs cannot be null");
+        }
+        return bookRepository.findByIsbns(isbns);
+    }
+    
     @Override
     public List<Book> findByTitle(String title) {
         if (title == null || title.trim().isEmpty()) {
@@ -72,6 +169,26 @@ public class BookServiceImpl implements BookService {
         return bookRepository.findAll();
     }
     
+    @Override
+    public Stream<Book> streamAll() {
+        return bookRepository.streamAll();
+    }
+    
+    @Override
+    public long countAll() {
+        return bookRepository.countAll();
+    }
+    
+    @Override
+    public CatalogStats getCatalogStats() {
+        return bookRepository.getCatalogStats();
+    }
+    
+    @Override
+    public List<Book> findLowStock(int threshold, String type, int limit) {
+        return bookRepository.findLowStock(threshold, type, Page.checkPageSize(limit));
+    }
+    
     @Override
     public void updateStock(Long id, int newStock) {
         if (newStock < 0) {
@@ -84,6 +201,53 @@ public class BookServiceImpl implements BookService {
         } catch (Exception e) {
             logger.error("Error updating stock for book id: " + id, e);
             throw new RuntimeException("更新库存失败: " + e.getMessage(), e);
+        } finally {
+            catalogChanged();
+        }
+    }
+    
+    @Override
+    public int adjustStock(Long id, int delta) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID cannot be null");
+        }
+        
+        try {
+            return bookRepository.adjustStock(id, delta);
+        } catch (InsufficientStockException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error adjusting stock for book id: " + id, e);
+            throw new RuntimeException("更新库存失败: " + e.getMessage(), e);
+        } finally {
+            catalogChanged();
+        }
+    }
+    
+    @Override
+    public CompletableFuture<Integer> adjustStockAsync(Long id, int delta) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID cannot be null");
+        }
+        CompletableFuture<Integer> future = bookRepository.adjustStockAsync(id, delta);
+        if (searchCache == null) {
+            return future;
+        }
+        // 异步写在其他线程提交，完成后再使缓存失效
+        return future.whenComplete((stock, error) -> searchCache.bumpVersion());
+    }
+    
+    @Override
+    public StockAdjustmentResult bulkAdjustStock(Stream<StockAdjustment> adjustments) {
+        if (adjustments == null) {
+            throw new IllegalArgumentException("Adjustments cannot be null");
+        }
+        try {
+            StockAdjustmentResult result = bookRepository.bulkAdjustStock(adjustments);
+            logger.info("Bulk stock adjustment: " + result);
+            return result;
+        } finally {
+            catalogChanged();
         }
     }
     
@@ -92,16 +256,68 @@ public class BookServiceImpl implements BookService {
         if (id == null) {
             throw new IllegalArgumentException("ID cannot be null");
         }
-        bookRepository.delete(id);
+        try {
+            bookRepository.delete(id);
+        } finally {
+            catalogChanged();
+        }
     }
     
     @Override
     public List<Book> searchBooks(String keyword, String type) {
         try {
-            return bookRepository.searchBooks(keyword, type);
+            if (searchCache == null) {
+                return bookRepository.searchBooks(keyword, type);
+            }
+            return searchCache.get(keyword, type, bookRepository::searchBooks);
         } catch (Exception e) {
             logger.error("Error searching books", e);
             throw new RuntimeException("搜索图书失败: " + e.getMessage(), e);
         }
     }
-} 
\ No newline at end of file
+    
+    @Override
+    public Page<Book> findAllPage(String pageToken, int pageSize) {
+        return bookRepository.findAllPage(pageToken, Page.checkPageSize(pageSize));
+    }
+    
+    @Override
+    public Page<Book> findByTypePage(String type, String pageToken, int pageSize) {
+        if (type == null || type.trim().isEmpty()) {
+            throw new IllegalArgumentException("Type cannot be empty");
+        }
+        return bookRepository.findByTypePage(type, pageToken, Page.checkPageSize(pageSize));
+    }
+    
+    @Override
+    public Page<Book> searchBooksPage(String keyword, String type, String pageToken, int pageSize) {
+        try {
+            return bookRepository.searchBooksPage(keyword, type, pageToken, Page.checkPageSize(pageSize));
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error searching books", e);
+            throw new RuntimeException("搜索图书失败: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public CacheStats getSearchCacheStats() {
+        return searchCache == null ? null : searchCache.getStats();
+    }
+    
+    @Override
+    public ChangeSet findChangesSince(ChangeWatermark since, int limit, int lagSeconds) {
+        if (since == null) {
+            throw new IllegalArgumentException("Watermark cannot be null");
+        }
+        return bookRepository.findChangesSince(since, limit, lagSeconds);
+    }
+    
+    // 写操作结束后使搜索缓存失效；在事务中时等提交后再失效，避免把提交前查到的旧结果当作新版本缓存
+    private void catalogChanged() {
+        if (searchCache != null) {
+            TransactionManager.afterCommit(searchCache::bumpVersion);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.library.service.impl;
+
+import com.library.domain.book.Book;
+import com.library.repository.ChangeListener;
+import com.library.repository.ChangeSet;
+import com.library.repository.impl.BookTypeColumns;
+import com.library.util.CacheStats;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * 搜索结果缓存
+ * 作用：
+ * - 按规范化后的 (类型, 关键词) 缓存 searchBooks 的结果，重复的搜索不再访问数据库
+ * - 全局目录版本号：任何写操作（本进程写入或变更订阅收到的外部写入）都使版本号加一，
+ *   版本号与当前不一致的缓存项在下次访问时丢弃，无需逐项追踪失效
+ * - 按结果大小加权的 LRU：每项权重为 1 + 结果图书数，总权重超过上限时淘汰最久未访问的项
+ * 说明：缓存中保存图书副本，返回时再复制一次，调用方修改结果不会影响缓存
+ */
+public class SearchResultCache implements ChangeListener {
+    private final long maxWeight;
+    private final AtomicLong version = new AtomicLong();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public SearchResultCache(long maxWeight) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Cache weight must be positive");
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * 命中时直接返回；否则以规范化后的关键词和类型调用 loader 查询并缓存结果
+     */
+    public List<Book> get(String keyword, String type, BiFunction<String, String, List<Book>> loader) {
+        String normalizedKeyword = normalize(keyword);
+        String normalizedType = normalize(type);
+        String key = keyOf(normalizedKeyword, normalizedType);
+        // 先记下版本号再查询：查询期间发生写入时，结果以旧版本号存入，下次访问即被丢弃
+        long loadVersion = version.get();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.version == loadVersion) {
+                    hits++;
+                    return copy(entry.books);
+                }
+                remove(key, entry);
+                expirations++;
+            }
+            misses++;
+        }
+
+        List<Book> books = loader.apply(normalizedKeyword, normalizedType);
+        Entry loaded = new Entry(copy(books), loadVersion);
+        if (loaded.weight() <= maxWeight) {
+            synchronized (this) {
+                Entry previous = entries.put(key, loaded);
+                if (previous != null) {
+                    weight -= previous.weight();
+                }
+                weight += loaded.weight();
+                evictIfNeeded();
+            }
+        }
+        return books;
+    }
+
+    /**
+     * 目录发生写入：版本号加一，所有现有缓存项失效
+     */
+    public void bumpVersion() {
+        version.incrementAndGet();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * 变更订阅回调：其他进程的写入同样使版本号加一
+     */
+    @Override
+    public void onChanges(ChangeSet changes) {
+        if (!changes.isEmpty()) {
+            bumpVersion();
+        }
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits, misses, evictions, expirations, entries.size());
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    // 调用方需持有锁
+    private void evictIfNeeded() {
+        var iterator = entries.entrySet().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            weight -= eldest.getValue().weight();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    // 调用方需持有锁
+    private void remove(String key, Entry entry) {
+        entries.remove(key);
+        weight -= entry.weight();
+    }
+
+    // 缓存键统一小写：各存储引擎的关键词与类型匹配都不区分大小写
+    private static String keyOf(String keyword, String type) {
+        return (type == null ? "" : type.toLowerCase(Locale.ROOT)) + '\u0000'
+                + (keyword == null ? "" : keyword.toLowerCase(Locale.ROOT));
+    }
+
+    // 去掉首尾空白并合并连续空白，空串视为不限条件
+    private static String normalize(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim().replaceAll("\\s+", " ");
+    }
+
+    private static List<Book> copy(List<Book> books) {
+        List<Book> copies = new ArrayList<>(books.size());
+        for (Book book : books) {
+            copies.add(BookTypeColumns.copyOf(book));
+        }
+        return copies;
+    }
+
+    private static final class Entry {
+        private final List<Book> books;
+        private final long version;
+
+        private Entry(List<Book> books, long version) {
+            this.books = books;
+            this.version = version;
+        }
+
+        private long weight() {
+            return 1L + books.size();
+        }
+    }
+}
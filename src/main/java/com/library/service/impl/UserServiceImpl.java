@@ -3,6 +3,7 @@ package com.library.service.impl;
 import com.library.domain.user.User;
 import com.library.repository.UserRepository;
 import com.library.service.UserService;
+import com.library.util.TransactionManager;
 import org.apache.log4j.Logger;
 
 public class UserServiceImpl implements UserService {
@@ -29,15 +30,18 @@ public class UserServiceImpl implements UserService {
             throw new IllegalArgumentException("密码不能为空");
         }
         
-        if (userRepository.existsByUsername(username)) {
-            throw new IllegalArgumentException("用户名已存在");
-        }
-        
-        User user = new User();
-        user.setUsername(username);
-        user.setPassword(password);
-        user.setAdmin(false);
-        
-        return userRepository.save(user);
+        // 查重与保存在同一事务、同一连接中完成
+        return TransactionManager.execute(() -> {
+            if (userRepository.existsByUsername(username)) {
+                throw new IllegalArgumentException("用户名已存在");
+            }
+
+            User user = new User();
+            user.setUsername(username);
+            user.setPassword(password);
+            user.setAdmin(false);
+
+            return userRepository.save(user);
+        });
     }
 } 
\ No newline at end of file
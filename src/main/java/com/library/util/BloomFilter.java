@@ -0,0 +1,124 @@
+package com.library.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 布隆过滤器
+ * 作用：以固定的位数组判断字符串键"一定不存在"或"可能存在"，不会漏判已加入的键
+ * 说明：
+ * - 位数与哈希函数个数按预期键数和目标误判率计算，位数不超过 maxBits
+ * - 双重哈希：由一个 64 位哈希派生 k 个位置，避免逐个计算 k 个哈希
+ * - 位数组用 AtomicLongArray，put 与 mightContain 可并发调用
+ */
+public class BloomFilter {
+    private static final double LN2 = Math.log(2);
+    private static final int MAX_HASH_FUNCTIONS = 16;
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong insertions = new AtomicLong();
+
+    private BloomFilter(long bitCount, int hashCount) {
+        this.words = new AtomicLongArray((int) (bitCount >>> 6));
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * 按预期键数和误判率创建过滤器，位数向上取整到 64 的倍数并受 maxBits 限制
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate, long maxBits) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (LN2 * LN2));
+        // AtomicLongArray 以 int 为下标
+        long cap = Math.min(Math.max(64, maxBits), (long) Integer.MAX_VALUE * 64);
+        long bits = (Math.min(optimalBits, cap) + 63) & ~63L;
+        int hashes = (int) Math.round((double) bits / expectedInsertions * LN2);
+        return new BloomFilter(bits, Math.max(1, Math.min(MAX_HASH_FUNCTIONS, hashes)));
+    }
+
+    public void put(String key) {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            setBit(index);
+        }
+        insertions.incrementAndGet();
+    }
+
+    public boolean mightContain(String key) {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getMemoryBytes() {
+        return bitCount >>> 3;
+    }
+
+    /**
+     * 累计 put 次数（同一个键重复加入会重复计数）
+     */
+    public long getInsertions() {
+        return insertions.get();
+    }
+
+    /**
+     * 按已加入的键数估算的当前误判率
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashCount * (double) insertions.get() / bitCount), hashCount);
+    }
+
+    private void setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        long current;
+        while (((current = words.get(word)) & mask) == 0) {
+            if (words.compareAndSet(word, current, current | mask)) {
+                return;
+            }
+        }
+    }
+
+    // FNV-1a 逐字符累加后再做一次雪崩混合，使低位也均匀分布
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb93fe1a85ec3L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
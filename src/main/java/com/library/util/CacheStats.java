@@ -0,0 +1,56 @@
+package com.library.util;
+
+/**
+ * 缓存统计快照
+ * 作用：记录命中、未命中、淘汰等计数，用于观察缓存效果
+ */
+public class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final long size;
+
+    public CacheStats(long hits, long misses, long evictions, long expirations, long size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.size = size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getExpirations() {
+        return expirations;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getRequests() {
+        return hits + misses;
+    }
+
+    public double getHitRate() {
+        long requests = getRequests();
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats{hits=%d, misses=%d, hitRate=%.2f%%, evictions=%d, expirations=%d, size=%d}",
+            hits, misses, getHitRate() * 100, evictions, expirations, size);
+    }
+}
@@ -0,0 +1,207 @@
+package com.library.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 分块 gzip 格式
+ * 作用：数据切成固定大小的块，每块独立压缩为一个 gzip 成员，多个成员首尾相接仍是合法的 gzip 文件，
+ *      gunzip / GZIPInputStream 可直接顺序解压
+ * 说明：
+ * - 文件末尾追加一个不含数据的索引成员，块索引（每块的成员长度和原始长度）放在它头部的 FEXTRA 字段中，
+ *   子字段标识为 "CI"；解压工具会忽略 FEXTRA，因此不影响解压结果
+ * - FEXTRA 最多 65535 字节，块数超过 MAX_INDEXED_CHUNKS 时不写索引，读取时退回顺序解压
+ */
+public final class ChunkedGzip {
+    static final int MAX_INDEXED_CHUNKS = (65535 - 4 - 4) / 8;
+
+    private static final int HEADER_SIZE = 10;
+    private static final int TRAILER_SIZE = 8;
+    private static final byte FLAG_EXTRA = 0x04;
+    private static final byte OS_UNKNOWN = (byte) 255;
+    private static final byte INDEX_ID1 = 'C';
+    private static final byte INDEX_ID2 = 'I';
+    // 空 deflate 数据（一个最终的固定霍夫曼块）
+    private static final byte[] EMPTY_DEFLATE = {0x03, 0x00};
+    // 索引成员：头部 + XLEN + 子字段头 + 块数 + 条目 + 空数据 + 尾部
+    private static final int INDEX_OVERHEAD = HEADER_SIZE + 2 + 4 + 4 + EMPTY_DEFLATE.length + TRAILER_SIZE;
+
+    private ChunkedGzip() {
+    }
+
+    /**
+     * 块在文件中的位置：offset 为成员起始位置，length 为成员长度，size 为原始数据长度
+     */
+    public static final class Chunk {
+        private final long offset;
+        private final int length;
+        private final int size;
+
+        Chunk(long offset, int length, int size) {
+            this.offset = offset;
+            this.length = length;
+            this.size = size;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public int getSize() {
+            return size;
+        }
+    }
+
+    /**
+     * 把一块数据压缩为完整的 gzip 成员
+     */
+    static byte[] compressMember(byte[] data, int length, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 64);
+            out.write(header((byte) 0), 0, HEADER_SIZE);
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            out.write(trailer((int) crc.getValue(), length), 0, TRAILER_SIZE);
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 解压一个 gzip 成员并校验 CRC 和长度；成员须是 compressMember 写出的格式（头部无可选字段）
+     */
+    static byte[] decompressMember(byte[] member, int size) throws IOException {
+        if (member.length < HEADER_SIZE + TRAILER_SIZE || (member[0] & 0xff) != 0x1f || (member[1] & 0xff) != 0x8b
+                || member[3] != 0) {
+            throw new IOException("Corrupt gzip chunk header");
+        }
+        byte[] data = new byte[size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(member, HEADER_SIZE, member.length - HEADER_SIZE - TRAILER_SIZE);
+            int read = 0;
+            while (read < size && !inflater.finished()) {
+                int n = inflater.inflate(data, read, size - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != size) {
+                throw new IOException("Gzip chunk is shorter than indexed size");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt gzip chunk", e);
+        } finally {
+            inflater.end();
+        }
+        ByteBuffer trailer = ByteBuffer.wrap(member, member.length - TRAILER_SIZE, TRAILER_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if (trailer.getInt() != (int) crc.getValue() || trailer.getInt() != size) {
+            throw new IOException("Gzip chunk checksum mismatch");
+        }
+        return data;
+    }
+
+    /**
+     * 索引成员；块数超过上限时返回 null（不写索引）
+     */
+    static byte[] indexMember(List<int[]> chunks) {
+        if (chunks.size() > MAX_INDEXED_CHUNKS) {
+            return null;
+        }
+        int subfieldLength = 4 + chunks.size() * 8;
+        ByteBuffer buf = ByteBuffer.allocate(INDEX_OVERHEAD + chunks.size() * 8).order(ByteOrder.LITTLE_ENDIAN);
+        buf.put(header(FLAG_EXTRA));
+        buf.putShort((short) (4 + subfieldLength));
+        buf.put(INDEX_ID1).put(INDEX_ID2).putShort((short) subfieldLength);
+        buf.putInt(chunks.size());
+        for (int[] chunk : chunks) {
+            buf.putInt(chunk[0]).putInt(chunk[1]);
+        }
+        buf.put(EMPTY_DEFLATE);
+        buf.put(trailer(0, 0));
+        return buf.array();
+    }
+
+    /**
+     * 从文件末尾读取块索引；没有索引或索引与文件不符时返回 null
+     */
+    static List<Chunk> readIndex(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        int tailSize = (int) Math.min(fileSize, INDEX_OVERHEAD + (long) MAX_INDEXED_CHUNKS * 8);
+        ByteBuffer tail = ByteBuffer.allocate(tailSize).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, tail, fileSize - tailSize);
+        byte[] bytes = tail.array();
+
+        // 索引成员长度可变：从后向前找满足 起始 + 成员长度 == 文件末尾 的头部
+        for (int start = tailSize - INDEX_OVERHEAD; start >= 0; start--) {
+            if ((bytes[start] & 0xff) != 0x1f || (bytes[start + 1] & 0xff) != 0x8b || bytes[start + 3] != FLAG_EXTRA
+                    || bytes[start + HEADER_SIZE + 2] != INDEX_ID1 || bytes[start + HEADER_SIZE + 3] != INDEX_ID2) {
+                continue;
+            }
+            int xlen = tail.getShort(start + HEADER_SIZE) & 0xffff;
+            if (start + HEADER_SIZE + 2 + xlen + EMPTY_DEFLATE.length + TRAILER_SIZE != tailSize) {
+                continue;
+            }
+            int count = tail.getInt(start + HEADER_SIZE + 6);
+            if (count < 0 || 4 + 4 + (long) count * 8 != xlen) {
+                continue;
+            }
+            List<Chunk> chunks = new ArrayList<>(count);
+            long offset = 0;
+            int entry = start + HEADER_SIZE + 10;
+            for (int i = 0; i < count; i++, entry += 8) {
+                int length = tail.getInt(entry);
+                int size = tail.getInt(entry + 4);
+                chunks.add(new Chunk(offset, length, size));
+                offset += length;
+            }
+            // 各块长度之和必须正好到达索引成员的起始位置
+            return offset == fileSize - tailSize + start ? Collections.unmodifiableList(chunks) : null;
+        }
+        return null;
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    private static byte[] header(byte flags) {
+        return new byte[]{0x1f, (byte) 0x8b, 0x08, flags, 0, 0, 0, 0, 0, OS_UNKNOWN};
+    }
+
+    private static byte[] trailer(int crc, int size) {
+        return ByteBuffer.allocate(TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN).putInt(crc).putInt(size).array();
+    }
+}
@@ -0,0 +1,68 @@
+package com.library.util;
+
+import org.apache.log4j.Logger;
+
+import java.util.Properties;
+
+/**
+ * 配置读取工具类
+ * 作用：从 application.properties 中读取带默认值的配置项
+ */
+public final class ConfigUtils {
+    private static final Logger logger = Logger.getLogger(ConfigUtils.class);
+
+    private ConfigUtils() {
+    }
+
+    public static String getString(Properties props, String key, String defaultValue) {
+        if (props == null) {
+            return defaultValue;
+        }
+        String value = props.getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    public static int getInt(Properties props, String key, int defaultValue) {
+        String value = getString(props, key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid integer for " + key + ": " + value + ", using default " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(Properties props, String key, long defaultValue) {
+        String value = getString(props, key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid long for " + key + ": " + value + ", using default " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static double getDouble(Properties props, String key, double defaultValue) {
+        String value = getString(props, key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid number for " + key + ": " + value + ", using default " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(Properties props, String key, boolean defaultValue) {
+        String value = getString(props, key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
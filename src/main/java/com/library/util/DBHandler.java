@@ -2,6 +2,7 @@ package com.library.util;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
@@ -10,17 +11,44 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.Statement;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
 import java.util.Properties;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * 数据库连接池
+ * 说明：连接池在第一次获取连接时才初始化（包括建库检查），
+ * 因此只使用内存存储引擎时不会访问 MySQL
+ */
 public class DBHandler {
     private static final Logger logger = Logger.getLogger(DBHandler.class);
-    private static HikariDataSource dataSource;
+    private static volatile HikariDataSource dataSource;
+    private static final String DATA_SOURCE_PREFIX = "db.ds.";
+
+    // 连接获取耗时统计
+    private static final LongAdder acquisitions = new LongAdder();
+    private static final LongAdder acquisitionNanos = new LongAdder();
+    private static final LongAdder acquisitionTimeouts = new LongAdder();
+    private static final LongAccumulator maxAcquisitionNanos = new LongAccumulator(Long::max, 0L);
+
+    /** 流式读取模式：服务端游标（useCursorFetch + fetchSize） */
+    public static final String STREAM_MODE_CURSOR = "cursor";
+    /** 流式读取模式：Connector/J 逐行流式读取（fetchSize = Integer.MIN_VALUE） */
+    public static final String STREAM_MODE_STREAMING = "streaming";
     
-    static {
-        initializeDataSource();
+    private static HikariDataSource getDataSource() {
+        HikariDataSource ds = dataSource;
+        if (ds == null) {
+            ds = initializeDataSource();
+        }
+        return ds;
     }
-    
-    private static void initializeDataSource() {
+
+    private static synchronized HikariDataSource initializeDataSource() {
+        if (dataSource != null) {
+            return dataSource;
+        }
         try {
             // 加载配置
             Properties props = loadProperties();
@@ -38,15 +66,34 @@ public class DBHandler {
             config.setPassword(props.getProperty("db.password"));
             
             // 连接池设置
-            config.setMaximumPoolSize(10);
-            config.setMinimumIdle(5);
-            config.setIdleTimeout(300000);
-            config.setConnectionTimeout(20000);
+            config.setPoolName(ConfigUtils.getString(props, "db.pool.name", "LibraryPool"));
+            config.setMaximumPoolSize(ConfigUtils.getInt(props, "db.pool.maxSize", 10));
+            config.setMinimumIdle(ConfigUtils.getInt(props, "db.pool.minIdle", 5));
+            config.setIdleTimeout(ConfigUtils.getLong(props, "db.pool.idleTimeout", 300000));
+            config.setConnectionTimeout(ConfigUtils.getLong(props, "db.pool.connectionTimeout", 20000));
+            config.setMaxLifetime(ConfigUtils.getLong(props, "db.pool.maxLifetime", 1800000));
+            config.setKeepaliveTime(ConfigUtils.getLong(props, "db.pool.keepaliveTime", 0));
+            config.setValidationTimeout(ConfigUtils.getLong(props, "db.pool.validationTimeout", 5000));
+            config.setLeakDetectionThreshold(ConfigUtils.getLong(props, "db.pool.leakDetectionThreshold", 0));
             config.setAutoCommit(false);
             
+            // 驱动属性：db.ds.* 原样传给 Connector/J（预编译语句缓存、服务端预编译、批量改写等）
+            for (String name : props.stringPropertyNames()) {
+                if (name.startsWith(DATA_SOURCE_PREFIX)) {
+                    config.addDataSourceProperty(name.substring(DATA_SOURCE_PREFIX.length()),
+                        props.getProperty(name).trim());
+                }
+            }
+            
+            // 游标模式下，设置了 fetchSize 的语句使用服务端游标分批拉取
+            if (STREAM_MODE_CURSOR.equalsIgnoreCase(props.getProperty("db.stream.mode", STREAM_MODE_CURSOR).trim())) {
+                config.addDataSourceProperty("useCursorFetch", "true");
+            }
+            
             // 创建数据源
             dataSource = new HikariDataSource(config);
             logger.info("Database connection pool initialized successfully");
+            return dataSource;
             
         } catch (Exception e) {
             String errorMsg = "Failed to initialize database connection pool: " + e.getMessage();
@@ -89,11 +136,59 @@ public class DBHandler {
         }
     }
 
+    /**
+     * 获取连接；当前线程处于 TransactionManager 事务中时返回事务绑定的连接
+     */
     public static Connection getConnection() throws SQLException {
-        if (dataSource == null) {
-            initializeDataSource();
+        Connection bound = TransactionManager.currentConnection();
+        return bound != null ? bound : acquireConnection();
+    }
+
+    static Connection acquireConnection() throws SQLException {
+        HikariDataSource ds = getDataSource();
+        long start = System.nanoTime();
+        try {
+            Connection conn = ds.getConnection();
+            long elapsed = System.nanoTime() - start;
+            acquisitions.increment();
+            acquisitionNanos.add(elapsed);
+            maxAcquisitionNanos.accumulate(elapsed);
+            return conn;
+        } catch (SQLTransientConnectionException e) {
+            acquisitionTimeouts.increment();
+            throw e;
         }
-        return dataSource.getConnection();
+    }
+
+    /**
+     * 获取连接池实时统计；连接池尚未初始化时返回 null
+     */
+    public static PoolStats getPoolStats() {
+        HikariDataSource ds = dataSource;
+        if (ds == null || ds.isClosed()) {
+            return null;
+        }
+        HikariPoolMXBean pool = ds.getHikariPoolMXBean();
+        long count = acquisitions.sum();
+        double avgMillis = count == 0 ? 0.0 : acquisitionNanos.sum() / (double) count / 1_000_000;
+        return new PoolStats(
+            pool != null ? pool.getActiveConnections() : 0,
+            pool != null ? pool.getIdleConnections() : 0,
+            pool != null ? pool.getTotalConnections() : 0,
+            ds.getMaximumPoolSize(),
+            pool != null ? pool.getThreadsAwaitingConnection() : 0,
+            count,
+            acquisitionTimeouts.sum(),
+            avgMillis,
+            maxAcquisitionNanos.get() / 1_000_000.0
+        );
+    }
+
+    /**
+     * 连接池允许的最大连接数
+     */
+    public static int getMaximumPoolSize() {
+        return getDataSource().getMaximumPoolSize();
     }
 
     public static void closeConnection(Connection conn) {
@@ -116,7 +211,7 @@ public class DBHandler {
         }
     }
 
-    public static void shutdown() {
+    public static synchronized void shutdown() {
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
         }
@@ -0,0 +1,220 @@
+package com.library.util;
+
+import org.apache.log4j.Logger;
+
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 键空间布隆过滤器（ISBN、用户名等）
+ * 作用：
+ * - 启动时从仓库流式扫描全部键构建，插入时同步加入，定期重建以去掉已删除的键
+ * - mightContain 返回 false 时键一定不存在，调用方可以不访问数据库
+ * 说明：
+ * - 键先去掉首尾空白并转小写，与 MySQL 不区分大小写、忽略尾部空格的比较一致（只会多出误判，不会漏判）；
+ *   含非 ASCII 字符的键排序规则更复杂，一律视为"可能存在"
+ * - 重建期间新加入的键同时写入新旧两个过滤器，切换后不会丢失
+ * - 其他进程写入的键需要通过变更订阅加入，否则要等到下次重建
+ */
+public class KeyBloomFilter {
+    private static final Logger logger = Logger.getLogger(KeyBloomFilter.class);
+
+    private final String name;
+    private final Supplier<Stream<String>> keySource;
+    private final long expectedKeys;
+    private final double falsePositiveRate;
+    private final long maxBits;
+
+    // put 持读锁，重建开始和切换时持写锁
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile BloomFilter current;
+    private BloomFilter rebuilding;
+    private long lastKeyCount;
+
+    private final AtomicLong negatives = new AtomicLong();
+    private final AtomicLong positives = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+
+    public KeyBloomFilter(String name, Supplier<Stream<String>> keySource, long expectedKeys,
+                          double falsePositiveRate, long maxBits) {
+        this.name = name;
+        this.keySource = keySource;
+        this.expectedKeys = Math.max(1, expectedKeys);
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxBits = maxBits;
+    }
+
+    /**
+     * 按 bloom.* 配置创建，prefix 为键空间名（如 isbn、username）
+     */
+    public static KeyBloomFilter fromConfig(Properties props, String prefix, Supplier<Stream<String>> keySource) {
+        return new KeyBloomFilter(
+            prefix,
+            keySource,
+            ConfigUtils.getLong(props, "bloom." + prefix + ".expectedKeys", 100000),
+            ConfigUtils.getDouble(props, "bloom.falsePositiveRate", 0.01),
+            ConfigUtils.getLong(props, "bloom.maxMemoryKb", 4096) * 1024 * 8
+        );
+    }
+
+    /**
+     * 重新扫描全部键构建新过滤器并替换当前过滤器
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        // 上次的键数超过配置值时按两倍余量扩容
+        BloomFilter next = BloomFilter.create(Math.max(expectedKeys, lastKeyCount * 2), falsePositiveRate, maxBits);
+        lock.writeLock().lock();
+        try {
+            rebuilding = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long keys = 0;
+        try (Stream<String> stream = keySource.get()) {
+            var iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                String folded = fold(iterator.next());
+                if (folded != null) {
+                    next.put(folded);
+                    keys++;
+                }
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                rebuilding = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            current = next;
+            rebuilding = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        lastKeyCount = keys;
+        logger.info(String.format("Bloom filter [%s] rebuilt: %d keys, %d KB, %d hashes, expected fpp %.4f, took %dms",
+            name, keys, next.getMemoryBytes() / 1024, next.getHashCount(), next.expectedFalsePositiveRate(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    /**
+     * 加入新键；写入前后各调用一次，前者保证同一事务内可见，后者覆盖与重建并发的情况
+     */
+    public void put(String key) {
+        String folded = fold(key);
+        if (folded == null) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            if (current != null) {
+                current.put(folded);
+            }
+            if (rebuilding != null) {
+                rebuilding.put(folded);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 返回 false 表示键一定不存在；尚未构建时总是返回 true
+     */
+    public boolean mightContain(String key) {
+        String folded = fold(key);
+        BloomFilter filter = current;
+        if (folded == null || filter == null || filter.mightContain(folded)) {
+            positives.incrementAndGet();
+            return true;
+        }
+        negatives.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 启动后台定期重建
+     */
+    public synchronized void scheduleRebuild(long interval, TimeUnit unit) {
+        if (scheduler != null || interval <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bloom-rebuild-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.error("Bloom filter [" + name + "] rebuild failed, keeping previous filter", e);
+            }
+        }, interval, interval, unit);
+    }
+
+    public void shutdown() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = scheduler;
+            scheduler = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 被过滤器直接判定为不存在、未访问数据库的查询次数
+     */
+    public long getNegatives() {
+        return negatives.get();
+    }
+
+    public long getPositives() {
+        return positives.get();
+    }
+
+    @Override
+    public String toString() {
+        BloomFilter filter = current;
+        if (filter == null) {
+            return "KeyBloomFilter{" + name + ", not built}";
+        }
+        return String.format("KeyBloomFilter{%s, keys=%d, memory=%dKB, hashes=%d, expectedFpp=%.4f, negatives=%d, positives=%d}",
+            name, filter.getInsertions(), filter.getMemoryBytes() / 1024, filter.getHashCount(),
+            filter.expectedFalsePositiveRate(), negatives.get(), positives.get());
+    }
+
+    private static String fold(String key) {
+        if (key == null) {
+            return null;
+        }
+        String trimmed = key.trim();
+        for (int i = 0; i < trimmed.length(); i++) {
+            if (trimmed.charAt(i) > 0x7F) {
+                return null;
+            }
+        }
+        return trimmed.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,118 @@
+package com.library.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 并行 gzip 输入流
+ * 作用：按文件末尾的块索引把各块交给线程池并行解压，再按顺序拼接为原始数据
+ * 说明：同时在途的块不超过 maxInFlight；没有块索引的 gzip 文件（其他工具压缩的、块数超出索引上限的）
+ *      退回 GZIPInputStream 顺序解压
+ */
+public class ParallelGzipInputStream extends InputStream {
+    private final FileChannel channel;
+    private final ExecutorService executor;
+    private final List<ChunkedGzip.Chunk> chunks;
+    private final int maxInFlight;
+    private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private int nextChunk;
+    private byte[] current = new byte[0];
+    private int position;
+
+    private ParallelGzipInputStream(FileChannel channel, ExecutorService executor, List<ChunkedGzip.Chunk> chunks,
+                                    int maxInFlight) {
+        this.channel = channel;
+        this.executor = executor;
+        this.chunks = chunks;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * 打开 gzip 文件；有块索引时并行解压，否则顺序解压
+     */
+    public static InputStream open(Path path, ExecutorService executor, int maxInFlight) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            List<ChunkedGzip.Chunk> chunks = ChunkedGzip.readIndex(channel);
+            if (chunks == null) {
+                channel.position(0);
+                return new GZIPInputStream(Channels.newInputStream(channel), 64 * 1024);
+            }
+            return new ParallelGzipInputStream(channel, executor, chunks, maxInFlight);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inFlight.forEach(future -> future.cancel(true));
+        inFlight.clear();
+        channel.close();
+    }
+
+    private boolean ensureData() throws IOException {
+        while (position == current.length) {
+            while (inFlight.size() < maxInFlight && nextChunk < chunks.size()) {
+                ChunkedGzip.Chunk chunk = chunks.get(nextChunk++);
+                inFlight.add(executor.submit(() -> decompress(chunk)));
+            }
+            if (inFlight.isEmpty()) {
+                return false;
+            }
+            try {
+                current = inFlight.poll().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while decompressing backup");
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to decompress chunk", e.getCause());
+            }
+            position = 0;
+        }
+        return true;
+    }
+
+    // FileChannel 的定位读取可被多个线程并发调用
+    private byte[] decompress(ChunkedGzip.Chunk chunk) throws IOException {
+        ByteBuffer member = ByteBuffer.allocate(chunk.getLength());
+        ChunkedGzip.readFully(channel, member, chunk.getOffset());
+        return ChunkedGzip.decompressMember(member.array(), chunk.getSize());
+    }
+}
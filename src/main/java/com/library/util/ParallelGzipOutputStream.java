@@ -0,0 +1,143 @@
+package com.library.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 并行 gzip 输出流
+ * 作用：写入的数据按 chunkSize 切块，交给线程池并行压缩，压缩结果按原顺序写入文件通道，
+ *      关闭时追加块索引（格式见 ChunkedGzip）
+ * 说明：同时在途的块不超过 maxInFlight，内存占用约为 maxInFlight 个块，与数据总量无关；
+ *      关闭本流不会关闭文件通道
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+    private final FileChannel channel;
+    private final ExecutorService executor;
+    private final int chunkSize;
+    private final int level;
+    private final int maxInFlight;
+    private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    // 每块的 {成员长度, 原始长度}
+    private final List<int[]> chunks = new ArrayList<>();
+    private final Deque<Integer> inFlightSizes = new ArrayDeque<>();
+    private byte[] buffer;
+    private int count;
+    private boolean closed;
+
+    public ParallelGzipOutputStream(FileChannel channel, ExecutorService executor, int chunkSize, int level,
+                                    int maxInFlight) {
+        this.channel = channel;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.level = level;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.buffer = new byte[chunkSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        buffer[count++] = (byte) b;
+        if (count == chunkSize) {
+            submitChunk();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, chunkSize - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == chunkSize) {
+                submitChunk();
+            }
+        }
+    }
+
+    /**
+     * 关闭时才切出最后一块，flush 不会产生过小的块
+     */
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0) {
+                submitChunk();
+            }
+            while (!inFlight.isEmpty()) {
+                writeOldest();
+            }
+            byte[] index = ChunkedGzip.indexMember(chunks);
+            if (index != null) {
+                writeFully(index);
+            }
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    private void submitChunk() throws IOException {
+        byte[] data = buffer;
+        int length = count;
+        inFlight.add(executor.submit(() -> ChunkedGzip.compressMember(data, length, level)));
+        inFlightSizes.add(length);
+        buffer = new byte[chunkSize];
+        count = 0;
+        while (inFlight.size() >= maxInFlight) {
+            writeOldest();
+        }
+    }
+
+    private void writeOldest() throws IOException {
+        byte[] member;
+        try {
+            member = inFlight.peek().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing backup");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress chunk", e.getCause());
+        }
+        inFlight.poll();
+        chunks.add(new int[]{member.length, inFlightSizes.poll()});
+        writeFully(member);
+    }
+
+    private void writeFully(byte[] bytes) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
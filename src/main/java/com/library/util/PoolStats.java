@@ -0,0 +1,75 @@
+package com.library.util;
+
+/**
+ * 连接池统计快照
+ * 作用：记录连接池当前的活动/空闲连接数、等待线程数以及连接获取耗时
+ */
+public class PoolStats {
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int totalConnections;
+    private final int maximumPoolSize;
+    private final int pendingThreads;
+    private final long acquisitions;
+    private final long acquisitionTimeouts;
+    private final double averageAcquisitionMillis;
+    private final double maxAcquisitionMillis;
+
+    public PoolStats(int activeConnections, int idleConnections, int totalConnections, int maximumPoolSize,
+                     int pendingThreads, long acquisitions, long acquisitionTimeouts,
+                     double averageAcquisitionMillis, double maxAcquisitionMillis) {
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.totalConnections = totalConnections;
+        this.maximumPoolSize = maximumPoolSize;
+        this.pendingThreads = pendingThreads;
+        this.acquisitions = acquisitions;
+        this.acquisitionTimeouts = acquisitionTimeouts;
+        this.averageAcquisitionMillis = averageAcquisitionMillis;
+        this.maxAcquisitionMillis = maxAcquisitionMillis;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    public int getPendingThreads() {
+        return pendingThreads;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    public long getAcquisitionTimeouts() {
+        return acquisitionTimeouts;
+    }
+
+    public double getAverageAcquisitionMillis() {
+        return averageAcquisitionMillis;
+    }
+
+    public double getMaxAcquisitionMillis() {
+        return maxAcquisitionMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PoolStats{active=%d, idle=%d, total=%d, max=%d, pending=%d, acquisitions=%d, "
+                + "timeouts=%d, avgAcquireMs=%.3f, maxAcquireMs=%.3f}",
+            activeConnections, idleConnections, totalConnections, maximumPoolSize, pendingThreads,
+            acquisitions, acquisitionTimeouts, averageAcquisitionMillis, maxAcquisitionMillis);
+    }
+}
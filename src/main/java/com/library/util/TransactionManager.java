@@ -0,0 +1,207 @@
+package com.library.util;
+
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 事务管理器（工作单元）
+ * 作用：
+ * - 在事务范围内，当前线程通过 DBHandler.getConnection() 拿到的都是同一个连接，
+ *   仓库方法里的 commit / close 被忽略，rollback 只把事务标记为仅回滚，由事务边界统一提交或回滚
+ * - 连接在第一次使用时才从连接池获取，事务内没有访问数据库时不占用连接
+ * - afterCommit 注册的回调（如更新索引、缓存失效）在提交成功后执行，回滚时丢弃
+ * 传播行为：
+ * - REQUIRED：已有事务时加入，否则新建
+ * - REQUIRES_NEW：总是新建事务，外层事务挂起直到内层结束
+ */
+public final class TransactionManager {
+    private static final Logger logger = Logger.getLogger(TransactionManager.class);
+    private static final ThreadLocal<Deque<Transaction>> TRANSACTIONS = ThreadLocal.withInitial(ArrayDeque::new);
+
+    public enum Propagation {
+        REQUIRED,
+        REQUIRES_NEW
+    }
+
+    private TransactionManager() {
+    }
+
+    public static <T> T execute(Supplier<T> work) {
+        return execute(Propagation.REQUIRED, work);
+    }
+
+    public static void run(Runnable work) {
+        execute(Propagation.REQUIRED, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static <T> T execute(Propagation propagation, Supplier<T> work) {
+        Deque<Transaction> stack = TRANSACTIONS.get();
+        Transaction current = stack.peek();
+        if (current != null && propagation == Propagation.REQUIRED) {
+            try {
+                return work.get();
+            } catch (RuntimeException | Error e) {
+                current.rollbackOnly = true;
+                throw e;
+            }
+        }
+
+        Transaction tx = new Transaction();
+        stack.push(tx);
+        T result;
+        try {
+            try {
+                result = work.get();
+            } catch (RuntimeException | Error e) {
+                tx.rollback();
+                throw e;
+            }
+            if (tx.rollbackOnly) {
+                tx.rollback();
+                throw new IllegalStateException("Transaction rolled back because it was marked rollback-only");
+            }
+            tx.commit();
+        } finally {
+            stack.pop();
+            if (stack.isEmpty()) {
+                TRANSACTIONS.remove();
+            }
+            tx.release();
+        }
+        // 事务结束后再执行回调，回调中的数据库访问不再属于本事务
+        tx.runAfterCommit();
+        return result;
+    }
+
+    /**
+     * 当前线程是否处于事务中
+     */
+    public static boolean isActive() {
+        Deque<Transaction> stack = TRANSACTIONS.get();
+        boolean active = !stack.isEmpty();
+        if (!active) {
+            TRANSACTIONS.remove();
+        }
+        return active;
+    }
+
+    /**
+     * 注册提交后回调；不在事务中时立即执行
+     */
+    public static void afterCommit(Runnable callback) {
+        Deque<Transaction> stack = TRANSACTIONS.get();
+        Transaction current = stack.peek();
+        if (current == null) {
+            TRANSACTIONS.remove();
+            callback.run();
+            return;
+        }
+        current.afterCommit.add(callback);
+    }
+
+    /**
+     * 返回当前事务绑定的连接（首次调用时从连接池获取）；不在事务中时返回 null
+     */
+    static Connection currentConnection() throws SQLException {
+        Deque<Transaction> stack = TRANSACTIONS.get();
+        Transaction current = stack.peek();
+        if (current == null) {
+            TRANSACTIONS.remove();
+            return null;
+        }
+        return current.connection();
+    }
+
+    private static final class Transaction {
+        private Connection physical;
+        private Connection proxy;
+        private boolean rollbackOnly;
+        private final List<Runnable> afterCommit = new ArrayList<>();
+
+        private Connection connection() throws SQLException {
+            if (physical == null) {
+                physical = DBHandler.acquireConnection();
+                proxy = bind(physical);
+            }
+            return proxy;
+        }
+
+        // 仓库代码中的 commit / close / rollback 都由事务边界接管
+        private Connection bind(Connection target) {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "commit", "close", "setAutoCommit" -> {
+                            return null;
+                        }
+                        case "rollback" -> {
+                            if (args == null) {
+                                rollbackOnly = true;
+                                return null;
+                            }
+                        }
+                        case "isClosed" -> {
+                            return target.isClosed();
+                        }
+                        case "unwrap" -> {
+                            if (args[0] == Connection.class) {
+                                return target;
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        }
+
+        private void commit() {
+            if (physical != null) {
+                try {
+                    physical.commit();
+                } catch (SQLException e) {
+                    DBHandler.rollback(physical);
+                    logger.error("Error committing transaction", e);
+                    throw new RuntimeException("Error committing transaction", e);
+                }
+            }
+        }
+
+        private void runAfterCommit() {
+            for (Runnable callback : afterCommit) {
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    logger.error("Error running after-commit callback", e);
+                }
+            }
+        }
+
+        private void rollback() {
+            afterCommit.clear();
+            DBHandler.rollback(physical);
+        }
+
+        private void release() {
+            DBHandler.closeConnection(physical);
+        }
+    }
+}
@@ -3,6 +3,7 @@ USE library_management;
 
 -- 删除所有现有表
 DROP TABLE IF EXISTS backup_records;
+DROP TABLE IF EXISTS book_tombstones;
 DROP TABLE IF EXISTS books;
 DROP TABLE IF EXISTS users;
 
@@ -80,7 +81,22 @@ CREATE TABLE books (
     
     PRIMARY KEY (id),
     UNIQUE KEY uk_isbn (isbn),
-    KEY idx_type (type)
+    -- 按类型键集分页（二级索引隐含主键，type 相同时按 id 有序）
+    KEY idx_type (type),
+    -- 低库存排名（type 相同时按 stock、id 有序）
+    KEY idx_type_stock (type, stock),
+    -- 变更订阅按 (update_time, id) 键集增量读取
+    KEY idx_update_time (update_time, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 创建图书删除记录表（变更订阅通过它感知删除，与删除操作在同一事务中写入）
+CREATE TABLE book_tombstones (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    book_id BIGINT NOT NULL,
+    isbn VARCHAR(20) NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id),
+    KEY idx_deleted_at (deleted_at, book_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- 创建备份记录表
@@ -0,0 +1,108 @@
+package com.library.repository;
+
+import com.library.domain.book.ComputerBook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeWatermarkTest {
+    private static final String T1 = "2026-01-01 10:00:00";
+    private static final String T2 = "2026-01-01 10:00:01";
+
+    @Test
+    void ordersByTimeThenIdThenUpdateBeforeDelete() {
+        ChangeWatermark mark = new ChangeWatermark(T1, 5L, BookChange.Type.UPSERT);
+
+        assertTrue(mark.isBefore(T2, 1L, BookChange.Type.UPSERT));
+        assertFalse(mark.isBefore("2026-01-01 09:59:59", 9L, BookChange.Type.DELETE));
+        assertTrue(mark.isBefore(T1, 6L, BookChange.Type.UPSERT));
+        assertFalse(mark.isBefore(T1, 4L, BookChange.Type.DELETE));
+        // 同一秒内同一本书：修改已消费，删除仍在水位之后
+        assertFalse(mark.isBefore(T1, 5L, BookChange.Type.UPSERT));
+        assertTrue(mark.isBefore(T1, 5L, BookChange.Type.DELETE));
+        assertFalse(new ChangeWatermark(T1, 5L, BookChange.Type.DELETE).isBefore(T1, 5L, BookChange.Type.DELETE));
+
+        assertTrue(mark.compareTo(new ChangeWatermark(T1, 5L, BookChange.Type.DELETE)) < 0);
+        assertTrue(mark.compareTo(new ChangeWatermark(T1, 4L, BookChange.Type.DELETE)) > 0);
+        assertTrue(mark.compareTo(new ChangeWatermark(T2, 1L)) < 0);
+    }
+
+    @Test
+    void formatAndParseRoundTrip() {
+        for (BookChange.Type type : BookChange.Type.values()) {
+            ChangeWatermark mark = new ChangeWatermark(T1, 42L, type);
+            assertEquals(T1 + "|42|" + type, mark.format());
+            assertEquals(mark, ChangeWatermark.parse(mark.format()));
+        }
+    }
+
+    @Test
+    void parsesLegacyFormatAsUpdate() {
+        assertEquals(new ChangeWatermark(T1, 42L, BookChange.Type.UPSERT), ChangeWatermark.parse(T1 + "|42"));
+        assertEquals(new ChangeWatermark(T1, 42L), ChangeWatermark.parse(" " + T1 + " | 42 "));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", T1, T1 + "|x", T1 + "|1|MOVE", T1 + "|1|UPSERT|2", "|1"})
+    void rejectsInvalidWatermarks(String value) {
+        assertThrows(IllegalArgumentException.class, () -> ChangeWatermark.parse(value));
+    }
+
+    @Test
+    void changeSetSortsCandidatesAndPutsUpdateBeforeDeleteOfSameBook() {
+        List<BookChange> candidates = List.of(
+            BookChange.delete(5L, "isbn-5", T1),
+            upsert(7L, T1),
+            upsert(5L, T1),
+            upsert(1L, T2));
+
+        ChangeSet changes = ChangeSet.of(candidates, ChangeWatermark.INITIAL, 10);
+        assertEquals(List.of("UPSERT 5", "DELETE 5", "UPSERT 7", "UPSERT 1"), describe(changes));
+        assertFalse(changes.hasMore());
+        assertEquals(new ChangeWatermark(T2, 1L, BookChange.Type.UPSERT), changes.getWatermark());
+    }
+
+    @Test
+    void changeSetPagesWithLimitPlusOneCandidates() {
+        List<BookChange> candidates = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            candidates.add(upsert(id, T1));
+        }
+
+        // 各路查询多取一行：候选数超过 limit 即还有更多，水位停在最后一条返回的变更上
+        ChangeSet first = ChangeSet.of(candidates, ChangeWatermark.INITIAL, 2);
+        assertEquals(List.of("UPSERT 1", "UPSERT 2"), describe(first));
+        assertTrue(first.hasMore());
+        assertEquals(new ChangeWatermark(T1, 2L), first.getWatermark());
+
+        ChangeSet last = ChangeSet.of(candidates.subList(2, 3), first.getWatermark(), 2);
+        assertEquals(List.of("UPSERT 3"), describe(last));
+        assertFalse(last.hasMore());
+
+        ChangeSet empty = ChangeSet.of(List.of(), last.getWatermark(), 2);
+        assertTrue(empty.isEmpty());
+        assertEquals(last.getWatermark(), empty.getWatermark());
+    }
+
+    private static BookChange upsert(long id, String time) {
+        ComputerBook book = new ComputerBook();
+        book.setId(id);
+        book.setIsbn("isbn-" + id);
+        book.setUpdateTime(time);
+        return BookChange.upsert(book);
+    }
+
+    private static List<String> describe(ChangeSet changes) {
+        return changes.getChanges().stream()
+            .map(change -> change.getType() + " " + change.getId())
+            .toList();
+    }
+}
@@ -0,0 +1,200 @@
+package com.library.repository.impl;
+
+import com.library.domain.book.*;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图书行映射基准
+ * 作用：对比按列名查找、对类型字符串 switch 两次的旧映射方式与预编译的 BookRowMapper
+ * 说明：结果集为内存实现，按列名取值与驱动一样需要一次不区分大小写的列查找；
+ * 旧映射不读取时间列，结果集中也不含 create_time/update_time，两边做同样多的工作；
+ * 运行方式：mvn -Pbenchmark test-compile exec:exec
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookRowMapperBenchmark {
+    private static final List<String> COMMON =
+        List.of("id", "isbn", "title", "author", "type", "stock");
+
+    @Param({"1000"})
+    private int rows;
+
+    // SELECT *：通用列 + 全部类型特有列
+    private StubResultSet allColumns;
+    // SELECT_BOOK：通用列 + CASE 投影的 attr1..attr3
+    private StubResultSet projected;
+
+    @Setup
+    public void setUp() {
+        List<String> wide = new ArrayList<>(COMMON);
+        wide.addAll(BookTypeColumns.ALL_ATTRIBUTE_COLUMNS);
+        List<String> narrow = new ArrayList<>(COMMON);
+        narrow.addAll(List.of("attr1", "attr2", "attr3"));
+
+        BookTypeColumns[] types = BookTypeColumns.values();
+        List<Object[]> wideRows = new ArrayList<>();
+        List<Object[]> narrowRows = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            BookTypeColumns typeColumns = types[i % types.length];
+            Object[] common = {(long) i + 1, "isbn-" + i, "title-" + i, "author-" + i, typeColumns.getType(), i % 50};
+            String[] columns = typeColumns.getColumns();
+
+            Object[] wideRow = new Object[wide.size()];
+            System.arraycopy(common, 0, wideRow, 0, common.length);
+            for (String column : columns) {
+                wideRow[wide.indexOf(column)] = column + "-" + i;
+            }
+            wideRows.add(wideRow);
+
+            Object[] narrowRow = new Object[narrow.size()];
+            System.arraycopy(common, 0, narrowRow, 0, common.length);
+            for (int j = 0; j < columns.length; j++) {
+                narrowRow[common.length + j] = columns[j] + "-" + i;
+            }
+            narrowRows.add(narrowRow);
+        }
+        allColumns = StubResultSet.of(wide, wideRows);
+        projected = StubResultSet.of(narrow, narrowRows);
+    }
+
+    @Benchmark
+    public void legacyByName(Blackhole blackhole) throws SQLException {
+        allColumns.rewind();
+        ResultSet rs = allColumns.resultSet();
+        while (rs.next()) {
+            blackhole.consume(mapByName(rs));
+        }
+    }
+
+    @Benchmark
+    public void rowMapperAllColumns(Blackhole blackhole) throws SQLException {
+        allColumns.rewind();
+        ResultSet rs = allColumns.resultSet();
+        BookRowMapper mapper = new BookRowMapper();
+        while (rs.next()) {
+            blackhole.consume(mapper.mapRow(rs));
+        }
+    }
+
+    @Benchmark
+    public void rowMapperProjected(Blackhole blackhole) throws SQLException {
+        projected.rewind();
+        ResultSet rs = projected.resultSet();
+        BookRowMapper mapper = new BookRowMapper();
+        while (rs.next()) {
+            blackhole.consume(mapper.mapRow(rs));
+        }
+    }
+
+    // 旧的 BookRepositoryImpl.mapResultSetToBook：按列名取值，对类型字符串 switch 两次
+    private static Book mapByName(ResultSet rs) throws SQLException {
+        String type = rs.getString("type");
+        Book book = switch (type) {
+            case "Computer" -> new ComputerBook();
+            case "Literature" -> new LiteratureBook();
+            case "Science" -> new ScienceBook();
+            case "Art" -> new ArtBook();
+            case "History" -> new HistoryBook();
+            case "Philosophy" -> new PhilosophyBook();
+            case "Economics" -> new EconomicsBook();
+            case "Medicine" -> new MedicineBook();
+            case "Education" -> new EducationBook();
+            case "Law" -> new LawBook();
+            default -> throw new IllegalArgumentException("Unknown book type: " + type);
+        };
+
+        book.setId(rs.getLong("id"));
+        book.setIsbn(rs.getString("isbn"));
+        book.setTitle(rs.getString("title"));
+        book.setAuthor(rs.getString("author"));
+        book.setType(type);
+        book.setStock(rs.getInt("stock"));
+
+        switch (type) {
+            case "Computer" -> {
+                ComputerBook cb = (ComputerBook) book;
+                cb.setProgrammingLanguage(rs.getString("programming_language"));
+                cb.setFramework(rs.getString("framework"));
+                cb.setDifficulty(rs.getString("difficulty"));
+            }
+            case "Literature" -> {
+                LiteratureBook lb = (LiteratureBook) book;
+                lb.setGenre(rs.getString("genre"));
+                lb.setEra(rs.getString("era"));
+                lb.setLanguage(rs.getString("language"));
+            }
+            case "Science" -> {
+                ScienceBook sb = (ScienceBook) book;
+                sb.setSubjectArea(rs.getString("subject_area"));
+                sb.setResearchField(rs.getString("research_field"));
+                sb.setAcademicLevel(rs.getString("academic_level"));
+            }
+            case "Art" -> {
+                ArtBook ab = (ArtBook) book;
+                ab.setArtForm(rs.getString("art_form"));
+                ab.setMedium(rs.getString("medium"));
+                ab.setStyle(rs.getString("style"));
+            }
+            case "History" -> {
+                HistoryBook hb = (HistoryBook) book;
+                hb.setTimePeriod(rs.getString("time_period"));
+                hb.setRegion(rs.getString("region"));
+                hb.setHistoricalFigures(rs.getString("historical_figures"));
+            }
+            case "Philosophy" -> {
+                PhilosophyBook pb = (PhilosophyBook) book;
+                pb.setPhilosophicalSchool(rs.getString("philosophical_school"));
+                pb.setKeyConcepts(rs.getString("key_concepts"));
+                pb.setThinkers(rs.getString("thinkers"));
+            }
+            case "Economics" -> {
+                EconomicsBook eb = (EconomicsBook) book;
+                eb.setEconomicSchool(rs.getString("economic_school"));
+                eb.setMarketType(rs.getString("market_type"));
+                eb.setApplicationField(rs.getString("application_field"));
+            }
+            case "Medicine" -> {
+                MedicineBook mb = (MedicineBook) book;
+                mb.setMedicalSpecialty(rs.getString("medical_specialty"));
+                mb.setClinicalFocus(rs.getString("clinical_focus"));
+                mb.setPracticeArea(rs.getString("practice_area"));
+            }
+            case "Education" -> {
+                EducationBook eb = (EducationBook) book;
+                eb.setEducationLevel(rs.getString("education_level"));
+                eb.setSubject(rs.getString("subject"));
+                eb.setTeachingMethod(rs.getString("teaching_method"));
+            }
+            case "Law" -> {
+                LawBook lb = (LawBook) book;
+                lb.setLegalSystem(rs.getString("legal_system"));
+                lb.setJurisdiction(rs.getString("jurisdiction"));
+                lb.setLegalField(rs.getString("legal_field"));
+            }
+            default -> {
+            }
+        }
+        return book;
+    }
+}
@@ -0,0 +1,168 @@
+package com.library.repository.impl;
+
+import com.library.domain.book.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookRowMapperTest {
+    private static final List<String> COMMON =
+        List.of("id", "isbn", "title", "author", "type", "stock", "create_time", "update_time");
+    private static final Timestamp CREATED = Timestamp.valueOf("2024-01-02 03:04:05");
+    private static final Timestamp UPDATED = Timestamp.valueOf("2024-06-07 08:09:10");
+
+    @Test
+    void mapsEveryTypeFromCaseProjection() throws SQLException {
+        // SELECT_BOOK：一个结果集中混合所有类型，特有属性统一为 attr1..attr3
+        List<String> labels = withColumns("attr1", "attr2", "attr3");
+        List<Object[]> rows = new ArrayList<>();
+        for (BookTypeColumns typeColumns : BookTypeColumns.values()) {
+            rows.add(row(typeColumns, expectedAttributes(typeColumns)));
+        }
+        List<Book> books = mapAll(StubResultSet.of(labels, rows).resultSet());
+
+        assertEquals(BookTypeColumns.values().length, books.size());
+        for (BookTypeColumns typeColumns : BookTypeColumns.values()) {
+            assertBook(typeColumns, books.get(typeColumns.ordinal()));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookTypeColumns.class)
+    void mapsPerTypeProjection(BookTypeColumns typeColumns) throws SQLException {
+        // selectFor(type)：只取本类型的三列，别名为 attr1..attr3
+        String[] columns = typeColumns.getColumns();
+        String sql = BookRepositoryImpl.selectFor(typeColumns.getType());
+        for (int i = 0; i < columns.length; i++) {
+            assertTrue(sql.contains(columns[i] + " AS attr" + (i + 1)), sql);
+        }
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(row(typeColumns, expectedAttributes(typeColumns)));
+        List<Book> books = mapAll(StubResultSet.of(withColumns("attr1", "attr2", "attr3"), rows).resultSet());
+
+        assertEquals(1, books.size());
+        assertBook(typeColumns, books.get(0));
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookTypeColumns.class)
+    void mapsTypeOwnColumnsWithoutProjection(BookTypeColumns typeColumns) throws SQLException {
+        // SELECT *：没有 attr 列时按类型特有列名取值，其他类型的列为 null
+        List<String> labels = withColumns(BookTypeColumns.ALL_ATTRIBUTE_COLUMNS.toArray(new String[0]));
+        Object[] row = new Object[labels.size()];
+        System.arraycopy(row(typeColumns, new String[3]), 0, row, 0, COMMON.size());
+        String[] columns = typeColumns.getColumns();
+        String[] expected = expectedAttributes(typeColumns);
+        for (int i = 0; i < columns.length; i++) {
+            row[labels.indexOf(columns[i])] = expected[i];
+        }
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(row);
+        List<Book> books = mapAll(StubResultSet.of(labels, rows).resultSet());
+
+        assertBook(typeColumns, books.get(0));
+    }
+
+    @Test
+    void caseProjectionSelectsEveryTypeColumn() {
+        for (BookTypeColumns typeColumns : BookTypeColumns.values()) {
+            String[] columns = typeColumns.getColumns();
+            for (String column : columns) {
+                assertTrue(BookRepositoryImpl.SELECT_BOOK.contains("WHEN '" + typeColumns.getType() + "' THEN " + column),
+                    column);
+            }
+        }
+        assertSame(BookRepositoryImpl.SELECT_BOOK, BookRepositoryImpl.selectFor(null));
+        assertSame(BookRepositoryImpl.SELECT_BOOK, BookRepositoryImpl.selectFor("Unknown"));
+    }
+
+    @Test
+    void typeValueIsMatchedIgnoringCase() throws SQLException {
+        Object[] row = row(BookTypeColumns.LAW, expectedAttributes(BookTypeColumns.LAW));
+        row[4] = "law";
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(row);
+        Book book = mapAll(StubResultSet.of(withColumns("attr1", "attr2", "attr3"), rows).resultSet()).get(0);
+
+        assertBook(BookTypeColumns.LAW, book);
+    }
+
+    @Test
+    void missingTimeColumnsLeaveTimesUnset() throws SQLException {
+        List<String> labels = List.of("id", "isbn", "title", "author", "type", "stock", "attr1", "attr2", "attr3");
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, "isbn-1", "t", "a", "Art", 3, "x", "y", "z"});
+        Book book = mapAll(StubResultSet.of(labels, rows).resultSet()).get(0);
+
+        assertNull(book.getCreateTime());
+        assertNull(book.getUpdateTime());
+        assertArrayEquals(new String[]{"x", "y", "z"}, BookTypeColumns.ART.getAttributes(book));
+    }
+
+    @Test
+    void rejectsUnknownTypeAndMissingColumns() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, "isbn-1", "t", "a", "Poetry", 3, null, null});
+        ResultSet unknownType = StubResultSet.of(COMMON, rows).resultSet();
+        assertThrows(IllegalArgumentException.class, () -> mapAll(unknownType));
+
+        List<Object[]> partial = new ArrayList<>();
+        partial.add(new Object[]{1L, "Art"});
+        ResultSet missingColumns = StubResultSet.of(List.of("id", "type"), partial).resultSet();
+        assertThrows(IllegalArgumentException.class, () -> mapAll(missingColumns));
+    }
+
+    private static List<String> withColumns(String... extra) {
+        List<String> labels = new ArrayList<>(COMMON);
+        labels.addAll(List.of(extra));
+        return labels;
+    }
+
+    private static Object[] row(BookTypeColumns typeColumns, String[] attributes) {
+        long id = typeColumns.ordinal() + 1L;
+        return new Object[]{id, "isbn-" + id, "title-" + id, "author-" + id, typeColumns.getType(),
+            (int) id * 10, CREATED, UPDATED, attributes[0], attributes[1], attributes[2]};
+    }
+
+    private static String[] expectedAttributes(BookTypeColumns typeColumns) {
+        String[] columns = typeColumns.getColumns();
+        return new String[]{typeColumns.getType() + ":" + columns[0], typeColumns.getType() + ":" + columns[1],
+            typeColumns.getType() + ":" + columns[2]};
+    }
+
+    private static List<Book> mapAll(ResultSet rs) throws SQLException {
+        BookRowMapper mapper = new BookRowMapper();
+        List<Book> books = new ArrayList<>();
+        while (rs.next()) {
+            books.add(mapper.mapRow(rs));
+        }
+        return books;
+    }
+
+    private static void assertBook(BookTypeColumns typeColumns, Book book) {
+        long id = typeColumns.ordinal() + 1L;
+        assertSame(typeColumns.newBook().getClass(), book.getClass());
+        assertEquals(Long.valueOf(id), book.getId());
+        assertEquals("isbn-" + id, book.getIsbn());
+        assertEquals("title-" + id, book.getTitle());
+        assertEquals("author-" + id, book.getAuthor());
+        assertEquals(typeColumns.getType(), book.getType());
+        assertEquals((int) id * 10, book.getStock());
+        assertEquals("2024-01-02 03:04:05", book.getCreateTime());
+        assertEquals("2024-06-07 08:09:10", book.getUpdateTime());
+        assertArrayEquals(expectedAttributes(typeColumns), typeColumns.getAttributes(book));
+    }
+}
@@ -0,0 +1,163 @@
+package com.library.repository.impl;
+
+import com.library.domain.book.Book;
+import com.library.domain.book.ComputerBook;
+import com.library.repository.BookChange;
+import com.library.repository.ChangeSet;
+import com.library.repository.ChangeWatermark;
+import com.library.repository.ConflictPolicy;
+import com.library.repository.UpsertResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryBookRepositoryTest {
+    // 下游消费者已经处理到的位置，远晚于备份中的时间戳
+    private static final ChangeWatermark CONSUMED = new ChangeWatermark("2024-01-01 00:00:00", Long.MAX_VALUE);
+    private static final String BACKUP_TIME = "2020-01-01 00:00:00";
+
+    private final InMemoryBookRepository repository = new InMemoryBookRepository();
+
+    @Test
+    void restoredAndOverwrittenRowsAppearAfterConsumedWatermark() throws InterruptedException {
+        Book existing = repository.save(book("978-0-00-000001-1", "Old"));
+
+        Book restored = book("978-0-00-000002-2", "Restored");
+        restored.setCreateTime(BACKUP_TIME);
+        restored.setUpdateTime(BACKUP_TIME);
+        Book overwritten = book("978-0-00-000001-1", "New");
+        overwritten.setUpdateTime(BACKUP_TIME);
+        UpsertResult result = repository.upsertAll(List.of(restored, overwritten), ConflictPolicy.OVERWRITE);
+        assertEquals(List.of(restored), result.getInserted());
+        assertEquals(List.of(overwritten), result.getUpdated());
+        assertEquals(existing.getId(), overwritten.getId());
+
+        // 保留备份的 create_time，update_time 为写入时间
+        Book stored = repository.findById(restored.getId()).orElseThrow();
+        assertEquals(BACKUP_TIME, stored.getCreateTime());
+        assertNotEquals(BACKUP_TIME, stored.getUpdateTime());
+
+        // 变更订阅只返回早于当前秒的变更
+        Thread.sleep(1100);
+        List<Long> ids = repository.findChangesSince(CONSUMED, 10, 0).getChanges().stream()
+            .map(BookChange::getId)
+            .toList();
+        assertEquals(List.of(existing.getId(), restored.getId()), ids.stream().sorted().toList());
+    }
+
+    @Test
+    void newerWinsSkipsEqualTimestampWithoutAssigningId() {
+        repository.save(book("978-0-00-000001-1", "Old"));
+        String storedTime = repository.findByIsbn("978-0-00-000001-1").orElseThrow().getUpdateTime();
+
+        Book tie = book("978-0-00-000001-1", "Tie");
+        tie.setUpdateTime(storedTime);
+        assertEquals(UpsertResult.Outcome.SKIPPED, repository.upsert(tie, ConflictPolicy.NEWER_WINS));
+        assertNull(tie.getId());
+        assertEquals("Old", repository.findByIsbn("978-0-00-000001-1").orElseThrow().getTitle());
+
+        Book newer = book("978-0-00-000001-1", "Newer");
+        newer.setUpdateTime("2999-01-01 00:00:00");
+        assertEquals(UpsertResult.Outcome.UPDATED, repository.upsert(newer, ConflictPolicy.NEWER_WINS));
+        assertEquals("Newer", repository.findByIsbn("978-0-00-000001-1").orElseThrow().getTitle());
+    }
+
+    @Test
+    void skipLeavesExistingRowAndIdUntouched() {
+        repository.save(book("978-0-00-000001-1", "Old"));
+
+        Book duplicate = book("978-0-00-000001-1", "Duplicate");
+        UpsertResult result = repository.upsertAll(List.of(duplicate), ConflictPolicy.SKIP);
+        assertEquals(List.of(duplicate), result.getSkipped());
+        assertNull(duplicate.getId());
+        assertEquals("Old", repository.findByIsbn("978-0-00-000001-1").orElseThrow().getTitle());
+    }
+
+    @Test
+    void purgeDropsExpiredTombstonesAndThoseBehindWatermark() throws InterruptedException {
+        Book first = repository.save(book("978-0-00-000001-1", "First"));
+        Book second = repository.save(book("978-0-00-000002-2", "Second"));
+        repository.delete(first.getId());
+        repository.delete(second.getId());
+        Thread.sleep(1100);
+        List<BookChange> deletes = repository.findChangesSince(CONSUMED, 10, 0).getChanges();
+        assertEquals(2, deletes.size());
+
+        // 未过保留期、也未被水位越过的删除记录保留
+        assertEquals(0, repository.purgeTombstones("2024-01-01 00:00:00", CONSUMED));
+        // 水位停在第一条删除上：只清理它
+        ChangeWatermark consumedFirst = new ChangeWatermark(deletes.get(0).getTime(), deletes.get(0).getId(),
+            BookChange.Type.DELETE);
+        assertEquals(1, repository.purgeTombstones(null, consumedFirst));
+        assertEquals(List.of(second.getId()), repository.findChangesSince(CONSUMED, 10, 0).getChanges().stream()
+            .map(BookChange::getId)
+            .toList());
+        // 超过保留期的删除记录不论水位都会清理
+        assertEquals(1, repository.purgeTombstones("2999-01-01 00:00:00", null));
+        assertEquals(0, repository.findChangesSince(CONSUMED, 10, 0).size());
+    }
+
+    @Test
+    void findChangesSincePagesInUpdateTimeIdOrder() throws InterruptedException {
+        for (int i = 1; i <= 5; i++) {
+            repository.save(book("978-0-00-00000" + i + "-1", "Title " + i));
+        }
+        Thread.sleep(1100);
+
+        List<Long> ids = new ArrayList<>();
+        ChangeWatermark watermark = CONSUMED;
+        ChangeSet page;
+        int pages = 0;
+        do {
+            page = repository.findChangesSince(watermark, 2, 0);
+            page.getChanges().forEach(change -> ids.add(change.getId()));
+            watermark = page.getWatermark();
+            pages++;
+        } while (page.hasMore());
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids);
+        assertEquals(3, pages);
+        assertEquals(new ChangeWatermark(repository.findById(5L).orElseThrow().getUpdateTime(), 5L), watermark);
+        assertTrue(repository.findChangesSince(watermark, 2, 0).isEmpty());
+    }
+
+    @Test
+    void deleteInSameSecondFollowsConsumedUpdateOfSameBook() throws InterruptedException {
+        Book book = repository.save(book("978-0-00-000001-1", "Title"));
+        repository.delete(book.getId());
+        Thread.sleep(1100);
+        BookChange delete = repository.findChangesSince(CONSUMED, 10, 0).getChanges().get(0);
+        assertEquals(BookChange.Type.DELETE, delete.getType());
+
+        // 水位停在同一秒同一本书的修改上时，删除仍位于其后
+        ChangeWatermark updateConsumed = new ChangeWatermark(delete.getTime(), book.getId(), BookChange.Type.UPSERT);
+        assertEquals(List.of(delete), repository.findChangesSince(updateConsumed, 10, 0).getChanges());
+        ChangeWatermark deleteConsumed = new ChangeWatermark(delete.getTime(), book.getId(), BookChange.Type.DELETE);
+        assertTrue(repository.findChangesSince(deleteConsumed, 10, 0).isEmpty());
+    }
+
+    @Test
+    void findChangesSinceHidesChangesInsideLagWindow() {
+        repository.save(book("978-0-00-000001-1", "Title"));
+
+        assertTrue(repository.findChangesSince(CONSUMED, 10, 60).isEmpty());
+    }
+
+    static ComputerBook book(String isbn, String title) {
+        ComputerBook book = new ComputerBook();
+        book.setIsbn(isbn);
+        book.setTitle(title);
+        book.setAuthor("Author");
+        book.setType("Computer");
+        book.setStock(1);
+        book.setProgrammingLanguage("Java");
+        book.setDifficulty("Easy");
+        return book;
+    }
+}
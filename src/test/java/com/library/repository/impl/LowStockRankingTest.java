@@ -0,0 +1,73 @@
+package com.library.repository.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LowStockRankingTest {
+    @Test
+    void keepsLowestStockInAscendingOrder() {
+        LowStockRanking<String> ranking = new LowStockRanking<>(3);
+        ranking.offer(7, 1, "a");
+        ranking.offer(2, 2, "b");
+        ranking.offer(9, 3, "c");
+        ranking.offer(0, 4, "d");
+        ranking.offer(5, 5, "e");
+
+        assertEquals(List.of("d", "b", "e"), ranking.result());
+    }
+
+    @Test
+    void equalStockIsRankedById() {
+        LowStockRanking<Long> ranking = new LowStockRanking<>(2);
+        ranking.offer(1, 30, 30L);
+        ranking.offer(1, 10, 10L);
+        ranking.offer(1, 20, 20L);
+        // 与数据库 ORDER BY stock, id 一致：同库存时 id 小的在前，堆满后 id 更大的不替换
+        ranking.offer(1, 40, 40L);
+
+        assertEquals(List.of(10L, 20L), ranking.result());
+    }
+
+    @Test
+    void returnsEverythingWhenFewerThanLimit() {
+        LowStockRanking<String> ranking = new LowStockRanking<>(100);
+        ranking.offer(3, 2, "b");
+        ranking.offer(3, 1, "a");
+
+        assertEquals(List.of("a", "b"), ranking.result());
+        assertEquals(List.of(), new LowStockRanking<String>(5).result());
+    }
+
+    @Test
+    void negativeStockRanksFirst() {
+        LowStockRanking<String> ranking = new LowStockRanking<>(2);
+        ranking.offer(0, 1, "zero");
+        ranking.offer(Integer.MAX_VALUE, 2, "max");
+        ranking.offer(-5, 3, "negative");
+
+        assertEquals(List.of("negative", "zero"), ranking.result());
+    }
+
+    @Test
+    void matchesFullSortForLargeInput() {
+        Random random = new Random(42);
+        List<long[]> all = new ArrayList<>();
+        // 容量超过初始堆大小 1024，验证扩容后仍正确
+        LowStockRanking<Long> ranking = new LowStockRanking<>(1500);
+        for (long id = 1; id <= 50_000; id++) {
+            int stock = random.nextInt(200);
+            all.add(new long[]{stock, id});
+            ranking.offer(stock, id, id);
+        }
+        all.sort(Comparator.<long[]>comparingLong(e -> e[0]).thenComparingLong(e -> e[1]));
+        List<Long> expected = all.subList(0, 1500).stream().map(e -> e[1]).toList();
+
+        assertEquals(expected, ranking.result());
+    }
+}
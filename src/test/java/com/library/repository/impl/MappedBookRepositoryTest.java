@@ -0,0 +1,201 @@
+package com.library.repository.impl;
+
+import com.library.domain.book.Book;
+import com.library.domain.book.ComputerBook;
+import com.library.repository.BatchSaveResult;
+import com.library.repository.ConflictPolicy;
+import com.library.repository.UpsertResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedBookRepositoryTest {
+    // 与 MappedBookRepository 的文件布局一致
+    private static final int HEADER_SIZE = 64;
+    private static final int H_CLEAN = 32;
+    private static final int SLOT_SIZE = 128;
+    private static final int J_VALID = 0;
+
+    @TempDir
+    Path dir;
+
+    private MappedBookRepository repository;
+
+    @AfterEach
+    void closeRepository() throws IOException {
+        if (repository != null) {
+            repository.close();
+        }
+    }
+
+    @Test
+    void reopenAfterCleanCloseKeepsBooksAndIds() throws IOException {
+        repository = open();
+        List<Book> saved = saveBooks(3);
+        repository.delete(saved.get(1).getId());
+
+        reopen();
+        assertEquals(2, repository.countAll());
+        assertEquals("Title 0", repository.findById(saved.get(0).getId()).orElseThrow().getTitle());
+        assertFalse(repository.findById(saved.get(1).getId()).isPresent());
+        assertEquals(saved.get(2).getId(), repository.findByIsbn(isbn(2)).orElseThrow().getId());
+        // id 不复用：新图书排在已删除的槽之后
+        assertEquals(4L, repository.save(book(isbn(3), "Title 3")).getId());
+    }
+
+    @Test
+    void reopenWithoutCleanFlagRecoversSlotsAndIndex() throws IOException {
+        repository = open();
+        List<Book> saved = saveBooks(3);
+        repository.close();
+        // 模拟进程崩溃：清除正常关闭标记，ISBN 索引文件也不可信
+        writeByte(dir.resolve("books-1.dat"), H_CLEAN, (byte) 0);
+        Files.delete(dir.resolve("isbn.idx"));
+
+        repository = open();
+        assertEquals(3, repository.countAll());
+        for (Book book : saved) {
+            assertEquals(book.getId(), repository.findByIsbn(book.getIsbn()).orElseThrow().getId());
+        }
+        assertEquals(4L, repository.save(book(isbn(3), "Title 3")).getId());
+    }
+
+    @Test
+    void pendingOverwriteJournalIsReplayedOnOpen() throws IOException {
+        repository = open();
+        Book original = repository.save(book(isbn(0), "Before"));
+        repository.close();
+        byte[] before = readSlot(0);
+
+        repository = open();
+        assertEquals(UpsertResult.Outcome.UPDATED, repository.upsert(book(isbn(0), "After"), ConflictPolicy.OVERWRITE));
+        repository.close();
+        // 模拟日志已置有效标记、记录槽尚未写回时崩溃
+        writeSlot(0, before);
+        writeByte(dir.resolve("overwrite.journal"), J_VALID, (byte) 1);
+        writeByte(dir.resolve("books-1.dat"), H_CLEAN, (byte) 0);
+
+        repository = open();
+        Book replayed = repository.findById(original.getId()).orElseThrow();
+        assertEquals("After", replayed.getTitle());
+        assertEquals(original.getId(), repository.findByIsbn(isbn(0)).orElseThrow().getId());
+        assertEquals(0, Files.readAllBytes(dir.resolve("overwrite.journal"))[J_VALID]);
+    }
+
+    @Test
+    void compactionKeepsIdsAndIsbnLookups() throws IOException {
+        repository = open();
+        List<Book> saved = saveBooks(10);
+        for (int i = 0; i < 10; i += 2) {
+            repository.delete(saved.get(i).getId());
+        }
+        repository.upsert(book(isbn(1), "Rewritten"), ConflictPolicy.OVERWRITE);
+
+        repository.compact();
+        assertTrue(Files.exists(dir.resolve("strings-2.dat")));
+        assertFalse(Files.exists(dir.resolve("strings-1.dat")));
+        assertCompactedCatalog(saved);
+
+        reopen();
+        assertCompactedCatalog(saved);
+    }
+
+    @Test
+    void isbnLookupsIgnoreCase() throws IOException {
+        repository = open();
+        Book saved = repository.save(book("978-0-00-00000X-1", "Title"));
+
+        assertEquals(saved.getId(), repository.findByIsbn("978-0-00-00000x-1").orElseThrow().getId());
+        assertTrue(repository.exists("978-0-00-00000x-1"));
+        BatchSaveResult result = repository.saveAll(List.of(book("978-0-00-00000x-1", "Duplicate")));
+        assertEquals(1, result.getFailedCount());
+
+        Book overwrite = book("978-0-00-00000x-1", "Overwritten");
+        assertEquals(UpsertResult.Outcome.UPDATED, repository.upsert(overwrite, ConflictPolicy.OVERWRITE));
+        assertEquals(saved.getId(), overwrite.getId());
+        assertEquals(1, repository.countAll());
+
+        reopen();
+        assertEquals("Overwritten", repository.findByIsbn("978-0-00-00000X-1").orElseThrow().getTitle());
+    }
+
+    private void assertCompactedCatalog(List<Book> saved) {
+        assertEquals(5, repository.countAll());
+        for (int i = 0; i < saved.size(); i++) {
+            Long id = saved.get(i).getId();
+            if (i % 2 == 0) {
+                assertFalse(repository.findById(id).isPresent());
+                assertFalse(repository.exists(isbn(i)));
+            } else {
+                Book book = repository.findByIsbn(isbn(i)).orElseThrow();
+                assertEquals(id, book.getId());
+                assertEquals(i == 1 ? "Rewritten" : "Title " + i, book.getTitle());
+            }
+        }
+    }
+
+    private MappedBookRepository open() {
+        return new MappedBookRepository(dir, false);
+    }
+
+    private void reopen() throws IOException {
+        repository.close();
+        repository = open();
+    }
+
+    private List<Book> saveBooks(int count) {
+        List<Book> saved = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            saved.add(repository.save(book(isbn(i), "Title " + i)));
+        }
+        return saved;
+    }
+
+    private byte[] readSlot(int slot) throws IOException {
+        byte[] all = Files.readAllBytes(dir.resolve("books-1.dat"));
+        byte[] record = new byte[SLOT_SIZE];
+        System.arraycopy(all, HEADER_SIZE + slot * SLOT_SIZE, record, 0, SLOT_SIZE);
+        return record;
+    }
+
+    private void writeSlot(int slot, byte[] record) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir.resolve("books-1.dat"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(record), HEADER_SIZE + (long) slot * SLOT_SIZE);
+        }
+    }
+
+    private static void writeByte(Path file, long position, byte value) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{value}), position);
+        }
+    }
+
+    private static String isbn(int i) {
+        return "978-0-00-" + String.format("%06d", i) + "-1";
+    }
+
+    private static ComputerBook book(String isbn, String title) {
+        ComputerBook book = new ComputerBook();
+        book.setIsbn(isbn);
+        book.setTitle(title);
+        book.setAuthor("Author");
+        book.setType("Computer");
+        book.setStock(1);
+        book.setProgrammingLanguage("Java");
+        book.setDifficulty("Easy");
+        return book;
+    }
+}
@@ -0,0 +1,178 @@
+package com.library.repository.impl;
+
+import com.library.repository.StockAdjustment;
+import com.library.repository.StockAdjustmentResult;
+import com.library.repository.StockAdjustmentResult.Line;
+import com.library.repository.StockAdjustmentResult.Status;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class StockAdjustmentPlanTest {
+    private final Map<String, StockAdjustmentPlan.CurrentStock> catalog = new HashMap<>();
+    private final List<String> lookups = new ArrayList<>();
+    private final Function<String, StockAdjustmentPlan.CurrentStock> lookup = isbn -> {
+        lookups.add(isbn);
+        return catalog.get(isbn);
+    };
+
+    @Test
+    void repeatedIsbnBuildsOnPreviousLines() {
+        catalog.put("a", new StockAdjustmentPlan.CurrentStock(1, 5));
+        StockAdjustmentPlan plan = plan(
+            StockAdjustment.delta("a", -3),
+            StockAdjustment.delta("a", -3),
+            StockAdjustment.set("a", 10),
+            StockAdjustment.delta("a", 4));
+
+        List<Line> lines = commit(plan).getLines();
+        assertLine(lines.get(0), Status.APPLIED, 5, 2);
+        assertLine(lines.get(1), Status.INSUFFICIENT_STOCK, 2, null);
+        assertLine(lines.get(2), Status.APPLIED, 2, 10);
+        assertLine(lines.get(3), Status.APPLIED, 10, 14);
+        // 同一本书只查一次，只写最终库存
+        assertEquals(List.of("a"), lookups);
+        assertEquals(Map.of(1L, 14), plan.getUpdates());
+    }
+
+    @Test
+    void setBelowZeroIsInvalidAndLeavesStockUnchanged() {
+        catalog.put("a", new StockAdjustmentPlan.CurrentStock(1, 5));
+        StockAdjustmentPlan plan = plan(StockAdjustment.set("a", -1), StockAdjustment.delta("a", -5));
+
+        List<Line> lines = commit(plan).getLines();
+        assertLine(lines.get(0), Status.INVALID, 5, null);
+        assertEquals("库存不能为负数", lines.get(0).getMessage());
+        assertLine(lines.get(1), Status.APPLIED, 5, 0);
+        assertEquals(Map.of(1L, 0), plan.getUpdates());
+    }
+
+    @Test
+    void overflowIsInvalidInsteadOfWrapping() {
+        catalog.put("a", new StockAdjustmentPlan.CurrentStock(1, Integer.MAX_VALUE - 1));
+        StockAdjustmentPlan plan = plan(
+            StockAdjustment.delta("a", 2),
+            StockAdjustment.delta("a", Integer.MAX_VALUE),
+            StockAdjustment.delta("a", 1));
+
+        List<Line> lines = commit(plan).getLines();
+        assertLine(lines.get(0), Status.INVALID, Integer.MAX_VALUE - 1, null);
+        assertEquals("库存超出范围", lines.get(0).getMessage());
+        assertLine(lines.get(1), Status.INVALID, Integer.MAX_VALUE - 1, null);
+        assertLine(lines.get(2), Status.APPLIED, Integer.MAX_VALUE - 1, Integer.MAX_VALUE);
+    }
+
+    @Test
+    void underflowOfLargeNegativeDeltaIsInsufficient() {
+        catalog.put("a", new StockAdjustmentPlan.CurrentStock(1, 0));
+        StockAdjustmentPlan plan = plan(StockAdjustment.delta("a", Integer.MIN_VALUE));
+
+        assertLine(commit(plan).getLines().get(0), Status.INSUFFICIENT_STOCK, 0, null);
+        assertEquals(Map.of(), plan.getUpdates());
+    }
+
+    @Test
+    void missingAndBlankIsbnsAreRejectedWithoutAffectingOtherLines() {
+        catalog.put("a", new StockAdjustmentPlan.CurrentStock(1, 1));
+        StockAdjustmentPlan plan = plan(
+            StockAdjustment.delta(" ", 1),
+            null,
+            StockAdjustment.delta("missing", 1),
+            StockAdjustment.delta(" a ", 1));
+
+        StockAdjustmentResult result = commit(plan);
+        List<Line> lines = result.getLines();
+        assertEquals(Status.INVALID, lines.get(0).getStatus());
+        assertEquals(Status.INVALID, lines.get(1).getStatus());
+        assertEquals(Status.NOT_FOUND, lines.get(2).getStatus());
+        assertLine(lines.get(3), Status.APPLIED, 1, 2);
+        assertEquals(1, result.getAppliedCount());
+        assertEquals(3, result.getRejectedCount());
+    }
+
+    @Test
+    void lineNumbersContinueFromChunkStart() {
+        catalog.put("a", new StockAdjustmentPlan.CurrentStock(1, 1));
+        StockAdjustmentPlan plan = new StockAdjustmentPlan(1001,
+            List.of(StockAdjustment.delta("a", 1), StockAdjustment.delta("b", 1)), lookup);
+
+        List<Line> lines = commit(plan).getLines();
+        assertEquals(1001, lines.get(0).getLineNumber());
+        assertEquals(1002, lines.get(1).getLineNumber());
+    }
+
+    @Test
+    void failToMarksOnlyAppliedLinesAsFailed() {
+        catalog.put("a", new StockAdjustmentPlan.CurrentStock(1, 1));
+        StockAdjustmentPlan plan = plan(StockAdjustment.delta("a", 1), StockAdjustment.delta("missing", 1));
+
+        StockAdjustmentResult result = new StockAdjustmentResult();
+        plan.failTo(result, "write failed");
+        assertEquals(Status.FAILED, result.getLines().get(0).getStatus());
+        assertEquals("write failed", result.getLines().get(0).getMessage());
+        assertEquals(Status.NOT_FOUND, result.getLines().get(1).getStatus());
+    }
+
+    @Test
+    void failAllMarksEveryLine() {
+        StockAdjustmentResult result = new StockAdjustmentResult();
+        StockAdjustmentPlan.failAll(7, List.of(StockAdjustment.delta("a", 1), StockAdjustment.set("b", 2)), result,
+            "lock failed");
+
+        assertEquals(2, result.getCount(Status.FAILED));
+        assertEquals(8, result.getLines().get(1).getLineNumber());
+    }
+
+    @Test
+    void forEachChunkSplitsStreamAndNumbersLines() {
+        List<long[]> chunks = new ArrayList<>();
+        Stream<StockAdjustment> adjustments = IntStream.range(0, 25).mapToObj(i -> StockAdjustment.delta("isbn-" + i, 1));
+        StockAdjustmentPlan.forEachChunk(adjustments, 10,
+            (first, chunk) -> chunks.add(new long[]{first, chunk.size()}));
+
+        assertEquals(3, chunks.size());
+        assertEquals(List.of(1L, 11L, 21L), chunks.stream().map(c -> c[0]).toList());
+        assertEquals(List.of(10L, 10L, 5L), chunks.stream().map(c -> c[1]).toList());
+    }
+
+    @Test
+    void forEachChunkIgnoresEmptyStream() {
+        List<Long> calls = new ArrayList<>();
+        StockAdjustmentPlan.forEachChunk(Stream.empty(), 10, (first, chunk) -> calls.add(first));
+
+        assertEquals(List.of(), calls);
+    }
+
+    private StockAdjustmentPlan plan(StockAdjustment... adjustments) {
+        List<StockAdjustment> chunk = new ArrayList<>();
+        for (StockAdjustment adjustment : adjustments) {
+            chunk.add(adjustment);
+        }
+        return new StockAdjustmentPlan(1, chunk, lookup);
+    }
+
+    private static StockAdjustmentResult commit(StockAdjustmentPlan plan) {
+        StockAdjustmentResult result = new StockAdjustmentResult();
+        plan.commitTo(result);
+        return result;
+    }
+
+    private static void assertLine(Line line, Status status, Integer previous, Integer next) {
+        assertEquals(status, line.getStatus(), line.toString());
+        assertEquals(previous, line.getPreviousStock(), line.toString());
+        if (next == null) {
+            assertNull(line.getNewStock(), line.toString());
+        } else {
+            assertEquals(next, line.getNewStock(), line.toString());
+        }
+    }
+}
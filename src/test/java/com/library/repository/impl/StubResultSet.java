@@ -0,0 +1,82 @@
+package com.library.repository.impl;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 测试用的内存结果集：按列标签和行数据构造只读、只进的 ResultSet，
+ * 支持按下标和按列名（不区分大小写）取值；rewind() 回到第一行之前以便重复遍历
+ */
+final class StubResultSet {
+    private final List<String> labels;
+    private final List<Object[]> rows;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final ResultSet resultSet;
+    private final ResultSetMetaData metaData;
+    private int cursor = -1;
+
+    private StubResultSet(List<String> labels, List<Object[]> rows) {
+        this.labels = labels;
+        this.rows = rows;
+        for (int i = 0; i < labels.size(); i++) {
+            indexes.putIfAbsent(labels.get(i).toLowerCase(Locale.ROOT), i + 1);
+        }
+        this.metaData = (ResultSetMetaData) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{ResultSetMetaData.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "getColumnCount" -> labels.size();
+                case "getColumnLabel", "getColumnName" -> labels.get((Integer) args[0] - 1);
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        this.resultSet = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{ResultSet.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "next" -> ++cursor < rows.size();
+                case "getMetaData" -> metaData;
+                case "findColumn" -> findColumn((String) args[0]);
+                case "getString" -> (String) value(args[0]);
+                case "getLong" -> value(args[0]) == null ? 0L : ((Number) value(args[0])).longValue();
+                case "getInt" -> value(args[0]) == null ? 0 : ((Number) value(args[0])).intValue();
+                case "getTimestamp" -> (Timestamp) value(args[0]);
+                case "close" -> null;
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    static StubResultSet of(List<String> labels, List<Object[]> rows) {
+        return new StubResultSet(labels, rows);
+    }
+
+    ResultSet resultSet() {
+        return resultSet;
+    }
+
+    void rewind() {
+        cursor = -1;
+    }
+
+    private int findColumn(String label) throws SQLException {
+        Integer index = indexes.get(label.toLowerCase(Locale.ROOT));
+        if (index == null) {
+            throw new SQLException("Column '" + label + "' not found.");
+        }
+        return index;
+    }
+
+    private Object value(Object column) throws SQLException {
+        int index = column instanceof String ? findColumn((String) column) : (Integer) column;
+        return rows.get(cursor)[index - 1];
+    }
+
+    @Override
+    public String toString() {
+        return "StubResultSet" + labels;
+    }
+}
@@ -0,0 +1,139 @@
+package com.library.service;
+
+import com.library.domain.book.ComputerBook;
+import com.library.repository.BookChange;
+import com.library.repository.ChangeSet;
+import com.library.repository.ChangeWatermark;
+import com.library.repository.impl.InMemoryBookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeFeedServiceTest {
+    private static final String CONSUMED = "2024-01-01 00:00:00|0|UPSERT";
+
+    @TempDir
+    Path dir;
+
+    private final InMemoryBookRepository repository = new InMemoryBookRepository();
+    private final List<ChangeFeedService> services = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        services.forEach(ChangeFeedService::shutdown);
+    }
+
+    @Test
+    void pollDeliversAllBatchesInOrderAndPersistsWatermark() throws IOException, InterruptedException {
+        Path file = watermarkFile(CONSUMED);
+        for (int i = 1; i <= 5; i++) {
+            repository.save(book(i));
+        }
+        Thread.sleep(1100);
+
+        ChangeFeedService feed = service(file, 2);
+        List<ChangeSet> batches = new ArrayList<>();
+        feed.addListener(batches::add);
+
+        assertEquals(5, feed.poll());
+        assertEquals(List.of(2, 2, 1), batches.stream().map(ChangeSet::size).toList());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), batches.stream()
+            .flatMap(batch -> batch.getChanges().stream())
+            .map(BookChange::getId)
+            .toList());
+        ChangeWatermark last = batches.get(2).getWatermark();
+        assertEquals(last, feed.getWatermark());
+        assertEquals(last.format(), Files.readString(file, StandardCharsets.UTF_8));
+        assertEquals(0, feed.poll());
+
+        // 重启后从持久化的水位继续，已推送的变更不再重复
+        ChangeFeedService restarted = service(file, 2);
+        assertEquals(last, restarted.getWatermark());
+        assertEquals(0, restarted.poll());
+    }
+
+    @Test
+    void failingListenerLeavesWatermarkInPlace() throws IOException, InterruptedException {
+        Path file = watermarkFile(CONSUMED);
+        repository.save(book(1));
+        Thread.sleep(1100);
+
+        ChangeFeedService feed = service(file, 10);
+        feed.addListener(changes -> {
+            throw new IllegalStateException("listener failed");
+        });
+
+        assertThrows(IllegalStateException.class, feed::poll);
+        assertEquals(ChangeWatermark.parse(CONSUMED), feed.getWatermark());
+        assertEquals(CONSUMED, Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void legacyWatermarkFileIsParsedAsUpdate() throws IOException {
+        ChangeFeedService feed = service(watermarkFile("2024-01-01 00:00:00|7\n"), 10);
+
+        assertEquals(new ChangeWatermark("2024-01-01 00:00:00", 7L, BookChange.Type.UPSERT), feed.getWatermark());
+    }
+
+    @Test
+    void invalidOrMissingWatermarkFileStartsFromRecentChanges() throws IOException {
+        ChangeFeedService invalid = service(watermarkFile("not a watermark"), 10);
+        ChangeFeedService missing = service(dir.resolve("missing.watermark"), 10);
+
+        // 从一分钟前开始，不回放更早的历史变更
+        for (ChangeFeedService feed : List.of(invalid, missing)) {
+            assertTrue(feed.getWatermark().getTime().compareTo("2024-01-01 00:00:00") > 0, feed.getWatermark().format());
+            assertEquals(0L, feed.getWatermark().getId());
+        }
+    }
+
+    @Test
+    void purgeDropsTombstonesBehindWatermark() throws IOException, InterruptedException {
+        repository.delete(repository.save(book(1)).getId());
+        Thread.sleep(1100);
+
+        ChangeFeedService feed = service(watermarkFile(CONSUMED), 10);
+        List<ChangeSet> batches = new ArrayList<>();
+        feed.addListener(batches::add);
+        // 首次 poll 推送删除后即清理已越过水位的删除记录
+        assertEquals(1, feed.poll());
+        assertEquals(BookChange.Type.DELETE, batches.get(0).getChanges().get(0).getType());
+        assertTrue(repository.findChangesSince(ChangeWatermark.INITIAL, 10, 0).isEmpty());
+        assertEquals(0, feed.purgeTombstones());
+    }
+
+    private ChangeFeedService service(Path file, int batchSize) {
+        ChangeFeedService service = new ChangeFeedService(repository, file, batchSize, 0, 7);
+        services.add(service);
+        return service;
+    }
+
+    private Path watermarkFile(String content) throws IOException {
+        Path file = dir.resolve("changefeed.watermark");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static ComputerBook book(int i) {
+        ComputerBook book = new ComputerBook();
+        book.setIsbn("978-0-00-00000" + i + "-1");
+        book.setTitle("Title " + i);
+        book.setAuthor("Author");
+        book.setType("Computer");
+        book.setStock(1);
+        book.setProgrammingLanguage("Java");
+        book.setDifficulty("Easy");
+        return book;
+    }
+}
@@ -0,0 +1,125 @@
+package com.library.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+    @Test
+    void neverReportsAnAddedKeyAsMissing() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01, Long.MAX_VALUE);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("978-" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("978-" + i), "978-" + i);
+        }
+        assertEquals(10_000, filter.getInsertions());
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01, Long.MAX_VALUE);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("978-" + i);
+        }
+        long falsePositives = IntStream.range(0, 100_000)
+            .filter(i -> filter.mightContain("979-" + i))
+            .count();
+
+        // 目标 1%，留出余量避免偶然波动
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+        assertTrue(filter.expectedFalsePositiveRate() < 0.02);
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = BloomFilter.create(100, 0.01, Long.MAX_VALUE);
+
+        assertFalse(filter.mightContain("978-0"));
+        assertFalse(filter.mightContain(""));
+        assertEquals(0.0, filter.expectedFalsePositiveRate());
+    }
+
+    @Test
+    void sizesBitsAndHashesFromExpectedKeysAndRate() {
+        BloomFilter filter = BloomFilter.create(1_000, 0.01, Long.MAX_VALUE);
+
+        // m = -n ln p / (ln 2)^2 ≈ 9586，向上取整到 64 的倍数；k = m / n ln 2 ≈ 7
+        assertEquals(9600, filter.getBitCount());
+        assertEquals(7, filter.getHashCount());
+        assertEquals(1200, filter.getMemoryBytes());
+    }
+
+    @Test
+    void bitCountIsCappedByMaxBits() {
+        BloomFilter capped = BloomFilter.create(1_000_000, 0.001, 8 * 1024 * 8);
+        BloomFilter tiny = BloomFilter.create(1_000_000, 0.001, 1);
+
+        assertEquals(8 * 1024 * 8, capped.getBitCount());
+        assertEquals(1, capped.getHashCount());
+        assertEquals(64, tiny.getBitCount());
+    }
+
+    @Test
+    void rejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(0, 0.01, 1024));
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(100, 0, 1024));
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(100, 1, 1024));
+    }
+
+    @Test
+    void concurrentPutsAreAllVisible() throws Exception {
+        BloomFilter filter = BloomFilter.create(40_000, 0.01, Long.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        filter.put(thread + ":" + i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (int t = 0; t < 4; t++) {
+            for (int i = 0; i < 10_000; i++) {
+                assertTrue(filter.mightContain(t + ":" + i));
+            }
+        }
+        assertEquals(40_000, filter.getInsertions());
+    }
+
+    @Test
+    void keyFilterFoldsCaseAndWhitespaceAndTracksPuts() {
+        KeyBloomFilter filter = new KeyBloomFilter("isbn", () -> Stream.of("ISBN-A", " isbn-b "), 100, 0.01, 1 << 16);
+
+        assertTrue(filter.mightContain("anything"), "not built yet");
+        filter.rebuild();
+        assertTrue(filter.mightContain("isbn-a"));
+        assertTrue(filter.mightContain("ISBN-B"));
+        assertTrue(filter.mightContain("书号"), "non-ASCII keys are always possible");
+        assertFalse(filter.mightContain("isbn-c"));
+
+        filter.put("ISBN-C ");
+        assertTrue(filter.mightContain("isbn-c"));
+        assertEquals(1, filter.getNegatives());
+    }
+}
@@ -0,0 +1,176 @@
+package com.library.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChunkedGzipTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void memberRoundTripsAndIsPlainGzip() throws IOException {
+        byte[] data = sample(100_000, 1);
+        byte[] member = ChunkedGzip.compressMember(data, data.length, Deflater.DEFAULT_COMPRESSION);
+
+        assertArrayEquals(data, ChunkedGzip.decompressMember(member, data.length));
+        assertArrayEquals(data, gunzip(member));
+    }
+
+    @Test
+    void compressesOnlyTheGivenPrefix() throws IOException {
+        byte[] data = sample(4096, 2);
+        byte[] member = ChunkedGzip.compressMember(data, 1000, Deflater.BEST_SPEED);
+
+        assertArrayEquals(Arrays.copyOf(data, 1000), ChunkedGzip.decompressMember(member, 1000));
+    }
+
+    @Test
+    void decompressRejectsCorruptMember() {
+        byte[] data = sample(10_000, 3);
+        byte[] member = ChunkedGzip.compressMember(data, data.length, Deflater.DEFAULT_COMPRESSION);
+
+        byte[] badCrc = member.clone();
+        badCrc[badCrc.length - 8] ^= 0x01;
+        assertThrows(IOException.class, () -> ChunkedGzip.decompressMember(badCrc, data.length));
+
+        byte[] badHeader = member.clone();
+        badHeader[0] = 0;
+        assertThrows(IOException.class, () -> ChunkedGzip.decompressMember(badHeader, data.length));
+
+        assertThrows(IOException.class, () -> ChunkedGzip.decompressMember(member, data.length + 1));
+    }
+
+    @Test
+    void indexedFileDecompressesAsOneStreamAndIndexLocatesEveryChunk() throws IOException {
+        List<byte[]> chunks = List.of(sample(65_536, 4), sample(65_536, 5), sample(123, 6));
+        Path file = writeChunked(chunks, true);
+
+        assertArrayEquals(concat(chunks), gunzip(Files.readAllBytes(file)));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<ChunkedGzip.Chunk> index = ChunkedGzip.readIndex(channel);
+            assertNotNull(index);
+            assertEquals(chunks.size(), index.size());
+            long offset = 0;
+            for (int i = 0; i < chunks.size(); i++) {
+                ChunkedGzip.Chunk chunk = index.get(i);
+                assertEquals(offset, chunk.getOffset());
+                assertEquals(chunks.get(i).length, chunk.getSize());
+                ByteBuffer member = ByteBuffer.allocate(chunk.getLength());
+                ChunkedGzip.readFully(channel, member, chunk.getOffset());
+                assertArrayEquals(chunks.get(i), ChunkedGzip.decompressMember(member.array(), chunk.getSize()));
+                offset += chunk.getLength();
+            }
+        }
+    }
+
+    @Test
+    void emptyIndexIsReadBack() throws IOException {
+        Path file = writeChunked(List.of(), true);
+
+        assertArrayEquals(new byte[0], gunzip(Files.readAllBytes(file)));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<ChunkedGzip.Chunk> index = ChunkedGzip.readIndex(channel);
+            assertNotNull(index);
+            assertEquals(0, index.size());
+        }
+    }
+
+    @Test
+    void readIndexReturnsNullWithoutIndex() throws IOException {
+        Path unindexed = writeChunked(List.of(sample(5000, 7), sample(5000, 8)), false);
+        Path tiny = Files.write(dir.resolve("tiny.gz"), new byte[]{0x1f, (byte) 0x8b});
+
+        try (FileChannel channel = FileChannel.open(unindexed, StandardOpenOption.READ)) {
+            assertNull(ChunkedGzip.readIndex(channel));
+        }
+        try (FileChannel channel = FileChannel.open(tiny, StandardOpenOption.READ)) {
+            assertNull(ChunkedGzip.readIndex(channel));
+        }
+    }
+
+    @Test
+    void readIndexRejectsIndexThatDoesNotMatchTheFile() throws IOException {
+        // 索引前多出一段数据：各块长度之和到不了索引成员的起始位置
+        Path file = writeChunked(List.of(sample(5000, 9)), true);
+        byte[] bytes = Files.readAllBytes(file);
+        byte[] shifted = new byte[bytes.length + 16];
+        System.arraycopy(bytes, 0, shifted, 16, bytes.length);
+        Path mismatched = Files.write(dir.resolve("shifted.gz"), shifted);
+
+        try (FileChannel channel = FileChannel.open(mismatched, StandardOpenOption.READ)) {
+            assertNull(ChunkedGzip.readIndex(channel));
+        }
+    }
+
+    @Test
+    void indexIsOmittedAboveTheLimit() {
+        List<int[]> chunks = new ArrayList<>();
+        for (int i = 0; i < ChunkedGzip.MAX_INDEXED_CHUNKS; i++) {
+            chunks.add(new int[]{20, 0});
+        }
+        assertNotNull(ChunkedGzip.indexMember(chunks));
+
+        chunks.add(new int[]{20, 0});
+        assertNull(ChunkedGzip.indexMember(chunks));
+    }
+
+    private Path writeChunked(List<byte[]> chunks, boolean indexed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<int[]> entries = new ArrayList<>();
+        for (byte[] chunk : chunks) {
+            byte[] member = ChunkedGzip.compressMember(chunk, chunk.length, Deflater.DEFAULT_COMPRESSION);
+            out.write(member);
+            entries.add(new int[]{member.length, chunk.length});
+        }
+        if (indexed) {
+            out.write(ChunkedGzip.indexMember(entries));
+        }
+        return Files.write(dir.resolve("chunked-" + chunks.size() + "-" + indexed + ".gz"), out.toByteArray());
+    }
+
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] concat(List<byte[]> chunks) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        chunks.forEach(out::writeBytes);
+        return out.toByteArray();
+    }
+
+    // 半随机的文本，既能压缩也不会压成几个字节
+    private static byte[] sample(int size, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(size);
+        while (text.length() < size) {
+            text.append("{\"isbn\":\"").append(random.nextInt(1_000_000)).append("\",\"stock\":")
+                .append(random.nextInt(100)).append("},");
+        }
+        return text.substring(0, size).getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,273 @@
+package com.library.util;
+
+import com.library.domain.book.ComputerBook;
+import com.library.repository.ConflictPolicy;
+import com.library.repository.StockAdjustment;
+import com.library.repository.impl.BookRepositoryImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.MockedStatic;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionManagerTest {
+    private final Connection outer = mock(Connection.class);
+    private final Connection inner = mock(Connection.class);
+    private MockedStatic<DBHandler> dbHandler;
+
+    @BeforeEach
+    void bindMockConnections() {
+        // 事务按获取顺序拿到 outer、inner，不连接真实的连接池
+        dbHandler = mockStatic(DBHandler.class, CALLS_REAL_METHODS);
+        dbHandler.when(DBHandler::acquireConnection).thenReturn(outer, inner);
+        dbHandler.clearInvocations();
+    }
+
+    @AfterEach
+    void releaseStaticMock() {
+        dbHandler.close();
+    }
+
+    @Test
+    void commitAndCloseOnBoundConnectionAreLeftToTheBoundary() throws SQLException {
+        TransactionManager.run(() -> {
+            Connection conn = connection();
+            try {
+                conn.commit();
+                conn.setAutoCommit(true);
+                conn.close();
+                assertSame(conn, connection());
+                assertSame(outer, conn.unwrap(Connection.class));
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        InOrder order = inOrder(outer);
+        order.verify(outer).commit();
+        order.verify(outer).close();
+        verify(outer, never()).setAutoCommit(true);
+        verify(outer, never()).rollback();
+        assertFalse(TransactionManager.isActive());
+    }
+
+    @Test
+    void rollbackOnBoundConnectionMarksTransactionRollbackOnly() throws SQLException {
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> TransactionManager.run(() -> {
+            DBHandler.rollback(connection());
+        }));
+
+        assertTrue(e.getMessage().contains("rollback-only"));
+        verify(outer).rollback();
+        verify(outer, never()).commit();
+        verify(outer).close();
+    }
+
+    @Test
+    void caughtFailureInJoinedTransactionStillRollsBackOuter() throws SQLException {
+        assertThrows(IllegalStateException.class, () -> TransactionManager.run(() -> {
+            connection();
+            try {
+                TransactionManager.run(() -> {
+                    throw new IllegalArgumentException("inner failure");
+                });
+            } catch (IllegalArgumentException expected) {
+                // 加入外层事务的失败不能被吞掉
+            }
+        }));
+
+        verify(outer).rollback();
+        verify(outer, never()).commit();
+    }
+
+    @Test
+    void noConnectionIsAcquiredWithoutDatabaseAccess() {
+        assertEquals("done", TransactionManager.execute(() -> "done"));
+
+        dbHandler.verify(DBHandler::acquireConnection, never());
+    }
+
+    @Test
+    void requiresNewSuspendsOuterAndCommitsIndependently() throws SQLException {
+        TransactionManager.run(() -> {
+            Connection first = connection();
+            TransactionManager.execute(TransactionManager.Propagation.REQUIRES_NEW, () -> {
+                assertSameTarget(inner, connection());
+                return null;
+            });
+            // 内层结束后恢复外层事务的连接
+            assertSame(first, connection());
+            assertSameTarget(outer, first);
+        });
+
+        InOrder order = inOrder(inner, outer);
+        order.verify(inner).commit();
+        order.verify(inner).close();
+        order.verify(outer).commit();
+        order.verify(outer).close();
+    }
+
+    @Test
+    void requiresNewRollbackLeavesOuterCommittable() throws SQLException {
+        TransactionManager.run(() -> {
+            connection();
+            assertThrows(IllegalArgumentException.class, () ->
+                TransactionManager.execute(TransactionManager.Propagation.REQUIRES_NEW, () -> {
+                    connection();
+                    throw new IllegalArgumentException("inner failure");
+                }));
+        });
+
+        verify(inner).rollback();
+        verify(inner, never()).commit();
+        verify(outer).commit();
+        verify(outer, never()).rollback();
+    }
+
+    @Test
+    void afterCommitRunsAfterCommitAndOutsideTransaction() throws SQLException {
+        List<String> events = new ArrayList<>();
+        TransactionManager.run(() -> {
+            connection();
+            TransactionManager.afterCommit(() -> events.add("callback active=" + TransactionManager.isActive()));
+            events.add("work");
+        });
+
+        assertEquals(List.of("work", "callback active=false"), events);
+        verify(outer).commit();
+    }
+
+    @Test
+    void afterCommitCallbacksAreDroppedOnRollback() {
+        List<String> events = new ArrayList<>();
+        assertThrows(IllegalStateException.class, () -> TransactionManager.run(() -> {
+            connection();
+            TransactionManager.afterCommit(() -> events.add("callback"));
+            throw new IllegalStateException("work failed");
+        }));
+
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void afterCommitRunsImmediatelyOutsideTransaction() {
+        List<String> events = new ArrayList<>();
+        TransactionManager.afterCommit(() -> events.add("callback"));
+
+        assertEquals(List.of("callback"), events);
+        assertFalse(TransactionManager.isActive());
+    }
+
+    @Test
+    void saveAllFailsFastInsteadOfRetryingRowByRow() throws SQLException {
+        PreparedStatement stmt = failingStatements();
+        BookRepositoryImpl repository = new BookRepositoryImpl();
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> TransactionManager.run(() ->
+            repository.saveAll(List.of(book("978-0-00-000001-1"), book("978-0-00-000002-2")))));
+
+        assertTrue(e.getMessage().startsWith("Batch save failed inside a transaction"), e.getMessage());
+        verify(stmt, never()).executeUpdate();
+        verifyRolledBack();
+    }
+
+    @Test
+    void upsertAllFailsFastInsteadOfRetryingRowByRow() throws SQLException {
+        PreparedStatement stmt = failingStatements();
+        BookRepositoryImpl repository = new BookRepositoryImpl();
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> TransactionManager.run(() ->
+            repository.upsertAll(List.of(book("978-0-00-000001-1"), book("978-0-00-000002-2")),
+                ConflictPolicy.OVERWRITE)));
+
+        assertTrue(e.getMessage().startsWith("Batch upsert failed inside a transaction"), e.getMessage());
+        // 只执行了一次批量插入，没有逐行重试
+        verify(stmt, times(1)).executeBatch();
+        verifyRolledBack();
+    }
+
+    @Test
+    void bulkAdjustStockFailsFastInsteadOfContinuingWithLaterChunks() throws SQLException {
+        PreparedStatement stmt = failingStatements();
+        when(stmt.executeQuery()).thenThrow(new SQLException("Lock wait timeout exceeded"));
+        BookRepositoryImpl repository = new BookRepositoryImpl();
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> TransactionManager.run(() ->
+            repository.bulkAdjustStock(Stream.of(StockAdjustment.delta("978-0-00-000001-1", -1)))));
+
+        assertTrue(e.getMessage().startsWith("Bulk stock adjustment failed inside a transaction"), e.getMessage());
+        verify(stmt, never()).executeBatch();
+        verifyRolledBack();
+    }
+
+    // 所有语句共用一个 mock：查询返回空结果，批量执行失败
+    private PreparedStatement failingStatements() throws SQLException {
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        ResultSet empty = mock(ResultSet.class);
+        when(outer.prepareStatement(anyString())).thenReturn(stmt);
+        when(outer.prepareStatement(anyString(), anyInt())).thenReturn(stmt);
+        when(stmt.executeQuery()).thenReturn(empty);
+        when(stmt.executeBatch()).thenThrow(new BatchUpdateException("Deadlock found", new int[0]));
+        return stmt;
+    }
+
+    private void verifyRolledBack() throws SQLException {
+        verify(outer).rollback();
+        verify(outer, never()).commit();
+        verify(outer).close();
+        assertFalse(TransactionManager.isActive());
+    }
+
+    private static Connection connection() {
+        try {
+            return DBHandler.getConnection();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void assertSameTarget(Connection expected, Connection bound) {
+        try {
+            assertSame(expected, bound.unwrap(Connection.class));
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static ComputerBook book(String isbn) {
+        ComputerBook book = new ComputerBook();
+        book.setIsbn(isbn);
+        book.setTitle("Title");
+        book.setAuthor("Author");
+        book.setType("Computer");
+        book.setStock(1);
+        book.setProgrammingLanguage("Java");
+        book.setDifficulty("Easy");
+        return book;
+    }
+}